@@ -53,6 +53,8 @@ import cn.nukkit.lang.TranslationContainer;
 import cn.nukkit.level.*;
 import cn.nukkit.level.format.FullChunk;
 import cn.nukkit.level.format.generic.BaseFullChunk;
+import cn.nukkit.level.format.generic.serializer.ChunkBlobStore;
+import cn.nukkit.level.format.generic.serializer.ChunkBlobs;
 import cn.nukkit.level.particle.ItemBreakParticle;
 import cn.nukkit.level.particle.PunchBlockParticle;
 import cn.nukkit.level.sound.ExperienceOrbSound;
@@ -60,6 +62,8 @@ import cn.nukkit.math.*;
 import cn.nukkit.metadata.MetadataValue;
 import cn.nukkit.nbt.NBTIO;
 import cn.nukkit.nbt.tag.*;
+import cn.nukkit.network.ChunkSendRate;
+import cn.nukkit.network.LoginVerificationTask;
 import cn.nukkit.network.SourceInterface;
 import cn.nukkit.network.encryption.PrepareEncryptionTask;
 import cn.nukkit.network.process.DataPacketManager;
@@ -100,6 +104,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.math3.util.FastMath;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -114,6 +119,7 @@ import java.nio.ByteOrder;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -174,8 +180,25 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
 
     public static final int RESOURCE_PACK_CHUNK_SIZE = 8 * 1024; // 8KB
 
+    /**
+     * Maximum number of chunk blobs waiting for a cache status before the client blob cache is disabled for a player
+     */
+    private static final int MAX_PENDING_CHUNK_BLOBS = 16384;
+    /**
+     * How far ahead the movement of a player is predicted when ordering chunks
+     */
+    private static final int CHUNK_ORDER_LOOKAHEAD_TICKS = 40;
+    /**
+     * How much chunks in the looking direction of a player are preferred, in chunks
+     */
+    private static final double CHUNK_ORDER_LOOK_BIAS = 1.5;
+
     protected final SourceInterface interfaz;
     protected final NetworkPlayerSession networkSession;
+    /**
+     * Packets queued during the current tick, sent together by {@link #flushPackets()}
+     */
+    private final Queue<DataPacket> packetQueue = new ConcurrentLinkedQueue<>();
 
     public boolean playedBefore;
     public boolean spawned = false;
@@ -253,8 +276,35 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
 
     private int chunksSent = 0;
     private boolean hasSpawnChunks;
+    /**
+     * Whether chunks are sent to this player as blob hashes
+     */
+    private boolean clientCacheEnabled;
+    /**
+     * Blobs sent as hashes which the client has not reported a cache status for yet
+     */
+    private final Long2ObjectOpenHashMap<byte[]> pendingChunkBlobs = new Long2ObjectOpenHashMap<>();
     protected final Long2ObjectLinkedOpenHashMap<Boolean> loadQueue = new Long2ObjectLinkedOpenHashMap<>();
     protected int nextChunkOrderRun = 1;
+    /**
+     * Center and radius of the last chunk ordering, used to update the load queue when the player moves into a neighbour chunk
+     */
+    private Level lastChunkOrderLevel;
+    private int lastChunkOrderX;
+    private int lastChunkOrderZ;
+    private int lastChunkOrderRadius = -1;
+    /**
+     * Highest x offset of each row of chunks in range of the last chunk radius
+     */
+    private int[] chunkOrderRowWidths;
+    /**
+     * Smoothed movement of the player in blocks per tick
+     */
+    private double chunkVelocityX;
+    private double chunkVelocityZ;
+    private double lastTickX;
+    private double lastTickZ;
+    private ChunkSendRate chunkSendRate;
 
     protected final Map<UUID, Player> hiddenPlayers = new HashMap<>();
 
@@ -1003,6 +1053,7 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         this.dataPacket(packet);
 
         this.chunksSent++;
+        this.getChunkSendRate().onChunkSent();
 
         if (this.spawned) {
             for (Entity entity : this.level.getChunkEntities(x, z).values()) {
@@ -1051,6 +1102,99 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         this.sendChunk(x, z, pk);
     }
 
+    /**
+     * Send a chunk to a player using the client blob cache. The client asks for the blobs it does not have.
+     */
+    public void sendChunk(int x, int z, int subChunkCount, ChunkBlobs blobs, int dimension) {
+        if (!this.connected) {
+            return;
+        }
+
+        long[] blobIds = blobs.blobIds();
+        ChunkBlobStore store = this.server.getChunkBlobStore();
+        synchronized (this.pendingChunkBlobs) {
+            if (this.pendingChunkBlobs.size() + blobIds.length > MAX_PENDING_CHUNK_BLOBS) {
+                // The client does not answer, fall back to full chunks
+                this.server.getLogger().debug(this.username + ": too many chunk blobs without cache status, disabling the client blob cache");
+                this.pendingChunkBlobs.clear();
+                this.clientCacheEnabled = false;
+                this.sendChunk(x, z, subChunkCount, joinChunkBlobs(blobs), dimension);
+                return;
+            }
+            for (int i = 0; i < blobIds.length; i++) {
+                this.pendingChunkBlobs.put(blobIds[i], store.intern(blobIds[i], blobs.blobs()[i]));
+            }
+        }
+
+        LevelChunkPacket pk = new LevelChunkPacket();
+        pk.chunkX = x;
+        pk.chunkZ = z;
+        pk.dimension = dimension;
+        pk.subChunkCount = subChunkCount;
+        pk.cacheEnabled = true;
+        pk.blobIds = blobIds;
+        pk.data = blobs.payload();
+
+        this.sendChunk(x, z, pk);
+    }
+
+    private static byte[] joinChunkBlobs(ChunkBlobs blobs) {
+        BinaryStream stream = new BinaryStream();
+        for (byte[] blob : blobs.blobs()) {
+            stream.put(blob);
+        }
+        stream.put(blobs.payload());
+        return stream.getBuffer();
+    }
+
+    /**
+     * Answer the cache status of blobs sent as hashes, missing blobs are sent in full
+     */
+    public void handleClientCacheBlobStatus(long[] missHashes, long[] hitHashes) {
+        ClientCacheMissResponsePacket pk = new ClientCacheMissResponsePacket();
+        ChunkBlobStore store = this.server.getChunkBlobStore();
+        synchronized (this.pendingChunkBlobs) {
+            for (long hash : hitHashes) {
+                this.pendingChunkBlobs.remove(hash);
+            }
+            for (long hash : missHashes) {
+                byte[] blob = this.pendingChunkBlobs.remove(hash);
+                if (blob == null) {
+                    blob = store.get(hash);
+                }
+                if (blob == null) {
+                    this.server.getLogger().debug(this.username + ": requested unknown chunk blob " + hash);
+                    continue;
+                }
+                pk.blobs.put(hash, blob);
+            }
+        }
+
+        if (!pk.blobs.isEmpty()) {
+            this.dataPacket(pk);
+        }
+    }
+
+    /**
+     * @return whether chunks are sent to this player as column headers and the sub chunks are sent on request
+     */
+    public boolean isSubChunkRequestMode() {
+        return this.server.subChunkRequests && this.protocol >= Math.max(ProtocolInfo.v1_18_10, this.server.subChunkRequestsMinProtocol);
+    }
+
+    public boolean isClientCacheEnabled() {
+        return this.clientCacheEnabled;
+    }
+
+    public void setClientCacheEnabled(boolean clientCacheEnabled) {
+        this.clientCacheEnabled = clientCacheEnabled;
+        if (!clientCacheEnabled) {
+            synchronized (this.pendingChunkBlobs) {
+                this.pendingChunkBlobs.clear();
+            }
+        }
+    }
+
     protected void sendNextChunk() {
         if (!this.connected) {
             return;
@@ -1058,9 +1202,10 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
 
         if (!loadQueue.isEmpty()) {
             int count = 0;
+            int budget = this.getChunkSendRate().getBudget(System.nanoTime());
             ObjectIterator<Long2ObjectMap.Entry<Boolean>> iter = loadQueue.long2ObjectEntrySet().fastIterator();
             while (iter.hasNext()) {
-                if (count >= server.chunksPerTick) {
+                if (count >= budget) {
                     break;
                 }
 
@@ -1075,6 +1220,12 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
                     this.usedChunks.put(index, false);
                     this.level.registerChunkLoader(this, chunkX, chunkZ, false);
 
+                    if (!this.level.isChunkLoaded(chunkX, chunkZ)) {
+                        // Read the chunk in the background and retry on a later tick
+                        this.level.loadChunkAsync(chunkX, chunkZ, true);
+                        continue;
+                    }
+
                     if (!this.level.populateChunk(chunkX, chunkZ)) {
                         if (this.spawned && this.teleportPosition == null) {
                             continue;
@@ -1229,73 +1380,86 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
 
         this.nextChunkOrderRun = 20;
 
-        loadQueue.clear();
-        Long2ObjectOpenHashMap<Boolean> lastChunk = new Long2ObjectOpenHashMap<>(this.usedChunks);
-
         int centerX = (int) this.x >> 4;
         int centerZ = (int) this.z >> 4;
 
         int radius = spawned ? this.chunkRadius : server.c_s_spawnThreshold;
-        int radiusSqr = radius * radius;
 
-        long index;
-        for (int x = 0; x <= radius; x++) {
-            int xx = x * x;
-            for (int z = 0; z <= x; z++) {
-                int distanceSqr = xx + z * z;
-                if (distanceSqr > radiusSqr) continue;
+        if (this.lastChunkOrderLevel == this.level && this.lastChunkOrderRadius == radius
+                && Math.abs(centerX - this.lastChunkOrderX) <= 1 && Math.abs(centerZ - this.lastChunkOrderZ) <= 1
+                && (centerX != this.lastChunkOrderX || centerZ != this.lastChunkOrderZ)) {
+            this.shiftChunkOrder(centerX, centerZ, radius);
+        } else {
+            loadQueue.clear();
+            Long2ObjectOpenHashMap<Boolean> lastChunk = new Long2ObjectOpenHashMap<>(this.usedChunks);
 
-                /* Top right quadrant */
-                if (this.usedChunks.get(index = Level.chunkHash(centerX + x, centerZ + z)) != Boolean.TRUE) {
-                    this.loadQueue.put(index, Boolean.TRUE);
-                }
-                lastChunk.remove(index);
-                /* Top left quadrant */
-                if (this.usedChunks.get(index = Level.chunkHash(centerX - x - 1, centerZ + z)) != Boolean.TRUE) {
-                    this.loadQueue.put(index, Boolean.TRUE);
-                }
-                lastChunk.remove(index);
-                /* Bottom right quadrant */
-                if (this.usedChunks.get(index = Level.chunkHash(centerX + x, centerZ - z - 1)) != Boolean.TRUE) {
-                    this.loadQueue.put(index, Boolean.TRUE);
-                }
-                lastChunk.remove(index);
-                /* Bottom left quadrant */
-                if (this.usedChunks.get(index = Level.chunkHash(centerX - x - 1, centerZ - z - 1)) != Boolean.TRUE) {
-                    this.loadQueue.put(index, Boolean.TRUE);
-                }
-                lastChunk.remove(index);
-                if (x != z) {
-                    /* Top right quadrant mirror */
-                    if (this.usedChunks.get(index = Level.chunkHash(centerX + z, centerZ + x)) != Boolean.TRUE) {
+            int radiusSqr = radius * radius;
+
+            long index;
+            for (int x = 0; x <= radius; x++) {
+                int xx = x * x;
+                for (int z = 0; z <= x; z++) {
+                    int distanceSqr = xx + z * z;
+                    if (distanceSqr > radiusSqr) continue;
+
+                    /* Top right quadrant */
+                    if (this.usedChunks.get(index = Level.chunkHash(centerX + x, centerZ + z)) != Boolean.TRUE) {
                         this.loadQueue.put(index, Boolean.TRUE);
                     }
                     lastChunk.remove(index);
-                    /* Top left quadrant mirror */
-                    if (this.usedChunks.get(index = Level.chunkHash(centerX - z - 1, centerZ + x)) != Boolean.TRUE) {
+                    /* Top left quadrant */
+                    if (this.usedChunks.get(index = Level.chunkHash(centerX - x - 1, centerZ + z)) != Boolean.TRUE) {
                         this.loadQueue.put(index, Boolean.TRUE);
                     }
                     lastChunk.remove(index);
-                    /* Bottom right quadrant mirror */
-                    if (this.usedChunks.get(index = Level.chunkHash(centerX + z, centerZ - x - 1)) != Boolean.TRUE) {
+                    /* Bottom right quadrant */
+                    if (this.usedChunks.get(index = Level.chunkHash(centerX + x, centerZ - z - 1)) != Boolean.TRUE) {
                         this.loadQueue.put(index, Boolean.TRUE);
                     }
                     lastChunk.remove(index);
-                    /* Bottom left quadrant mirror */
-                    if (this.usedChunks.get(index = Level.chunkHash(centerX - z - 1, centerZ - x - 1)) != Boolean.TRUE) {
+                    /* Bottom left quadrant */
+                    if (this.usedChunks.get(index = Level.chunkHash(centerX - x - 1, centerZ - z - 1)) != Boolean.TRUE) {
                         this.loadQueue.put(index, Boolean.TRUE);
                     }
                     lastChunk.remove(index);
+                    if (x != z) {
+                        /* Top right quadrant mirror */
+                        if (this.usedChunks.get(index = Level.chunkHash(centerX + z, centerZ + x)) != Boolean.TRUE) {
+                            this.loadQueue.put(index, Boolean.TRUE);
+                        }
+                        lastChunk.remove(index);
+                        /* Top left quadrant mirror */
+                        if (this.usedChunks.get(index = Level.chunkHash(centerX - z - 1, centerZ + x)) != Boolean.TRUE) {
+                            this.loadQueue.put(index, Boolean.TRUE);
+                        }
+                        lastChunk.remove(index);
+                        /* Bottom right quadrant mirror */
+                        if (this.usedChunks.get(index = Level.chunkHash(centerX + z, centerZ - x - 1)) != Boolean.TRUE) {
+                            this.loadQueue.put(index, Boolean.TRUE);
+                        }
+                        lastChunk.remove(index);
+                        /* Bottom left quadrant mirror */
+                        if (this.usedChunks.get(index = Level.chunkHash(centerX - z - 1, centerZ - x - 1)) != Boolean.TRUE) {
+                            this.loadQueue.put(index, Boolean.TRUE);
+                        }
+                        lastChunk.remove(index);
+                    }
                 }
             }
-        }
 
-        LongIterator keys = lastChunk.keySet().iterator();
-        while (keys.hasNext()) {
-            index = keys.nextLong();
-            this.unloadChunk(Level.getHashX(index), Level.getHashZ(index));
+            LongIterator keys = lastChunk.keySet().iterator();
+            while (keys.hasNext()) {
+                index = keys.nextLong();
+                this.unloadChunk(Level.getHashX(index), Level.getHashZ(index));
+            }
         }
 
+        this.lastChunkOrderLevel = this.level;
+        this.lastChunkOrderX = centerX;
+        this.lastChunkOrderZ = centerZ;
+        this.lastChunkOrderRadius = radius;
+        this.sortLoadQueue(radius);
+
         if (this.protocol >= 313) {
             if (!loadQueue.isEmpty()) {
                 NetworkChunkPublisherUpdatePacket packet = new NetworkChunkPublisherUpdatePacket();
@@ -1308,6 +1472,142 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         return true;
     }
 
+    /**
+     * Update the load queue after the player moved into a neighbour chunk.
+     * Only the rows of chunks entering and leaving the radius are visited.
+     */
+    private void shiftChunkOrder(int centerX, int centerZ, int radius) {
+        int[] widths = this.getChunkOrderRowWidths(radius);
+        int oldX = this.lastChunkOrderX;
+        int oldZ = this.lastChunkOrderZ;
+        for (int z = Math.min(centerZ, oldZ) - radius - 1; z <= Math.max(centerZ, oldZ) + radius; z++) {
+            int newRow = getChunkRowWidth(widths, z - centerZ);
+            int oldRow = getChunkRowWidth(widths, z - oldZ);
+            int newMin = centerX - newRow - 1;
+            int newMax = centerX + newRow;
+            int oldMin = oldX - oldRow - 1;
+            int oldMax = oldX + oldRow;
+
+            for (int x = newMin; x <= newMax; x++) {
+                if (oldRow >= 0 && x >= oldMin && x <= oldMax) {
+                    x = oldMax;
+                    continue;
+                }
+                long index = Level.chunkHash(x, z);
+                if (this.usedChunks.get(index) != Boolean.TRUE) {
+                    this.loadQueue.put(index, Boolean.TRUE);
+                }
+            }
+
+            for (int x = oldMin; x <= oldMax; x++) {
+                if (newRow >= 0 && x >= newMin && x <= newMax) {
+                    x = newMax;
+                    continue;
+                }
+                long index = Level.chunkHash(x, z);
+                if (this.usedChunks.containsKey(index)) {
+                    this.unloadChunk(x, z);
+                } else {
+                    this.loadQueue.remove(index);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return highest x offset of the row, -1 if the row is out of range
+     */
+    private static int getChunkRowWidth(int[] widths, int offsetZ) {
+        int row = offsetZ >= 0 ? offsetZ : -offsetZ - 1;
+        return row < widths.length ? widths[row] : -1;
+    }
+
+    private int[] getChunkOrderRowWidths(int radius) {
+        int[] widths = this.chunkOrderRowWidths;
+        if (widths == null || widths.length != radius + 1) {
+            widths = new int[radius + 1];
+            for (int row = 0; row <= radius; row++) {
+                widths[row] = (int) Math.sqrt(radius * radius - row * row);
+            }
+            this.chunkOrderRowWidths = widths;
+        }
+        return widths;
+    }
+
+    /**
+     * Order the load queue by the distance to the player and to the position the player is moving or looking towards
+     */
+    private void sortLoadQueue(int radius) {
+        int size = this.loadQueue.size();
+        if (size < 2) {
+            return;
+        }
+
+        double playerX = this.x / 16;
+        double playerZ = this.z / 16;
+        double aheadX = this.chunkVelocityX * CHUNK_ORDER_LOOKAHEAD_TICKS / 16;
+        double aheadZ = this.chunkVelocityZ * CHUNK_ORDER_LOOKAHEAD_TICKS / 16;
+        double ahead = Math.sqrt(aheadX * aheadX + aheadZ * aheadZ);
+        double maxAhead = radius / 2.0;
+        if (ahead > maxAhead) {
+            aheadX *= maxAhead / ahead;
+            aheadZ *= maxAhead / ahead;
+        }
+        double yaw = Math.toRadians(this.yaw);
+        double focusX = playerX + aheadX - Math.sin(yaw) * CHUNK_ORDER_LOOK_BIAS;
+        double focusZ = playerZ + aheadZ + Math.cos(yaw) * CHUNK_ORDER_LOOK_BIAS;
+
+        long[] keys = this.loadQueue.keySet().toLongArray();
+        // Score in the high bits, position in the key array in the low bits
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            double chunkX = Level.getHashX(keys[i]) + 0.5;
+            double chunkZ = Level.getHashZ(keys[i]) + 0.5;
+            double score = (chunkX - playerX) * (chunkX - playerX) + (chunkZ - playerZ) * (chunkZ - playerZ)
+                    + (chunkX - focusX) * (chunkX - focusX) + (chunkZ - focusZ) * (chunkZ - focusZ);
+            order[i] = ((long) (score * 16) << 32) | i;
+        }
+        Arrays.sort(order);
+
+        this.loadQueue.clear();
+        for (long entry : order) {
+            this.loadQueue.put(keys[(int) entry], Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Smooth the movement of the player since the last tick, teleports reset it
+     */
+    private void updateChunkVelocity() {
+        double dx = this.x - this.lastTickX;
+        double dz = this.z - this.lastTickZ;
+        this.lastTickX = this.x;
+        this.lastTickZ = this.z;
+        if (dx * dx + dz * dz > 64) {
+            this.chunkVelocityX = 0;
+            this.chunkVelocityZ = 0;
+            return;
+        }
+        this.chunkVelocityX = this.chunkVelocityX * 0.8 + dx * 0.2;
+        this.chunkVelocityZ = this.chunkVelocityZ * 0.8 + dz * 0.2;
+    }
+
+    private ChunkSendRate getChunkSendRate() {
+        if (this.chunkSendRate == null) {
+            this.chunkSendRate = new ChunkSendRate(this.server.chunksPerTick, this.server.adaptiveChunkSending && this.protocol >= ProtocolInfo.v1_9_0);
+        }
+        return this.chunkSendRate;
+    }
+
+    /**
+     * Handle a NetworkStackLatencyPacket answered by the client
+     */
+    public void handleNetworkStackLatency(long timestamp) {
+        if (this.chunkSendRate != null) {
+            this.chunkSendRate.onProbeAnswered(timestamp, System.nanoTime());
+        }
+    }
+
     @Deprecated
     public boolean batchDataPacket(DataPacket packet) {
         return this.dataPacket(packet);
@@ -1339,14 +1639,40 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
             log.trace("Outbound {}: {}", this.getName(), packet);
         }
 
-        if (packet instanceof BatchPacket) {
-            this.networkSession.sendPacket(packet);
-        } else {
-            this.server.batchPackets(new Player[]{this}, new DataPacket[]{packet});
-        }
+        this.packetQueue.offer(packet);
         return true;
     }
 
+    /**
+     * Queue a packet that is already prepared for this player.
+     * Queued packets are sent together at the end of the tick.
+     *
+     * @param packet packet
+     */
+    @ApiStatus.Internal
+    public void queuePacket(DataPacket packet) {
+        this.packetQueue.offer(packet);
+    }
+
+    /**
+     * Send all packets queued since the last flush as one batch
+     */
+    public void flushPackets() {
+        if (this.packetQueue.isEmpty()) {
+            return;
+        }
+
+        List<DataPacket> packets = new ArrayList<>(this.packetQueue.size());
+        DataPacket packet;
+        while ((packet = this.packetQueue.poll()) != null) {
+            packets.add(packet);
+        }
+
+        if (this.connected) {
+            this.server.getBatchingHelper().sendQueuedPackets(this, packets);
+        }
+    }
+
     public int dataPacket(DataPacket packet, boolean needACK) {
         return this.dataPacket(packet) ? 0 : -1;
     }
@@ -1360,7 +1686,9 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
      * @return packet successfully sent
      */
     public boolean directDataPacket(DataPacket packet) {
-        return this.dataPacket(packet);
+        boolean sent = this.dataPacket(packet);
+        this.flushPackets();
+        return sent;
     }
 
     public int directDataPacket(DataPacket packet, boolean needACK) {
@@ -1368,8 +1696,15 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
     }
 
     public void forceDataPacket(DataPacket packet, Runnable callback) {
+        // Sent behind the packets queued before it, which would otherwise still wait for the batching executor
+        List<DataPacket> packets = new ArrayList<>(this.packetQueue.size());
+        DataPacket queued;
+        while ((queued = this.packetQueue.poll()) != null) {
+            packets.add(queued);
+        }
+
         packet.protocol = this.protocol;
-        this.networkSession.sendImmediatePacket(packet, (callback == null ? () -> {
+        this.server.getBatchingHelper().sendImmediatePacket(this, packets, packet, (callback == null ? () -> {
         } : callback));
     }
 
@@ -2552,7 +2887,18 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         nowLevel.providerLock.readLock().lock();
 
         try {
-            if (this.nextChunkOrderRun-- <= 0 || this.chunk == null) {
+            this.updateChunkVelocity();
+
+            long probe = this.getChunkSendRate().createProbe(System.nanoTime());
+            if (probe != -1) {
+                NetworkStackLatencyPacket pk = new NetworkStackLatencyPacket();
+                pk.timestamp = probe;
+                pk.fromServer = true;
+                this.dataPacket(pk);
+            }
+
+            if (this.nextChunkOrderRun-- <= 0 || this.chunk == null
+                    || ((int) this.x >> 4) != this.lastChunkOrderX || ((int) this.z >> 4) != this.lastChunkOrderZ) {
                 this.orderChunks();
             }
 
@@ -2916,6 +3262,108 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
         }
     }
 
+    /**
+     * Continue the login after the chain data of the login packet was decoded and verified
+     */
+    protected void processLoginChainData(LoginPacket loginPacket, LoginChainData chainData) {
+        this.loginChainData = chainData;
+
+        if (!loginChainData.isXboxAuthed() && server.xboxAuth) {
+            this.close("", "disconnectionScreen.notAuthenticated");
+            if (server.banXBAuthFailed) {
+                this.server.getNetwork().blockAddress(this.socketAddress.getAddress(), 5);
+                this.server.getLogger().notice("Blocked " + getAddress() + " for 5 seconds due to failed Xbox auth");
+            }
+            return;
+        }
+
+        if (this.server.isWaterdogCapable() && loginChainData.getWaterdogIP() != null) {
+            this.socketAddress = new InetSocketAddress(this.loginChainData.getWaterdogIP(), this.getRawPort());
+        }
+
+        this.version = loginChainData.getGameVersion();
+
+        // Do not set username before the user is authenticated
+        this.username = this.unverifiedUsername;
+        this.unverifiedUsername = null;
+        this.displayName = this.username;
+        this.iusername = this.username.toLowerCase();
+        this.setDataProperty(new StringEntityData(DATA_NAMETAG, this.username), false);
+
+        this.server.getLogger().debug("Name: " + this.username + " Protocol: " + this.protocol + " Version: " + this.version);
+
+        this.randomClientId = loginPacket.clientId;
+
+        this.uuid = loginPacket.clientUUID;
+        this.rawUUID = Binary.writeUUID(this.uuid);
+
+        boolean valid = true;
+        int len = loginPacket.username.length();
+        if (len > 16 || len < 3 || loginPacket.username.trim().isEmpty()) {
+            valid = false;
+        }
+
+        if (valid) {
+            for (int i = 0; i < len; i++) {
+                char c = loginPacket.username.charAt(i);
+                if ((c >= 'a' && c <= 'z') ||
+                        (c >= 'A' && c <= 'Z') ||
+                        (c >= '0' && c <= '9') ||
+                        c == '_' || c == ' '
+                ) {
+                    continue;
+                }
+
+                valid = false;
+                break;
+            }
+        }
+
+        if (!valid || Objects.equals(this.iusername, "rcon") || Objects.equals(this.iusername, "console")) {
+            this.close("", "disconnectionScreen.invalidName");
+            return;
+        }
+
+        if (!loginPacket.skin.isValid()) {
+            this.close("", "disconnectionScreen.invalidSkin");
+            return;
+        }
+        Skin skin = loginPacket.skin;
+        this.setSkin(skin.isPersona() && !this.getServer().personaSkins ? Skin.NO_PERSONA_SKIN : skin);
+
+        PlayerPreLoginEvent playerPreLoginEvent;
+        this.server.getPluginManager().callEvent(playerPreLoginEvent = new PlayerPreLoginEvent(this, "Plugin reason"));
+        if (playerPreLoginEvent.isCancelled()) {
+            this.close("", playerPreLoginEvent.getKickMessage());
+            return;
+        }
+
+        if (this.isEnableNetworkEncryption()) {
+            this.server.getScheduler().scheduleAsyncTask(InternalPlugin.INSTANCE, new PrepareEncryptionTask(this) {
+                @Override
+                public void onCompletion(Server server) {
+                    if (!Player.this.isConnected()) {
+                        return;
+                    }
+
+                    if (this.getHandshakeJwt() == null || this.getEncryptionKey() == null || this.getEncryptionCipher() == null || this.getDecryptionCipher() == null) {
+                        Player.this.close("", "Network Encryption error");
+                        return;
+                    }
+
+                    ServerToClientHandshakePacket pk = new ServerToClientHandshakePacket();
+                    pk.setJwt(this.getHandshakeJwt());
+                    Player.this.forceDataPacket(pk, () -> {
+                        Player.this.awaitingEncryptionHandshake = true;
+                        Player.this.getNetworkSession().setEncryption(this.getEncryptionKey(), this.getEncryptionCipher(), this.getDecryptionCipher());
+                    });
+                }
+            });
+        } else {
+            this.processPreLogin();
+        }
+    }
+
     public void handleDataPacket(DataPacket packet) {
         if (!connected) {
             return;
@@ -3001,107 +3449,25 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
                     return;
                 }
 
-                try {
-                    // TODO: Why do we read this separately?
-                    this.loginChainData = ClientChainData.read(loginPacket);
-                } catch (ClientChainData.TooBigSkinException ex) {
-                    this.close("", "disconnectionScreen.invalidSkin");
-                    return;
-                }
-
-                if (!loginChainData.isXboxAuthed() && server.xboxAuth) {
-                    this.close("", "disconnectionScreen.notAuthenticated");
-                    if (server.banXBAuthFailed) {
-                        this.server.getNetwork().blockAddress(this.socketAddress.getAddress(), 5);
-                        this.server.getLogger().notice("Blocked " + getAddress() + " for 5 seconds due to failed Xbox auth");
-                    }
-                    break;
-                }
-
-                if (this.server.isWaterdogCapable() && loginChainData.getWaterdogIP() != null) {
-                    this.socketAddress = new InetSocketAddress(this.loginChainData.getWaterdogIP(), this.getRawPort());
-                }
-
-                this.version = loginChainData.getGameVersion();
-
-                // Do not set username before the user is authenticated
-                this.username = this.unverifiedUsername;
-                this.unverifiedUsername = null;
-                this.displayName = this.username;
-                this.iusername = this.username.toLowerCase();
-                this.setDataProperty(new StringEntityData(DATA_NAMETAG, this.username), false);
-
-                this.server.getLogger().debug("Name: " + this.username + " Protocol: " + this.protocol + " Version: " + this.version);
-
-                this.randomClientId = loginPacket.clientId;
-
-                this.uuid = loginPacket.clientUUID;
-                this.rawUUID = Binary.writeUUID(this.uuid);
-
-                boolean valid = true;
-                int len = loginPacket.username.length();
-                if (len > 16 || len < 3 || loginPacket.username.trim().isEmpty()) {
-                    valid = false;
-                }
-
-                if (valid) {
-                    for (int i = 0; i < len; i++) {
-                        char c = loginPacket.username.charAt(i);
-                        if ((c >= 'a' && c <= 'z') ||
-                                (c >= 'A' && c <= 'Z') ||
-                                (c >= '0' && c <= '9') ||
-                                c == '_' || c == ' '
-                        ) {
-                            continue;
+                if (!this.server.getLoginVerifier().submit(new LoginVerificationTask(loginPacket) {
+                    @Override
+                    public void onCompletion(Server server) {
+                        if (!Player.this.isConnected()) {
+                            return;
                         }
 
-                        valid = false;
-                        break;
-                    }
-                }
-
-                if (!valid || Objects.equals(this.iusername, "rcon") || Objects.equals(this.iusername, "console")) {
-                    this.close("", "disconnectionScreen.invalidName");
-                    break;
-                }
-
-                if (!loginPacket.skin.isValid()) {
-                    this.close("", "disconnectionScreen.invalidSkin");
-                    break;
-                }
-                Skin skin = loginPacket.skin;
-                this.setSkin(skin.isPersona() && !this.getServer().personaSkins ? Skin.NO_PERSONA_SKIN : skin);
-
-                PlayerPreLoginEvent playerPreLoginEvent;
-                this.server.getPluginManager().callEvent(playerPreLoginEvent = new PlayerPreLoginEvent(this, "Plugin reason"));
-                if (playerPreLoginEvent.isCancelled()) {
-                    this.close("", playerPreLoginEvent.getKickMessage());
-                    break;
-                }
-
-                if (this.isEnableNetworkEncryption()) {
-                    this.server.getScheduler().scheduleAsyncTask(InternalPlugin.INSTANCE, new PrepareEncryptionTask(this) {
-                        @Override
-                        public void onCompletion(Server server) {
-                            if (!Player.this.isConnected()) {
-                                return;
-                            }
-
-                            if (this.getHandshakeJwt() == null || this.getEncryptionKey() == null || this.getEncryptionCipher() == null || this.getDecryptionCipher() == null) {
-                                Player.this.close("", "Network Encryption error");
-                                return;
+                        if (this.getChainData() == null) {
+                            if (!this.isSkinTooBig()) {
+                                server.getLogger().debug("Invalid login packet from " + Player.this.getAddress(), this.getError());
                             }
-
-                            ServerToClientHandshakePacket pk = new ServerToClientHandshakePacket();
-                            pk.setJwt(this.getHandshakeJwt());
-                            Player.this.forceDataPacket(pk, () -> {
-                                Player.this.awaitingEncryptionHandshake = true;
-                                Player.this.getNetworkSession().setEncryption(this.getEncryptionKey(), this.getEncryptionCipher(), this.getDecryptionCipher());
-                            });
+                            Player.this.close("", this.isSkinTooBig() ? "disconnectionScreen.invalidSkin" : "Invalid login packet");
+                            return;
                         }
-                    });
-                } else {
-                    this.processPreLogin();
+
+                        Player.this.processLoginChainData(loginPacket, this.getChainData());
+                    }
+                })) {
+                    this.close("", "Too many players are logging in, please try again");
                 }
                 break;
             case ProtocolInfo.RESOURCE_PACK_CLIENT_RESPONSE_PACKET:
@@ -5994,6 +6360,8 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
 
     @Override
     protected void checkChunks() {
+        this.level.getEntityIndex().update(this);
+
         if (this.chunk == null || (this.chunk.getX() != ((int) this.x >> 4) || this.chunk.getZ() != ((int) this.z >> 4))) {
             if (this.chunk != null) {
                 this.chunk.removeEntity(this);
@@ -6075,6 +6443,12 @@ public class Player extends EntityHuman implements CommandSender, InventoryHolde
             return false;
         }
 
+        if (location.level != null && location.level != this.level && this.server.isLevelTickThread()) {
+            // The target level may be ticked concurrently, teleport after the level tick barrier
+            this.server.executeCrossLevel(() -> this.teleport(location, cause));
+            return true;
+        }
+
         Location from = this.getLocation();
         Location to = location;
 
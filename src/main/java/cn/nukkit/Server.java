@@ -39,6 +39,7 @@ import cn.nukkit.level.biome.EnumBiome;
 import cn.nukkit.level.format.LevelProvider;
 import cn.nukkit.level.format.LevelProviderManager;
 import cn.nukkit.level.format.anvil.Anvil;
+import cn.nukkit.level.format.generic.serializer.ChunkBlobStore;
 import cn.nukkit.level.format.leveldb.LevelDBProvider;
 import cn.nukkit.level.generator.*;
 import cn.nukkit.level.tickingarea.manager.SimpleTickingAreaManager;
@@ -55,6 +56,7 @@ import cn.nukkit.nbt.tag.DoubleTag;
 import cn.nukkit.nbt.tag.FloatTag;
 import cn.nukkit.nbt.tag.ListTag;
 import cn.nukkit.network.BatchingHelper;
+import cn.nukkit.network.LoginVerifier;
 import cn.nukkit.network.Network;
 import cn.nukkit.network.RakNetInterface;
 import cn.nukkit.network.SourceInterface;
@@ -84,6 +86,7 @@ import cn.nukkit.utils.*;
 import cn.nukkit.utils.bugreport.ExceptionHandler;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.JsonParser;
 import io.netty.buffer.ByteBuf;
 import io.sentry.Sentry;
@@ -106,10 +109,7 @@ import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
@@ -252,6 +252,10 @@ public class Server {
     private PlayerDataSerializer playerDataSerializer;
     private SpawnerTask spawnerTask;
     private final BatchingHelper batchingHelper;
+    private final LoginVerifier loginVerifier;
+    private ExecutorService levelTickExecutor;
+    private final Queue<Runnable> crossLevelTasks = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Level> TICKING_LEVEL = new ThreadLocal<>();
 
     /**
      * The server's MOTD. Remember to call network.setName() when updated.
@@ -357,10 +361,52 @@ public class Server {
      * After how many ticks mobs are despawned.
      */
     public int mobDespawnTicks;
+    /**
+     * Distance in blocks to the nearest player within which monsters are ticked every tick. 0 = always.
+     * Monsters further away do not move, the default matches the 80 block range mobs were always limited to.
+     */
+    public int monsterActivationRange;
+    /**
+     * Distance in blocks to the nearest player within which animals are ticked every tick. 0 = always.
+     */
+    public int animalActivationRange;
+    /**
+     * Distance in blocks to the nearest player within which items and experience orbs are ticked every tick. 0 = always.
+     */
+    public int itemActivationRange;
+    /**
+     * Distance in blocks to the nearest player within which projectiles are ticked every tick. 0 = always.
+     */
+    public int projectileActivationRange;
+    /**
+     * Distance in blocks to the nearest player within which boats and minecarts are ticked every tick. 0 = always.
+     */
+    public int vehicleActivationRange;
+    /**
+     * Entities outside their activation range are ticked once per this many ticks. 1 = every tick.
+     */
+    public int inactiveEntityTickInterval;
+    /**
+     * Ticks between the passes merging dropped items and experience orbs. 0 = disabled.
+     */
+    public int entityMergeInterval;
+    /**
+     * Distance in blocks within which dropped items are merged.
+     */
+    public int itemMergeRadius;
+    /**
+     * Distance in blocks within which experience orbs are merged.
+     */
+    public int xpOrbMergeRadius;
     /**
      * How many chunks are sent to player per tick.
      */
     public int chunksPerTick;
+    /**
+     * Adapt the number of chunks sent per tick to each client, chunksPerTick is the lowest rate.
+     * Disabled by default, the round trip is measured with NetworkStackLatencyPacket which is also used by plugins.
+     */
+    public boolean adaptiveChunkSending;
     /**
      * How many chunks needs to be sent before the player can spawn.
      */
@@ -409,6 +455,11 @@ public class Server {
      * Explosions breaking blocks enabled.
      */
     public boolean explosionBreakBlocks;
+    /**
+     * Explosions per level computed in one tick, later explosions wait for the next tick and fire their events,
+     * damage entities and break blocks one tick late. 0 = unlimited.
+     */
+    public int explosionBudgetPerTick;
     /**
      * Boss bars enabled for wither and ender dragon.
      */
@@ -485,6 +536,22 @@ public class Server {
      * Asynchronous chunk sending (Experiment)
      */
     public boolean asyncChunkSending;
+    /**
+     * Send chunks as blob hashes to clients supporting the blob cache
+     */
+    public boolean clientChunkCache;
+    /**
+     * Blobs of chunks sent to clients using the blob cache
+     */
+    private ChunkBlobStore chunkBlobStore;
+    /**
+     * Let clients request the sub chunks they need instead of sending whole chunks
+     */
+    public boolean subChunkRequests;
+    /**
+     * Lowest protocol using sub chunk requests, v1.18.10 and above are supported
+     */
+    public int subChunkRequestsMinProtocol;
     /**
      * Show a console message when a plugin uses deprecated API methods
      */
@@ -551,6 +618,29 @@ public class Server {
      * Temporary disable world saving to allow safe backup of leveldb worlds.
      */
     public boolean holdWorldSave;
+    /**
+     * Number of threads used to encode and compress outbound packets. 0 = automatic.
+     * Only read at startup, changes need a restart to take effect.
+     */
+    public int batchingThreads;
+    /**
+     * Number of threads used to decode and verify login packets. 0 = automatic.
+     */
+    public int loginVerificationThreads;
+    /**
+     * Number of logins which may wait for verification, further logins are rejected.
+     */
+    public int loginVerificationQueue;
+    /**
+     * Tick levels concurrently on a worker pool.
+     * Level ticks then run on the worker threads, so plugin event listeners called from them (entity, block and
+     * other level events) are called from worker threads as well and must be thread safe.
+     */
+    public boolean parallelLevelTicking;
+    /**
+     * Number of threads used for parallel level ticking. 0 = automatic.
+     */
+    public int levelTickThreads;
 
     Server(final String filePath, String dataPath, String pluginPath, boolean loadPlugins, boolean debug) {
         Preconditions.checkState(instance == null, "Already initialized!");
@@ -626,7 +716,8 @@ public class Server {
 
         this.scheduler = new ServerScheduler();
 
-        this.batchingHelper = new BatchingHelper();
+        this.batchingHelper = new BatchingHelper(this.batchingThreads > 0 ? this.batchingThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        this.loginVerifier = new LoginVerifier(this.loginVerificationThreads > 0 ? this.loginVerificationThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 4), this.loginVerificationQueue);
 
         if (this.getPropertyBoolean("enable-rcon", false)) {
             try {
@@ -940,15 +1031,23 @@ public class Server {
 
 
     public static void broadcastPacket(Collection<Player> players, DataPacket packet) {
-        for (Player player : players) {
-            player.dataPacket(packet);
-        }
+        broadcastPacket(players.toArray(Player.EMPTY_ARRAY), packet);
     }
 
     public static void broadcastPacket(Player[] players, DataPacket packet) {
-        for (Player player : players) {
-            player.dataPacket(packet);
+        Level tickingLevel = TICKING_LEVEL.get();
+        if (tickingLevel != null) {
+            for (Player player : players) {
+                if (player.getLevel() != tickingLevel) {
+                    // Recipients in other levels may be ticked concurrently, send after the level tick barrier
+                    DataPacket copy = packet.clone();
+                    instance.crossLevelTasks.offer(() -> broadcastPacket(players, copy));
+                    return;
+                }
+            }
         }
+
+        instance.batchingHelper.broadcastPacket(players, packet);
     }
 
     public static void broadcastPackets(Player[] players, DataPacket[] packets) {
@@ -963,6 +1062,14 @@ public class Server {
         this.batchingHelper.batchPackets(players, packets);
     }
 
+    public BatchingHelper getBatchingHelper() {
+        return this.batchingHelper;
+    }
+
+    public LoginVerifier getLoginVerifier() {
+        return this.loginVerifier;
+    }
+
     @Deprecated
     public void batchPackets(Player[] players, DataPacket[] packets, boolean forceSync) {
         this.batchingHelper.batchPackets(players, packets);
@@ -1107,6 +1214,14 @@ public class Server {
             this.getLogger().debug("Closing BatchingHelper...");
             this.batchingHelper.shutdown();
 
+            this.getLogger().debug("Closing login verifier...");
+            this.loginVerifier.shutdown();
+
+            if (this.levelTickExecutor != null) {
+                this.getLogger().debug("Closing level tick executor...");
+                this.levelTickExecutor.shutdownNow();
+            }
+
             this.getLogger().debug("Stopping network interfaces...");
             for (SourceInterface interfaz : this.network.getInterfaces()) {
                 interfaz.shutdown();
@@ -1396,48 +1511,164 @@ public class Server {
         }
 
         // Do level ticks
+        if (this.parallelLevelTicking && this.levelArray.length > 1) {
+            this.tickLevelsParallel(currentTick);
+        } else {
+            for (Level level : this.levelArray) {
+                if (!this.shouldTickLevel(level)) {
+                    continue;
+                }
+
+                int tickMs = this.tickLevel(level, currentTick);
+                if (tickMs >= 0) {
+                    this.updateLevelTickRate(level, tickMs);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tick all levels concurrently on the level tick executor and wait for all of them to finish.
+     * Tick rate adjustments and queued cross level tasks are processed on the main thread afterwards.
+     *
+     * @param currentTick current server tick
+     */
+    private void tickLevelsParallel(int currentTick) {
+        if (this.levelTickExecutor == null) {
+            int threads = this.levelTickThreads > 0 ? this.levelTickThreads : Math.max(1, Math.min(this.levelArray.length, Runtime.getRuntime().availableProcessors() - 1));
+            this.levelTickExecutor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Level Tick Executor #%d").setDaemon(true).build());
+        }
+
+        List<Level> toTick = new ArrayList<>(this.levelArray.length);
         for (Level level : this.levelArray) {
-            if (level.isBeingConverted || (level.getTickRate() > this.baseTickRate && --level.tickRateCounter > 0)) {
-                continue;
+            if (this.shouldTickLevel(level)) {
+                toTick.add(level);
+            }
+        }
+
+        int[] tickTimes = new int[toTick.size()];
+        CompletableFuture<?>[] futures = new CompletableFuture[toTick.size()];
+        for (int i = 0; i < futures.length; i++) {
+            Level level = toTick.get(i);
+            int index = i;
+            futures[i] = CompletableFuture.runAsync(() -> {
+                TICKING_LEVEL.set(level);
+                try {
+                    tickTimes[index] = this.tickLevel(level, currentTick);
+                } finally {
+                    TICKING_LEVEL.remove();
+                }
+            }, this.levelTickExecutor);
+        }
+
+        // Barrier: all levels must be done before the network is processed
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            log.error("Error while ticking levels in parallel", e);
+        }
+
+        for (int i = 0; i < tickTimes.length; i++) {
+            if (tickTimes[i] >= 0) {
+                this.updateLevelTickRate(toTick.get(i), tickTimes[i]);
             }
+        }
 
+        Runnable task;
+        while ((task = this.crossLevelTasks.poll()) != null) {
             try {
-                long levelTime = System.currentTimeMillis();
-                level.providerLock.readLock().lock();
-                if (level.getProvider() == null) {//世界在其他线程上卸载
-                    continue;
+                task.run();
+            } catch (Exception e) {
+                log.error("Error while running cross level task", e);
+            }
+        }
+    }
+
+    private boolean shouldTickLevel(Level level) {
+        return !level.isBeingConverted && (level.getTickRate() <= this.baseTickRate || --level.tickRateCounter <= 0);
+    }
+
+    /**
+     * Tick a single level
+     *
+     * @param level level
+     * @param currentTick current server tick
+     * @return time the tick took in milliseconds or -1 if the level was not ticked
+     */
+    private int tickLevel(Level level, int currentTick) {
+        try {
+            long levelTime = System.currentTimeMillis();
+            level.providerLock.readLock().lock();
+            if (level.getProvider() == null) {//世界在其他线程上卸载
+                return -1;
+            }
+            level.doTick(currentTick);
+            int tickMs = (int) (System.currentTimeMillis() - levelTime);
+            level.tickRateTime = tickMs;
+            return tickMs;
+        } catch (Exception e) {
+            log.error(this.baseLang.translateString("nukkit.level.tickError", new String[]{level.getFolderName(), Utils.getExceptionMessage(e)}));
+            return -1;
+        } finally {
+            level.providerLock.readLock().unlock();
+        }
+    }
+
+    private void updateLevelTickRate(Level level, int tickMs) {
+        if (this.autoTickRate) {
+            if (tickMs < 50 && level.getTickRate() > this.baseTickRate) {
+                int r;
+                level.setTickRate(r = level.getTickRate() - 1);
+                if (r > this.baseTickRate) {
+                    level.tickRateCounter = level.getTickRate();
                 }
-                level.doTick(currentTick);
-                int tickMs = (int) (System.currentTimeMillis() - levelTime);
-                level.tickRateTime = tickMs;
-
-                if (this.autoTickRate) {
-                    if (tickMs < 50 && level.getTickRate() > this.baseTickRate) {
-                        int r;
-                        level.setTickRate(r = level.getTickRate() - 1);
-                        if (r > this.baseTickRate) {
-                            level.tickRateCounter = level.getTickRate();
-                        }
-                        this.getLogger().debug("Raising level \"" + level.getName() + "\" tick rate to " + level.getTickRate() + " ticks");
-                    } else if (tickMs >= 50) {
-                        if (level.getTickRate() == this.baseTickRate) {
-                            level.setTickRate(Math.max(this.baseTickRate + 1, Math.min(this.autoTickRateLimit, tickMs / 50)));
-                            this.getLogger().debug("Level \"" + level.getName() + "\" took " + tickMs + "ms, setting tick rate to " + level.getTickRate() + " ticks");
-                        } else if ((tickMs / level.getTickRate()) >= 50 && level.getTickRate() < this.autoTickRateLimit) {
-                            level.setTickRate(level.getTickRate() + 1);
-                            this.getLogger().debug("Level \"" + level.getName() + "\" took " + tickMs + "ms, setting tick rate to " + level.getTickRate() + " ticks");
-                        }
-                        level.tickRateCounter = level.getTickRate();
-                    }
+                this.getLogger().debug("Raising level \"" + level.getName() + "\" tick rate to " + level.getTickRate() + " ticks");
+            } else if (tickMs >= 50) {
+                if (level.getTickRate() == this.baseTickRate) {
+                    level.setTickRate(Math.max(this.baseTickRate + 1, Math.min(this.autoTickRateLimit, tickMs / 50)));
+                    this.getLogger().debug("Level \"" + level.getName() + "\" took " + tickMs + "ms, setting tick rate to " + level.getTickRate() + " ticks");
+                } else if ((tickMs / level.getTickRate()) >= 50 && level.getTickRate() < this.autoTickRateLimit) {
+                    level.setTickRate(level.getTickRate() + 1);
+                    this.getLogger().debug("Level \"" + level.getName() + "\" took " + tickMs + "ms, setting tick rate to " + level.getTickRate() + " ticks");
                 }
-            } catch (Exception e) {
-                log.error(this.baseLang.translateString("nukkit.level.tickError", new String[]{level.getFolderName(), Utils.getExceptionMessage(e)}));
-            } finally {
-                level.providerLock.readLock().unlock();
+                level.tickRateCounter = level.getTickRate();
             }
         }
     }
 
+    /**
+     * Get the level that is being ticked by the current thread when parallel level ticking is enabled
+     *
+     * @return level or null if the current thread is not a level tick thread
+     */
+    public static Level getTickingLevel() {
+        return TICKING_LEVEL.get();
+    }
+
+    /**
+     * Check whether the current thread is ticking a level in parallel with other levels
+     *
+     * @return is level tick thread
+     */
+    public boolean isLevelTickThread() {
+        return TICKING_LEVEL.get() != null;
+    }
+
+    /**
+     * Run a task that touches more than one level.
+     * When called from a parallel level tick thread, the task is queued and run on the main thread
+     * after all levels have finished ticking. Otherwise, the task is run immediately.
+     *
+     * @param task task
+     */
+    public void executeCrossLevel(Runnable task) {
+        if (TICKING_LEVEL.get() != null) {
+            this.crossLevelTasks.offer(task);
+        } else {
+            task.run();
+        }
+    }
+
     public void doAutoSave() {
         if (this.autoSave) {
             for (Player player : new ArrayList<>(this.players.values())) {
@@ -1485,10 +1716,16 @@ public class Server {
 
         this.checkTickUpdates(this.tickCounter);
 
-        for (Player player : new ArrayList<>(this.players.values())) {
+        Player[] onlinePlayers = this.players.values().toArray(Player.EMPTY_ARRAY);
+        for (Player player : onlinePlayers) {
             player.checkNetwork();
         }
 
+        // Send everything queued during this tick as one batch per player
+        for (Player player : onlinePlayers) {
+            player.flushPackets();
+        }
+
         if ((this.tickCounter & 0b1111) == 0) {
             this.titleTick();
 
@@ -1791,6 +2028,15 @@ public class Server {
         return scheduler;
     }
 
+    /**
+     * Get the blobs of chunks sent to clients using the blob cache
+     *
+     * @return chunk blob store
+     */
+    public ChunkBlobStore getChunkBlobStore() {
+        return chunkBlobStore;
+    }
+
     /**
      * Get current tick
      *
@@ -3075,6 +3321,9 @@ public class Server {
         this.autoTickRate = this.getPropertyBoolean("auto-tick-rate", true);
         this.autoTickRateLimit = this.getPropertyInt("auto-tick-rate-limit", 20);
         this.alwaysTickPlayers = this.getPropertyBoolean("always-tick-players", false);
+        // Plugin events of level ticks are called from the worker threads when enabled
+        this.parallelLevelTicking = this.getPropertyBoolean("parallel-level-ticking", false);
+        this.levelTickThreads = Math.max(0, this.getPropertyInt("level-tick-threads", 0));
         this.baseTickRate = this.getPropertyInt("base-tick-rate", 1);
         this.callDataPkSendEv = this.getPropertyBoolean("call-data-pk-send-event", true);
         this.callBatchPkEv = this.getPropertyBoolean("call-batch-pk-send-event", true);
@@ -3104,6 +3353,7 @@ public class Server {
         this.shouldSavePlayerData = this.getPropertyBoolean("save-player-data", true);
         this.mobsFromBlocks = this.getPropertyBoolean("block-listener", true);
         this.explosionBreakBlocks = this.getPropertyBoolean("explosion-break-blocks", true);
+        this.explosionBudgetPerTick = Math.max(0, this.getPropertyInt("explosion-budget-per-tick", 64));
         this.vanillaBossBar = this.getPropertyBoolean("vanilla-bossbars", false);
         this.stopInGame = this.getPropertyBoolean("stop-in-game", false);
         this.opInGame = this.getPropertyBoolean("op-in-game", false);
@@ -3121,6 +3371,15 @@ public class Server {
         this.motd = this.getPropertyString("motd", "Minecraft Server");
         this.viewDistance = Math.max(1, this.getPropertyInt("view-distance", 8));
         this.mobDespawnTicks = this.getPropertyInt("ticks-per-entity-despawns", 12000);
+        this.monsterActivationRange = Math.max(0, this.getPropertyInt("entity-activation-range-monsters", 80));
+        this.animalActivationRange = Math.max(0, this.getPropertyInt("entity-activation-range-animals", 80));
+        this.itemActivationRange = Math.max(0, this.getPropertyInt("entity-activation-range-items", 0));
+        this.projectileActivationRange = Math.max(0, this.getPropertyInt("entity-activation-range-projectiles", 0));
+        this.vehicleActivationRange = Math.max(0, this.getPropertyInt("entity-activation-range-vehicles", 0));
+        this.inactiveEntityTickInterval = Math.max(1, this.getPropertyInt("entity-inactive-tick-interval", 20));
+        this.entityMergeInterval = Math.max(0, this.getPropertyInt("entity-merge-interval", 10));
+        this.itemMergeRadius = Math.max(0, this.getPropertyInt("item-merge-radius", 1));
+        this.xpOrbMergeRadius = Math.max(0, this.getPropertyInt("xp-orb-merge-radius", 3));
         this.port = this.getPropertyInt("server-port", 19132);
         this.ip = this.getPropertyString("server-ip", "0.0.0.0");
         this.skinChangeCooldown = this.getPropertyInt("skin-change-cooldown", 30);
@@ -3133,6 +3392,7 @@ public class Server {
         this.doNotLimitSkinGeometry = this.getPropertyBoolean("do-not-limit-skin-geometry", true);
         this.anvilsEnabled = this.getPropertyBoolean("anvils-enabled", true);
         this.chunksPerTick = this.getPropertyInt("chunk-sending-per-tick", 4);
+        this.adaptiveChunkSending = this.getPropertyBoolean("chunk-sending-adaptive", false);
         this.spawnThreshold = this.getPropertyInt("spawn-threshold", 56);
         this.savePlayerDataByUuid = this.getPropertyBoolean("save-player-data-by-uuid", true);
         this.vanillaPortals = this.getPropertyBoolean("vanilla-portals", true);
@@ -3145,6 +3405,10 @@ public class Server {
         this.whitelistReason = this.getPropertyString("whitelist-reason", "§cServer is white-listed").replace("§n", "\n");
         this.enableExperimentMode = this.getPropertyBoolean("enable-experiment-mode", true);
         this.asyncChunkSending = this.getPropertyBoolean("async-chunks", true);
+        this.clientChunkCache = this.getPropertyBoolean("client-chunk-cache", false);
+        this.subChunkRequests = this.getPropertyBoolean("sub-chunk-requests", false);
+        this.subChunkRequestsMinProtocol = this.getPropertyInt("sub-chunk-requests-min-protocol", ProtocolInfo.v1_18_10);
+        this.chunkBlobStore = new ChunkBlobStore(Math.max(1, this.getPropertyInt("client-chunk-cache-size-mb", 64)) * 1024L * 1024L);
         this.deprecatedVerbose = this.getPropertyBoolean("deprecated-verbose", true);
         switch (this.getPropertyString("server-authoritative-movement")) {
             case "client-auth" -> this.serverAuthoritativeMovementMode = 0;
@@ -3179,6 +3443,10 @@ public class Server {
         this.useNativeLevelDB = this.getPropertyBoolean("use-native-leveldb", false);
         this.enableRawOres = this.getPropertyBoolean("enable-raw-ores", true);
         this.rakPacketLimit = this.getPropertyInt("rak-packet-limit", RakConstants.DEFAULT_PACKET_LIMIT);
+        // Startup only, the batching executors are created once and not replaced on reload
+        this.batchingThreads = Math.max(0, this.getPropertyInt("batching-threads", 0));
+        this.loginVerificationThreads = Math.max(0, this.getPropertyInt("login-verification-threads", 0));
+        this.loginVerificationQueue = Math.max(1, this.getPropertyInt("login-verification-queue", 256));
     }
 
     /**
@@ -3239,6 +3507,7 @@ public class Server {
             put("encryption", true);
             put("bed-spawnpoints", true);
             put("explosion-break-blocks", true);
+            put("explosion-budget-per-tick", 64);
             put("stop-in-game", false);
             put("op-in-game", true);
             put("xp-bottles-on-creative", true);
@@ -3260,23 +3529,40 @@ public class Server {
             put("compression-threshold", "256");
             put("use-snappy-compression", false);
             put("rak-packet-limit", RakConstants.DEFAULT_PACKET_LIMIT);
+            put("batching-threads", 0);
+            put("login-verification-threads", 0);
+            put("login-verification-queue", 256);
             put("timeout-milliseconds", 25000);
 
             put("auto-tick-rate", true);
             put("auto-tick-rate-limit", 20);
             put("base-tick-rate", 1);
             put("always-tick-players", false);
+            put("parallel-level-ticking", false);
+            put("level-tick-threads", 0);
             put("light-updates", false);
             put("clear-chunk-tick-list", true);
             put("spawn-threshold", 56);
             put("chunk-sending-per-tick", 4);
+            put("chunk-sending-adaptive", false);
             put("chunk-ticking-per-tick", 40);
             put("chunk-ticking-radius", 3);
             put("chunk-generation-queue-size", 8);
             put("chunk-generation-population-queue-size", 8);
+            put("chunk-loading-queue-size", 32);
+            put("pathfinding-nodes-per-tick", 2048);
             put("ticks-per-autosave", 6000);
             put("ticks-per-entity-spawns", 200);
             put("ticks-per-entity-despawns", 12000);
+            put("entity-activation-range-monsters", 80);
+            put("entity-activation-range-animals", 80);
+            put("entity-activation-range-items", 0);
+            put("entity-activation-range-projectiles", 0);
+            put("entity-activation-range-vehicles", 0);
+            put("entity-inactive-tick-interval", 20);
+            put("entity-merge-interval", 10);
+            put("item-merge-radius", 1);
+            put("xp-orb-merge-radius", 3);
             put("thread-watchdog", true);
             put("thread-watchdog-tick", 60000);
 
@@ -3314,6 +3600,10 @@ public class Server {
             put("bstats-metrics", true);
             put("cache-chunks", false);
             put("async-chunks", true);
+            put("client-chunk-cache", false);
+            put("client-chunk-cache-size-mb", 64);
+            put("sub-chunk-requests", false);
+            put("sub-chunk-requests-min-protocol", ProtocolInfo.v1_18_10);
             put("deprecated-verbose", true);
             put("server-authoritative-movement", "server-auth");
             put("server-authoritative-block-breaking", true);
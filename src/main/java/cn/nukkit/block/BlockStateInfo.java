@@ -0,0 +1,280 @@
+package cn.nukkit.block;
+
+import cn.nukkit.level.Level;
+import cn.nukkit.math.AxisAlignedBB;
+import cn.nukkit.math.SimpleAxisAlignedBB;
+
+/**
+ * Read only properties of a block state, shared by all blocks with the same full id.
+ * <p>
+ * Code which only looks at blocks can use these instead of {@link Block#get(int, int)}, which clones a block instance
+ * on every call. Properties which depend on the surroundings of a block, like neighbour connections or block entities,
+ * can not be shared. The methods taking a level and coordinates create the block for such states.
+ */
+public final class BlockStateInfo {
+
+    /**
+     * Position the shape of a block is compared at, shapes which move differently depend on more than the state
+     */
+    private static final int PROBE_X = 37;
+    private static final int PROBE_Y = 5;
+    private static final int PROBE_Z = -11;
+
+    private static final BlockStateInfo UNKNOWN = new BlockStateInfo();
+
+    /**
+     * States by full block id, created when first requested
+     */
+    private static BlockStateInfo[] states;
+
+    private final int fullId;
+    private final Block prototype;
+    private final boolean contextual;
+    private final boolean solid;
+    private final boolean transparent;
+    private final boolean passThrough;
+    private final int lightLevel;
+    private final double hardness;
+    private final double resistance;
+
+    private final boolean hasBoundingBox;
+    private final double minX;
+    private final double minY;
+    private final double minZ;
+    private final double maxX;
+    private final double maxY;
+    private final double maxZ;
+
+    private BlockStateInfo() {
+        this.fullId = -1;
+        this.prototype = null;
+        this.contextual = true;
+        this.solid = true;
+        this.transparent = false;
+        this.passThrough = false;
+        this.lightLevel = 0;
+        this.hardness = 0;
+        this.resistance = 0;
+        this.hasBoundingBox = true;
+        this.minX = this.minY = this.minZ = 0;
+        this.maxX = this.maxY = this.maxZ = 1;
+    }
+
+    private BlockStateInfo(int fullId, Block prototype) {
+        this.fullId = fullId;
+        this.prototype = prototype;
+        this.solid = prototype.isSolid();
+        this.transparent = prototype.isTransparent();
+        this.lightLevel = prototype.getLightLevel();
+        this.hardness = prototype.getHardness();
+        this.resistance = prototype.getResistance();
+
+        boolean contextual = isContextual(prototype);
+        boolean passThrough = false;
+        AxisAlignedBB bb = null;
+        double minX = 0, minY = 0, minZ = 0, maxX = 0, maxY = 0, maxZ = 0;
+        if (!contextual) {
+            try {
+                Block block = prototype.clone();
+                block.level = null;
+                block.x = block.y = block.z = 0;
+                passThrough = block.canPassThrough();
+                bb = block.getBoundingBox();
+                if (bb != null) {
+                    minX = bb.getMinX();
+                    minY = bb.getMinY();
+                    minZ = bb.getMinZ();
+                    maxX = bb.getMaxX();
+                    maxY = bb.getMaxY();
+                    maxZ = bb.getMaxZ();
+                }
+
+                Block moved = prototype.clone();
+                moved.level = null;
+                moved.x = PROBE_X;
+                moved.y = PROBE_Y;
+                moved.z = PROBE_Z;
+                AxisAlignedBB movedBB = moved.getBoundingBox();
+                if (bb == null) {
+                    contextual = movedBB != null;
+                } else {
+                    contextual = movedBB == null
+                            || differs(movedBB.getMinX() - PROBE_X, minX) || differs(movedBB.getMinY() - PROBE_Y, minY) || differs(movedBB.getMinZ() - PROBE_Z, minZ)
+                            || differs(movedBB.getMaxX() - PROBE_X, maxX) || differs(movedBB.getMaxY() - PROBE_Y, maxY) || differs(movedBB.getMaxZ() - PROBE_Z, maxZ);
+                }
+            } catch (Exception e) {
+                contextual = true;
+            }
+        }
+
+        this.contextual = contextual;
+        this.passThrough = passThrough;
+        this.hasBoundingBox = bb != null;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    private static boolean differs(double a, double b) {
+        return Math.abs(a - b) > 1e-9;
+    }
+
+    /**
+     * Blocks whose shape or collision depends on their neighbours, their block entity or a custom collision check
+     */
+    private static boolean isContextual(Block block) {
+        if (block instanceof BlockFence || block instanceof BlockThin || block instanceof BlockWall || block instanceof BlockEndGateway) {
+            return true;
+        }
+        try {
+            return block.getClass().getMethod("collidesWithBB", AxisAlignedBB.class).getDeclaringClass() != Block.class
+                    || block.getClass().getMethod("collidesWithBB", AxisAlignedBB.class, boolean.class).getDeclaringClass() != Block.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Get the shared state of a full block id
+     *
+     * @param fullId block id shifted by {@link Block#DATA_BITS} combined with the block data
+     * @return state, or a contextual unknown state for ids without a registered block like custom blocks
+     */
+    public static BlockStateInfo get(int fullId) {
+        BlockStateInfo[] states = BlockStateInfo.states;
+        if (states == null) {
+            BlockStateInfo.states = states = new BlockStateInfo[Block.fullList.length];
+        }
+        if (fullId < 0 || fullId >= states.length) {
+            return UNKNOWN;
+        }
+
+        BlockStateInfo state = states[fullId];
+        if (state == null) {
+            Block prototype = Block.fullList[fullId];
+            if (prototype == null) {
+                return UNKNOWN;
+            }
+            states[fullId] = state = new BlockStateInfo(fullId, prototype);
+        }
+        return state;
+    }
+
+    public static BlockStateInfo get(int id, int data) {
+        if (data < 0 || data >= Block.DATA_SIZE) {
+            return UNKNOWN;
+        }
+        return get((id << Block.DATA_BITS) | data);
+    }
+
+    public int getFullId() {
+        return this.fullId;
+    }
+
+    public int getId() {
+        return this.fullId == -1 ? -1 : this.fullId >> Block.DATA_BITS;
+    }
+
+    public int getData() {
+        return this.fullId == -1 ? 0 : this.fullId & Block.DATA_MASK;
+    }
+
+    public boolean isAir() {
+        return this.fullId != -1 && this.getId() == BlockID.AIR;
+    }
+
+    /**
+     * @return whether the shape or collision of the block depends on more than the state, the block has to be created to check them
+     */
+    public boolean isContextual() {
+        return this.contextual;
+    }
+
+    /**
+     * Check whether blocks of this state are instances of a block class
+     */
+    public boolean isInstance(Class<?> type) {
+        return this.prototype != null && type.isInstance(this.prototype);
+    }
+
+    public boolean isSolid() {
+        return this.solid;
+    }
+
+    public boolean isTransparent() {
+        return this.transparent;
+    }
+
+    public int getLightLevel() {
+        return this.lightLevel;
+    }
+
+    public int getLightFilter() {
+        return this.fullId == -1 ? 15 : Block.getBlockLightFilter(this.getId());
+    }
+
+    public double getHardness() {
+        return this.hardness;
+    }
+
+    /**
+     * Get the explosion resistance of the block at the given position
+     */
+    public double getResistance(Level level, int x, int y, int z) {
+        if (this.fullId == -1) {
+            return level.getBlock(x, y, z, false).getResistance();
+        }
+        return this.resistance;
+    }
+
+    /**
+     * Check whether the block at the given position can be moved through
+     */
+    public boolean canPassThrough(Level level, int x, int y, int z) {
+        if (this.contextual) {
+            return level.getBlock(x, y, z, false).canPassThrough();
+        }
+        return this.passThrough;
+    }
+
+    /**
+     * Check whether the block at the given position has a bounding box
+     */
+    public boolean hasBoundingBox(Level level, int x, int y, int z) {
+        if (this.contextual) {
+            return level.getBlock(x, y, z, false).getBoundingBox() != null;
+        }
+        return this.hasBoundingBox;
+    }
+
+    /**
+     * Check whether the bounding box of the block at the given position intersects with another box
+     */
+    public boolean collidesWithBB(Level level, int x, int y, int z, AxisAlignedBB bb) {
+        if (this.contextual) {
+            return level.getBlock(x, y, z, false).collidesWithBB(bb);
+        }
+        return this.hasBoundingBox
+                && bb.getMaxY() > y + this.minY && bb.getMinY() < y + this.maxY
+                && bb.getMaxX() > x + this.minX && bb.getMinX() < x + this.maxX
+                && bb.getMaxZ() > z + this.minZ && bb.getMinZ() < z + this.maxZ;
+    }
+
+    /**
+     * Get the bounding box of the block at the given position
+     *
+     * @return new box, null if the block has none
+     */
+    public AxisAlignedBB getBoundingBox(Level level, int x, int y, int z) {
+        if (this.contextual) {
+            return level.getBlock(x, y, z, false).getBoundingBox();
+        }
+        if (!this.hasBoundingBox) {
+            return null;
+        }
+        return new SimpleAxisAlignedBB(x + this.minX, y + this.minY, z + this.minZ, x + this.maxX, y + this.maxY, z + this.maxZ);
+    }
+}
@@ -7,12 +7,16 @@ import cn.nukkit.entity.BaseEntity;
 import cn.nukkit.entity.Entity;
 import cn.nukkit.entity.mob.EntityMob;
 import cn.nukkit.event.entity.CreatureSpawnEvent;
+import cn.nukkit.level.EntitySpatialIndex;
 import cn.nukkit.level.Position;
 import cn.nukkit.level.format.FullChunk;
 import cn.nukkit.nbt.tag.CompoundTag;
 import cn.nukkit.nbt.tag.ShortTag;
 import cn.nukkit.utils.Utils;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class BlockEntitySpawner extends BlockEntitySpawnable {
 
     private int entityId;
@@ -107,15 +111,15 @@ public class BlockEntitySpawner extends BlockEntitySpawnable {
         if (this.delay++ >= Utils.rand(this.minSpawnDelay, this.maxSpawnDelay)) {
             this.delay = 0;
 
+            EntitySpatialIndex index = this.level.getEntityIndex();
+            boolean playerInRange = index.getNearest(this.x, this.y, this.z, this.requiredPlayerRange, Player.class, null, (player, distance) -> !player.isSpectator()) != null;
+
             int nearbyEntities = 0;
-            boolean playerInRange = false;
-            for (Entity entity : this.level.getEntities()) {
-                if (!playerInRange && entity instanceof Player && !((Player) entity).isSpectator()) {
-                    if (entity.distanceSquared(this) <= this.requiredPlayerRange2) {
-                        playerInRange = true;
-                    }
-                } else if (entity instanceof BaseEntity) {
-                    if (entity.distanceSquared(this) <= this.requiredPlayerRange2) {
+            if (playerInRange) {
+                List<Entity> nearby = new ArrayList<>();
+                index.getEntitiesInRadius(this.x, this.y, this.z, this.requiredPlayerRange, null, nearby);
+                for (Entity entity : nearby) {
+                    if (entity instanceof BaseEntity) {
                         nearbyEntities++;
                     }
                 }
@@ -6,6 +6,7 @@ import cn.nukkit.command.CommandSender;
 import cn.nukkit.command.data.CommandParameter;
 import cn.nukkit.level.Level;
 import cn.nukkit.math.NukkitMath;
+import cn.nukkit.network.BatchingHelper;
 import cn.nukkit.network.Network;
 import cn.nukkit.utils.TextFormat;
 import com.sun.jna.platform.win32.COM.WbemcliUtil;
@@ -315,6 +316,19 @@ public class StatusCommand extends VanillaCommand {
             }
             // 网络信息
             try {
+                BatchingHelper batchingHelper = server.getBatchingHelper();
+                StringBuilder latency = new StringBuilder();
+                for (int i = 0; i < batchingHelper.getShardCount(); i++) {
+                    if (i > 0) {
+                        latency.append(", ");
+                    }
+                    latency.append(NukkitMath.round(batchingHelper.getShardLatency(i), 2)).append("ms");
+                }
+                sender.sendMessage(TextFormat.YELLOW + ">>> " + TextFormat.WHITE + "Packet Batching" + TextFormat.YELLOW + " <<<" + TextFormat.RESET);
+                sender.sendMessage(TextFormat.GOLD + "Queue depth: " + TextFormat.GREEN + batchingHelper.getQueueDepth());
+                sender.sendMessage(TextFormat.GOLD + "Shard latency: " + TextFormat.GREEN + latency);
+                sender.sendMessage("");
+
                 Network network = server.getNetwork();
                 if (network.getHardWareNetworkInterfaces() != null) {
                     sender.sendMessage(TextFormat.YELLOW + ">>> " + TextFormat.WHITE + "Network Info" + TextFormat.YELLOW + " <<<" + TextFormat.RESET);
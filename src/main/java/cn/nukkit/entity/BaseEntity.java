@@ -14,6 +14,8 @@ import cn.nukkit.event.entity.EntityDamageByEntityEvent;
 import cn.nukkit.event.entity.EntityDamageEvent;
 import cn.nukkit.inventory.PlayerInventory;
 import cn.nukkit.item.Item;
+import cn.nukkit.level.EntityActivation;
+import cn.nukkit.level.EntitySpatialIndex;
 import cn.nukkit.level.format.FullChunk;
 import cn.nukkit.level.particle.HeartParticle;
 import cn.nukkit.math.AxisAlignedBB;
@@ -84,6 +86,8 @@ public abstract class BaseEntity extends EntityCreature implements EntityAgeable
     private boolean movement = true;
     private boolean friendly = false;
 
+    private final EntitySpatialIndex.DistanceFilter<EntityCreature> targetFilter = this::isTargetCandidate;
+
     public Item[] armor;
 
     public BaseEntity(FullChunk chunk, CompoundTag nbt) {
@@ -196,6 +200,37 @@ public abstract class BaseEntity extends EntityCreature implements EntityAgeable
         this.namedTag.putShort("InLoveCooldown", this.inLoveCooldown);
     }
 
+    /**
+     * Get the distance within which creatures are searched for a new target.
+     * Must cover the largest distance accepted by {@link #targetOption(EntityCreature, double)}.
+     *
+     * @return search range in blocks
+     */
+    public double getTargetSearchRange() {
+        return 16;
+    }
+
+    /**
+     * Find the nearest creature this entity can target
+     *
+     * @return nearest target or null
+     */
+    protected EntityCreature findNearestTarget() {
+        return this.level.getEntityIndex().getNearest(this.x, this.y, this.z, this.getTargetSearchRange(), EntityCreature.class, this, this.targetFilter);
+    }
+
+    protected boolean isTargetCandidate(EntityCreature creature, double distance) {
+        if (creature.closed || !this.canTarget(creature)) {
+            return false;
+        }
+
+        if (creature instanceof BaseEntity baseEntity && baseEntity.isFriendly() == this.isFriendly()) {
+            return false;
+        }
+
+        return this.targetOption(creature, distance);
+    }
+
     public boolean targetOption(EntityCreature creature, double distance) {
         if (this instanceof EntityMob) {
             if (creature instanceof Player player) {
@@ -708,6 +743,11 @@ public abstract class BaseEntity extends EntityCreature implements EntityAgeable
     }
 
     protected boolean isInTickingRange() {
+        EntityActivation activation = this.level.getEntityActivation();
+        if (activation.hasRange(this)) {
+            return activation.isInRange(this);
+        }
+
         for (Player player : this.level.getPlayers().values()) {
             if (player.distanceSquared(this) < 6400) { // 80 blocks
                 return true;
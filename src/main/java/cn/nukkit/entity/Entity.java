@@ -47,6 +47,7 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static cn.nukkit.network.protocol.SetEntityLinkPacket.*;
@@ -341,7 +342,7 @@ public abstract class Entity extends Location implements Metadatable {
     public static final double STEP_CLIP_MULTIPLIER = 0.4;
     public static final int ENTITY_COORDINATES_MAX_VALUE = 2100000000;
 
-    public static long entityCount = 1;
+    public static final AtomicLong entityCount = new AtomicLong(1);
 
     private static final Map<String, Class<? extends Entity>> knownEntities = new HashMap<>();
     private static final Map<String, String> shortNames = new HashMap<>();
@@ -605,7 +606,7 @@ public abstract class Entity extends Location implements Metadatable {
 
         this.temporalVector = new Vector3();
 
-        this.id = entityCount++;
+        this.id = entityCount.getAndIncrement();
         this.justCreated = true;
         this.namedTag = nbt;
 
@@ -862,6 +863,10 @@ public abstract class Entity extends Location implements Metadatable {
             this.scale = scale;
             this.setDataProperty(new FloatEntityData(DATA_SCALE, this.scale));
             this.recalculateBoundingBox(true);
+            if (this.level != null) {
+                // The index has to cover the new bounding box
+                this.level.getEntityIndex().update(this);
+            }
         }
     }
 
@@ -1878,9 +1883,7 @@ public abstract class Entity extends Location implements Metadatable {
         pk.motionX = (float) motionX;
         pk.motionY = (float) motionY;
         pk.motionZ = (float) motionZ;
-        for (Player p : this.hasSpawned.values()) {
-            p.dataPacket(pk); // Server.broadcastPacket would only use batching for >= 1.16.100
-        }
+        Server.broadcastPacket(this.hasSpawned.values(), pk);
     }
 
     protected void broadcastMovement() {
@@ -2647,6 +2650,8 @@ public abstract class Entity extends Location implements Metadatable {
     }
 
     protected void checkChunks() {
+        this.level.getEntityIndex().update(this);
+
         int cx = (int) this.x >> 4;
         int cz = (int) this.z >> 4;
         if (this.chunk == null || (this.chunk.getX() != cx) || this.chunk.getZ() != cz) {
@@ -2794,6 +2799,12 @@ public abstract class Entity extends Location implements Metadatable {
     }
 
     public boolean teleport(Location location, PlayerTeleportEvent.TeleportCause cause) {
+        if (location.level != null && location.level != this.level && this.server.isLevelTickThread()) {
+            // The target level may be ticked concurrently, teleport after the level tick barrier
+            this.server.executeCrossLevel(() -> this.teleport(location, cause));
+            return true;
+        }
+
         Location from = this.getLocation();
         Location to = location;
         if (cause != null) {
@@ -6,7 +6,9 @@ import cn.nukkit.entity.passive.EntityLlama;
 import cn.nukkit.entity.passive.EntityPig;
 import cn.nukkit.entity.passive.EntitySkeletonHorse;
 import cn.nukkit.level.format.FullChunk;
+import cn.nukkit.level.pathfinding.Navigation;
 import cn.nukkit.level.particle.BubbleParticle;
+import cn.nukkit.math.BlockFace;
 import cn.nukkit.math.NukkitMath;
 import cn.nukkit.math.Vector2;
 import cn.nukkit.math.Vector3;
@@ -16,6 +18,8 @@ import org.apache.commons.math3.util.FastMath;
 
 public abstract class EntityWalking extends BaseEntity {
 
+    protected final Navigation navigation = new Navigation(this);
+
     public EntityWalking(FullChunk chunk, CompoundTag nbt) {
         super(chunk, nbt);
     }
@@ -31,23 +35,8 @@ public abstract class EntityWalking extends BaseEntity {
 
         Vector3 target = this.target;
         if (!(target instanceof EntityCreature) || (!((EntityCreature) target).closed && !this.targetOption((EntityCreature) target, this.distanceSquared(target))) || !((Entity) target).canBeFollowed()) {
-            double near = Integer.MAX_VALUE;
-
-            for (Entity entity : this.getLevel().getEntities()) {
-                if (entity == this || !(entity instanceof EntityCreature creature) || entity.closed || !this.canTarget(entity)) {
-                    continue;
-                }
-
-                if (creature instanceof BaseEntity baseEntity && baseEntity.isFriendly() == this.isFriendly() && !this.isInLove()) {
-                    continue;
-                }
-
-                double distance = this.distanceSquared(creature);
-                if (distance > near || !this.targetOption(creature, distance)) {
-                    continue;
-                }
-                near = distance;
-
+            EntityCreature creature = this.findNearestTarget();
+            if (creature != null) {
                 this.stayTime = 0;
                 this.moveTime = 0;
                 this.target = creature;
@@ -80,6 +69,20 @@ public abstract class EntityWalking extends BaseEntity {
         }
     }
 
+    @Override
+    protected boolean isTargetCandidate(EntityCreature creature, double distance) {
+        if (creature.closed || !this.canTarget(creature)) {
+            return false;
+        }
+
+        // Animals in love look for a partner of the same kind
+        if (creature instanceof BaseEntity baseEntity && baseEntity.isFriendly() == this.isFriendly() && !this.isInLove()) {
+            return false;
+        }
+
+        return this.targetOption(creature, distance);
+    }
+
     protected boolean checkJump(double dx, double dz) {
         if (this.motionY == this.getGravity() * 2) {
             return this.canSwimIn(level.getBlockIdAt(chunk, NukkitMath.floorDouble(this.x), (int) this.y, NukkitMath.floorDouble(this.z)));
@@ -96,22 +99,28 @@ public abstract class EntityWalking extends BaseEntity {
             return false;
         }
 
-        Block that = this.getLevel().getBlock(new Vector3(NukkitMath.floorDouble(this.x + dx), (int) this.y, NukkitMath.floorDouble(this.z + dz)));
+        int thatX = NukkitMath.floorDouble(this.x + dx);
+        int y = (int) this.y;
+        int thatZ = NukkitMath.floorDouble(this.z + dz);
         /*if (this.getDirection() == null) {
             return false;
         }*/
 
-        Block block = that.getSide(this.getHorizontalFacing());
-        Block down;
-        if (this.followTarget == null && this.passengers.isEmpty() && !(down = block.down()).isSolid() && !block.isSolid() && !down.down().isSolid()) {
+        BlockFace facing = this.getHorizontalFacing();
+        int x = thatX + facing.getXOffset();
+        int z = thatZ + facing.getZOffset();
+        BlockStateInfo block = this.level.getBlockStateInfo(x, y, z);
+        if (this.followTarget == null && this.passengers.isEmpty() && !block.isSolid() && !this.level.getBlockStateInfo(x, y - 1, z).isSolid() && !this.level.getBlockStateInfo(x, y - 2, z).isSolid()) {
             // "hack": try to make mobs not to be so suicidal
             this.stayTime = 10;
-        } else if (!block.canPassThrough() && !(block instanceof BlockFlowable || block.getId() == BlockID.SOUL_SAND) && block.up().canPassThrough() && that.up(2).canPassThrough()) {
-            if (block instanceof BlockFence || block instanceof BlockFenceGate) {
+        } else if (!block.canPassThrough(this.level, x, y, z) && !(block.isInstance(BlockFlowable.class) || block.getId() == BlockID.SOUL_SAND)
+                && this.level.getBlockStateInfo(x, y + 1, z).canPassThrough(this.level, x, y + 1, z)
+                && this.level.getBlockStateInfo(thatX, y + 2, thatZ).canPassThrough(this.level, thatX, y + 2, thatZ)) {
+            if (block.isInstance(BlockFence.class) || block.isInstance(BlockFenceGate.class)) {
                 this.motionY = this.getGravity();
             } else if (this.motionY <= this.getGravity() * 4) {
                 this.motionY = this.getGravity() * 4;
-            } else if (block instanceof BlockStairs) {
+            } else if (block.isInstance(BlockStairs.class)) {
                 this.motionY = this.getGravity() * 4;
             } else if (this.motionY <= (this.getGravity() * 8)) {
                 this.motionY = this.getGravity() * 8;
@@ -123,6 +132,15 @@ public abstract class EntityWalking extends BaseEntity {
         return false;
     }
 
+    @Override
+    public void close() {
+        // May be called from initEntity() while the entity is constructed, before the fields of this class are set
+        if (this.navigation != null) {
+            this.navigation.stop();
+        }
+        super.close();
+    }
+
     @Override
     public Vector3 updateMove(int tickDiff) {
         if (!this.isInTickingRange()) {
@@ -186,9 +204,13 @@ public abstract class EntityWalking extends BaseEntity {
 
                 Vector3 before = this.target;
                 this.checkTarget();
-                if (this.target instanceof EntityCreature || before != this.target) {
-                    double x = this.target.x - this.x;
-                    double z = this.target.z - this.z;
+                if (this.target != null && (this.target instanceof EntityCreature || before != this.target || this.navigation.isNavigating())) {
+                    Vector3 waypoint = this.navigation.getNextWaypoint(this.target);
+                    if (waypoint == null) {
+                        waypoint = this.target;
+                    }
+                    double x = waypoint.x - this.x;
+                    double z = waypoint.z - this.z;
 
                     double diff = Math.abs(x) + Math.abs(z);
                     boolean distance = false;
@@ -1,6 +1,5 @@
 package cn.nukkit.entity.item;
 
-import cn.nukkit.Server;
 import cn.nukkit.block.Block;
 import cn.nukkit.block.BlockLiquid;
 import cn.nukkit.entity.Entity;
@@ -9,13 +8,13 @@ import cn.nukkit.event.entity.EntityDamageEvent.DamageCause;
 import cn.nukkit.event.entity.ItemDespawnEvent;
 import cn.nukkit.event.entity.ItemSpawnEvent;
 import cn.nukkit.item.Item;
+import cn.nukkit.level.EntityActivation;
 import cn.nukkit.level.format.FullChunk;
 import cn.nukkit.nbt.NBTIO;
 import cn.nukkit.nbt.tag.CompoundTag;
 import cn.nukkit.nbt.tag.ListTag;
 import cn.nukkit.network.protocol.AddItemEntityPacket;
 import cn.nukkit.network.protocol.DataPacket;
-import cn.nukkit.network.protocol.EntityEventPacket;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -170,6 +169,7 @@ public class EntityItem extends Entity {
         }
 
         this.lastUpdate = currentTick;
+        int skippedTicks = this.level.getEntityActivation().takeSkippedTicks(this);
 
         if (!this.fireProof && this.isInsideOfFire()) {
             this.close();
@@ -209,75 +209,53 @@ public class EntityItem extends Entity {
                 }
             }
 
-            if (this.age % 200 == 0 && this.onGround && this.item != null) {
-                if (this.item.getCount() < this.item.getMaxStackSize()) {
-                    //if (e == null) {
-                    Entity[] e = this.getLevel().getNearbyEntities(getBoundingBox().grow(1, 1, 1), this, false);
-                    //}
-
-                    for (Entity entity : e) {
-                        if (entity instanceof EntityItem) {
-                            if (entity.closed || !entity.isAlive()) {
-                                continue;
-                            }
-                            Item closeItem = ((EntityItem) entity).item;
-                            if (!closeItem.equals(item, true, true)) {
-                                continue;
-                            }
-                            if (!entity.isOnGround()) {
-                                continue;
-                            }
-                            int newAmount = this.item.getCount() + closeItem.getCount();
-                            if (newAmount > this.item.getMaxStackSize()) {
-                                continue;
-                            }
-                            closeItem.setCount(0);
-                            entity.close();
-                            this.item.setCount(newAmount);
-                            EntityEventPacket packet = new EntityEventPacket();
-                            packet.eid = getId();
-                            packet.data = newAmount;
-                            packet.event = EntityEventPacket.MERGE_ITEMS;
-                            Server.broadcastPacket(this.getViewers().values(), packet);
-                        }
-                    }
-                }
-            }
-
-            this.updateLiquidMovement();
-
             if (this.checkObstruction(this.x, this.y, this.z)) {
                 hasUpdate = true;
             }
 
-            this.move(this.motionX, this.motionY, this.motionZ);
+            // Catch up on the movement of the ticks skipped while the item was inactive
+            int steps = Math.min(1 + skippedTicks, EntityActivation.MAX_CATCH_UP_TICKS);
+            for (int step = 0; step < steps; step++) {
+                if (step > 0 && this.onGround && Math.abs(this.motionX) <= 0.00001 && Math.abs(this.motionZ) <= 0.00001) {
+                    break;
+                }
+
+                this.updateLiquidMovement();
 
-            double friction = 1 - this.getDrag();
+                this.move(this.motionX, this.motionY, this.motionZ);
 
-            Block block = this.getLevel().getBlock(this.getFloorX(), (int) Math.floor(this.y - 1), this.getFloorZ());
-            if ((this.onGround || block instanceof BlockLiquid)
-                    && (Math.abs(this.motionX) > 0.00001 || Math.abs(this.motionZ) > 0.00001)) {
-                double frictionFactor;
-                if (block instanceof BlockLiquid) {
-                    frictionFactor = 0.8;
-                } else {
-                    frictionFactor = block.getFrictionFactor();
+                double friction = 1 - this.getDrag();
+
+                Block block = this.getLevel().getBlock(this.getFloorX(), (int) Math.floor(this.y - 1), this.getFloorZ());
+                if ((this.onGround || block instanceof BlockLiquid)
+                        && (Math.abs(this.motionX) > 0.00001 || Math.abs(this.motionZ) > 0.00001)) {
+                    double frictionFactor;
+                    if (block instanceof BlockLiquid) {
+                        frictionFactor = 0.8;
+                    } else {
+                        frictionFactor = block.getFrictionFactor();
+                    }
+                    friction *= frictionFactor;
                 }
-                friction *= frictionFactor;
-            }
 
-            this.motionX *= friction;
-            this.motionY *= 1 - this.getDrag();
-            this.motionZ *= friction;
+                this.motionX *= friction;
+                this.motionY *= 1 - this.getDrag();
+                this.motionZ *= friction;
 
-            if (this.onGround) {
-                this.motionY *= -0.5;
+                if (this.onGround) {
+                    this.motionY *= -0.5;
+                }
             }
 
             this.updateMovement();
         }
 
-        return hasUpdate || !this.onGround || Math.abs(this.motionX) > 0.00001 || Math.abs(this.motionY) > 0.00001 || Math.abs(this.motionZ) > 0.00001;
+        boolean moving = hasUpdate || !this.onGround || Math.abs(this.motionX) > 0.00001 || Math.abs(this.motionY) > 0.00001 || Math.abs(this.motionZ) > 0.00001;
+        if (moving && this.isAlive()) {
+            // Merged with its neighbours once it settled
+            this.level.getEntityMerger().addCandidate(this);
+        }
+        return moving;
     }
 
     private void updateLiquidMovement() {
@@ -2,8 +2,10 @@ package cn.nukkit.entity.item;
 
 import cn.nukkit.Player;
 import cn.nukkit.entity.Entity;
+import cn.nukkit.entity.data.IntEntityData;
 import cn.nukkit.event.entity.EntityDamageEvent;
 import cn.nukkit.event.entity.EntityDamageEvent.DamageCause;
+import cn.nukkit.level.EntityActivation;
 import cn.nukkit.level.format.FullChunk;
 import cn.nukkit.nbt.tag.CompoundTag;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
@@ -145,6 +147,7 @@ public class EntityXPOrb extends Entity {
             return true;
         }
         this.lastUpdate = currentTick;
+        int skippedTicks = this.level.getEntityActivation().takeSkippedTicks(this);
 
         if (this.age > 6000) {
             this.close();
@@ -169,14 +172,6 @@ public class EntityXPOrb extends Entity {
                 }
             }*/
 
-            if (!this.isOnGround()) {
-                this.motionY -= this.getGravity();
-            }
-
-            /*if (this.checkObstruction(this.x, this.y, this.z)) {
-                hasUpdate = true;
-            }*/
-
             if (this.closestPlayer == null || this.closestPlayer.distanceSquared(this) > 64.0D) {
                 for (Player p : this.getViewers().values()) {
                     if (p == this.closestPlayer) continue; // Current closestPlayer is null or too far away
@@ -191,41 +186,62 @@ public class EntityXPOrb extends Entity {
                 this.closestPlayer = null;
             }
 
-            if (this.closestPlayer != null) {
-                double dX = (this.closestPlayer.x - this.x) / 8.0D;
-                double dY = (this.closestPlayer.y + (double) this.closestPlayer.getEyeHeight() / 2.0D - this.y) / 8.0D;
-                double dZ = (this.closestPlayer.z - this.z) / 8.0D;
-                double d = Math.sqrt(dX * dX + dY * dY + dZ * dZ);
-                double diff = 1.0D - d;
-
-                if (diff > 0.0D) {
-                    diff = diff * diff;
-                    this.motionX += dX / d * diff * 0.1D;
-                    this.motionY += dY / d * diff * 0.1D;
-                    this.motionZ += dZ / d * diff * 0.1D;
+            // Catch up on the movement of the ticks skipped while the orb was inactive
+            int steps = Math.min(1 + skippedTicks, EntityActivation.MAX_CATCH_UP_TICKS);
+            for (int step = 0; step < steps; step++) {
+                if (step > 0 && this.onGround && Math.abs(this.motionX) <= 0.00001 && Math.abs(this.motionZ) <= 0.00001) {
+                    break;
+                }
+
+                if (!this.isOnGround()) {
+                    this.motionY -= this.getGravity();
                 }
-            }
 
-            this.move(this.motionX, this.motionY, this.motionZ);
+                /*if (this.checkObstruction(this.x, this.y, this.z)) {
+                    hasUpdate = true;
+                }*/
+
+                if (this.closestPlayer != null) {
+                    double dX = (this.closestPlayer.x - this.x) / 8.0D;
+                    double dY = (this.closestPlayer.y + (double) this.closestPlayer.getEyeHeight() / 2.0D - this.y) / 8.0D;
+                    double dZ = (this.closestPlayer.z - this.z) / 8.0D;
+                    double d = Math.sqrt(dX * dX + dY * dY + dZ * dZ);
+                    double diff = 1.0D - d;
+
+                    if (diff > 0.0D) {
+                        diff = diff * diff;
+                        this.motionX += dX / d * diff * 0.1D;
+                        this.motionY += dY / d * diff * 0.1D;
+                        this.motionZ += dZ / d * diff * 0.1D;
+                    }
+                }
 
-            double friction = 1d - this.getDrag();
+                this.move(this.motionX, this.motionY, this.motionZ);
 
-            if (this.onGround && (Math.abs(this.motionX) > 0.00001 || Math.abs(this.motionZ) > 0.00001)) {
-                friction = this.getLevel().getBlock(this.temporalVector.setComponents((int) Math.floor(this.x), (int) Math.floor(this.y - 1), (int) Math.floor(this.z) - 1)).getFrictionFactor() * friction;
-            }
+                double friction = 1d - this.getDrag();
 
-            this.motionX *= friction;
-            this.motionY *= 1 - this.getDrag();
-            this.motionZ *= friction;
+                if (this.onGround && (Math.abs(this.motionX) > 0.00001 || Math.abs(this.motionZ) > 0.00001)) {
+                    friction = this.getLevel().getBlock(this.temporalVector.setComponents((int) Math.floor(this.x), (int) Math.floor(this.y - 1), (int) Math.floor(this.z) - 1)).getFrictionFactor() * friction;
+                }
 
-            if (this.onGround) {
-                this.motionY *= -0.5;
+                this.motionX *= friction;
+                this.motionY *= 1 - this.getDrag();
+                this.motionZ *= friction;
+
+                if (this.onGround) {
+                    this.motionY *= -0.5;
+                }
             }
 
             this.updateMovement();
         }
 
-        return hasUpdate || !this.onGround || Math.abs(this.motionX) > 0.00001 || Math.abs(this.motionY) > 0.00001 || Math.abs(this.motionZ) > 0.00001;
+        boolean moving = hasUpdate || !this.onGround || Math.abs(this.motionX) > 0.00001 || Math.abs(this.motionY) > 0.00001 || Math.abs(this.motionZ) > 0.00001;
+        if (moving && this.isAlive()) {
+            // Merged with its neighbours once it settled
+            this.level.getEntityMerger().addCandidate(this);
+        }
+        return moving;
     }
 
     @Override
@@ -246,6 +262,7 @@ public class EntityXPOrb extends Entity {
             throw new IllegalArgumentException("XP amount must be greater than 0, got " + exp);
         }
         this.exp = exp;
+        this.setDataProperty(new IntEntityData(DATA_EXPERIENCE_VALUE, exp));
     }
 
     @Override
@@ -49,6 +49,11 @@ public class EntityBlaze extends EntityFlyingMob {
         this.fireProof = true;
     }
 
+    @Override
+    public double getTargetSearchRange() {
+        return 48;
+    }
+
     @Override
     public boolean targetOption(EntityCreature creature, double distance) {
         if (creature instanceof Player) {
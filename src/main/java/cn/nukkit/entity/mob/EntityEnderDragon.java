@@ -66,6 +66,11 @@ public class EntityEnderDragon extends EntityFlyingMob implements EntityBoss {
         return 0;
     }
 
+    @Override
+    public double getTargetSearchRange() {
+        return 29;
+    }
+
     @Override
     public boolean targetOption(EntityCreature creature, double distance) {
         if (creature instanceof Player) {
@@ -210,6 +210,11 @@ public class EntityEnderman extends EntityWalkingMob {
         }
     }
 
+    @Override
+    public double getTargetSearchRange() {
+        return 32;
+    }
+
     @Override
     public boolean targetOption(EntityCreature creature, double distance) {
         if (!isAngry()) {
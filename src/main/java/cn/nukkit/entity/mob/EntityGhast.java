@@ -61,6 +61,11 @@ public class EntityGhast extends EntityFlyingMob {
         this.setDataFlag(DATA_FLAGS, DATA_FLAG_FIRE_IMMUNE, true);
     }
 
+    @Override
+    public double getTargetSearchRange() {
+        return 64;
+    }
+
     @Override
     public boolean targetOption(EntityCreature creature, double distance) {
         if (creature instanceof Player player) {
@@ -50,6 +50,11 @@ public class EntityPhantom extends EntityFlyingMob implements EntitySmite {
         this.setDamage(new int[] { 0, 4, 6, 9 });
     }
 
+    @Override
+    public double getTargetSearchRange() {
+        return 32;
+    }
+
     @Override
     public boolean targetOption(EntityCreature creature, double distance) {
         if (creature instanceof Player player) {
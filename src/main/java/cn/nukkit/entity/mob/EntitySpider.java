@@ -1,7 +1,6 @@
 package cn.nukkit.entity.mob;
 
 import cn.nukkit.Player;
-import cn.nukkit.block.Block;
 import cn.nukkit.entity.Entity;
 import cn.nukkit.entity.EntityArthropod;
 import cn.nukkit.entity.EntityCreature;
@@ -10,8 +9,8 @@ import cn.nukkit.event.entity.EntityDamageEvent;
 import cn.nukkit.item.Item;
 import cn.nukkit.level.Level;
 import cn.nukkit.level.format.FullChunk;
+import cn.nukkit.math.BlockFace;
 import cn.nukkit.math.NukkitMath;
-import cn.nukkit.math.Vector3;
 import cn.nukkit.nbt.tag.CompoundTag;
 import cn.nukkit.potion.Effect;
 import cn.nukkit.utils.Utils;
@@ -71,9 +70,11 @@ public class EntitySpider extends EntityWalkingMob implements EntityArthropod {
         }
 
         try {
-            Block block = this.getLevel().getBlock(new Vector3(NukkitMath.floorDouble(this.x + dx), (int) this.y, NukkitMath.floorDouble(this.z + dz)));
-            Block directionBlock = block.getSide(this.getDirection());
-            if (!directionBlock.canPassThrough()) {
+            BlockFace direction = this.getDirection();
+            int x = NukkitMath.floorDouble(this.x + dx) + direction.getXOffset();
+            int y = (int) this.y + direction.getYOffset();
+            int z = NukkitMath.floorDouble(this.z + dz) + direction.getZOffset();
+            if (!this.level.getBlockStateInfo(x, y, z).canPassThrough(this.level, x, y, z)) {
                 this.motionY = this.getGravity() * 3;
                 return true;
             }
@@ -75,6 +75,11 @@ public class EntityWither extends EntityFlyingMob implements EntityBoss, EntityS
         }
     }
 
+    @Override
+    public double getTargetSearchRange() {
+        return 100;
+    }
+
     @Override
     public boolean targetOption(EntityCreature creature, double distance) {
         if (creature instanceof Player player) {
@@ -105,8 +105,10 @@ public class EntityZombiePigman extends EntityWalkingMob implements EntitySmite
         this.angry = val;
 
         if (others && val > 0) {
-            for (Entity creature : this.level.getEntities()) {
-                if (creature instanceof EntityZombiePigman entityZombiePigman && !entityZombiePigman.isAngry() && this.distanceSquared(creature) <= 400) { // 20 blocks
+            List<Entity> nearby = new ArrayList<>();
+            this.level.getEntityIndex().getEntitiesInRadius(this.x, this.y, this.z, 20, this, nearby);
+            for (Entity creature : nearby) {
+                if (creature instanceof EntityZombiePigman entityZombiePigman && !entityZombiePigman.isAngry()) {
                     entityZombiePigman.setAngry(val);
                 }
             }
@@ -0,0 +1,34 @@
+package cn.nukkit.event.entity;
+
+import cn.nukkit.entity.Entity;
+import cn.nukkit.event.Cancellable;
+import cn.nukkit.event.HandlerList;
+
+/**
+ * Called when a dropped item or an experience orb is merged into another one of the same kind.
+ * The entity of the event is removed, its items or experience are added to the target.
+ */
+public class EntityMergeEvent extends EntityEvent implements Cancellable {
+
+    private static final HandlerList handlers = new HandlerList();
+
+    public static HandlerList getHandlers() {
+        return handlers;
+    }
+
+    private final Entity target;
+
+    public EntityMergeEvent(Entity entity, Entity target) {
+        this.entity = entity;
+        this.target = target;
+    }
+
+    /**
+     * Get the entity the merged entity is added to
+     *
+     * @return entity which stays
+     */
+    public Entity getTarget() {
+        return this.target;
+    }
+}
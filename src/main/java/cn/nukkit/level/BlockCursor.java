@@ -0,0 +1,87 @@
+package cn.nukkit.level;
+
+import cn.nukkit.block.BlockID;
+import cn.nukkit.block.BlockStateInfo;
+import cn.nukkit.level.format.Chunk;
+import cn.nukkit.level.format.ChunkSection;
+import cn.nukkit.level.format.FullChunk;
+
+/**
+ * Reads the block states of a level through the chunk and section of the previous read, so walking over the blocks of
+ * a box only looks up a chunk when the walk enters it. Blocks of empty sections are returned as air without reading
+ * the section.
+ * <p>
+ * A cursor only caches, every read checks that the cached section belongs to the requested level and position.
+ * One cursor is kept per thread, see {@link #get()}, so the queries using it do not allocate.
+ */
+public final class BlockCursor {
+
+    private static final ThreadLocal<BlockCursor> CURSORS = ThreadLocal.withInitial(BlockCursor::new);
+
+    private static final BlockStateInfo AIR = BlockStateInfo.get(BlockID.AIR);
+
+    private Level level;
+    private FullChunk chunk;
+    private int chunkX;
+    private int chunkZ;
+    private ChunkSection section;
+    private int sectionY;
+
+    private BlockCursor() {
+    }
+
+    /**
+     * Get the cursor of the current thread
+     */
+    public static BlockCursor get() {
+        return CURSORS.get();
+    }
+
+    /**
+     * Get the state of the block at layer 0
+     *
+     * @return state, air for positions outside the world or in unloaded chunks
+     */
+    public BlockStateInfo getState(Level level, int x, int y, int z) {
+        if (!level.isYInRange(y)) {
+            return AIR;
+        }
+
+        int cx = x >> 4;
+        int cz = z >> 4;
+        if (level != this.level || this.chunk == null || cx != this.chunkX || cz != this.chunkZ) {
+            this.level = level;
+            this.chunk = level.getChunkIfLoaded(cx, cz);
+            this.chunkX = cx;
+            this.chunkZ = cz;
+            this.section = null;
+            if (this.chunk == null) {
+                this.level = null;
+                return AIR;
+            }
+        }
+
+        if (!(this.chunk instanceof Chunk)) {
+            return BlockStateInfo.get(this.chunk.getFullBlock(x & 0x0f, y, z & 0x0f, 0));
+        }
+
+        int sy = y >> 4;
+        if (this.section == null || sy != this.sectionY) {
+            this.section = ((Chunk) this.chunk).getSection(sy);
+            this.sectionY = sy;
+        }
+        if (this.section.isEmpty()) {
+            return AIR;
+        }
+        return BlockStateInfo.get(this.section.getFullBlock(x & 0x0f, y & 0x0f, z & 0x0f));
+    }
+
+    /**
+     * Forget the cached chunk, so it is not kept loaded by the cursor
+     */
+    public void clear() {
+        this.level = null;
+        this.chunk = null;
+        this.section = null;
+    }
+}
@@ -0,0 +1,211 @@
+package cn.nukkit.level;
+
+import cn.nukkit.Player;
+import cn.nukkit.Server;
+import cn.nukkit.entity.Entity;
+import cn.nukkit.entity.EntityBoss;
+import cn.nukkit.entity.item.EntityItem;
+import cn.nukkit.entity.item.EntityVehicle;
+import cn.nukkit.entity.item.EntityXPOrb;
+import cn.nukkit.entity.mob.EntityMob;
+import cn.nukkit.entity.passive.EntityAnimal;
+import cn.nukkit.entity.projectile.EntityProjectile;
+import cn.nukkit.math.NukkitMath;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+/**
+ * Decides which entities of a level are ticked every tick and which only every few ticks.
+ * <p>
+ * Once per tick the chunks around the players are marked with the entity categories whose activation range reaches
+ * into them, so checking an entity is a single lookup no matter how many players are in the level. Entities outside
+ * the range of their category are inactive and only ticked every {@link Server#inactiveEntityTickInterval} ticks,
+ * their ages and timers catch up through the larger tick difference.
+ * Entities without a category, players, bosses, dead entities and entities which are ridden or riding are always ticked.
+ * So are moving projectiles and vehicles, whose collisions can not be caught up on. The ticks skipped by inactive
+ * entities are counted, items and experience orbs catch up on the movement of those ticks, up to
+ * {@link #MAX_CATCH_UP_TICKS}. Ticks an entity missed for other reasons, like resting outside of the update list or
+ * server lag, are not caught up on.
+ * Ranges are measured horizontally with chunk precision.
+ * The activation is not thread safe, it must only be used by the thread ticking the level.
+ */
+public class EntityActivation {
+
+    public enum Category {
+        MONSTER,
+        ANIMAL,
+        ITEM,
+        PROJECTILE,
+        VEHICLE
+    }
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    /**
+     * Most skipped ticks whose movement an entity catches up on when it is ticked again
+     */
+    public static final int MAX_CATCH_UP_TICKS = 100;
+
+    private final Level level;
+    /**
+     * Bit mask of the categories active in a chunk by chunk hash
+     */
+    private final Long2ByteOpenHashMap activeChunks = new Long2ByteOpenHashMap();
+    /**
+     * Ticks skipped by inactive entities since they were last ticked, by entity id
+     */
+    private final Long2IntOpenHashMap skippedTicks = new Long2IntOpenHashMap();
+    private final int[] ranges = new int[CATEGORIES.length];
+    private int maxRange;
+    private int inactiveTickInterval;
+
+    public EntityActivation(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * Get the category of an entity
+     *
+     * @return category, null if the entity is always active
+     */
+    public static Category getCategory(Entity entity) {
+        if (entity instanceof EntityMob) {
+            return Category.MONSTER;
+        }
+        if (entity instanceof EntityAnimal) {
+            return Category.ANIMAL;
+        }
+        if (entity instanceof EntityItem || entity instanceof EntityXPOrb) {
+            return Category.ITEM;
+        }
+        if (entity instanceof EntityProjectile) {
+            return Category.PROJECTILE;
+        }
+        if (entity instanceof EntityVehicle) {
+            return Category.VEHICLE;
+        }
+        return null;
+    }
+
+    /**
+     * Mark the chunks around the players of the level. Called once per tick before the entities are ticked.
+     */
+    public void update() {
+        Server server = this.level.getServer();
+        this.ranges[Category.MONSTER.ordinal()] = server.monsterActivationRange;
+        this.ranges[Category.ANIMAL.ordinal()] = server.animalActivationRange;
+        this.ranges[Category.ITEM.ordinal()] = server.itemActivationRange;
+        this.ranges[Category.PROJECTILE.ordinal()] = server.projectileActivationRange;
+        this.ranges[Category.VEHICLE.ordinal()] = server.vehicleActivationRange;
+        this.inactiveTickInterval = server.inactiveEntityTickInterval;
+
+        int maxRange = 0;
+        for (int range : this.ranges) {
+            maxRange = Math.max(maxRange, range);
+        }
+        this.maxRange = maxRange;
+
+        this.activeChunks.clear();
+        if (maxRange <= 0) {
+            return;
+        }
+        for (Player player : this.level.getPlayers().values()) {
+            this.markChunks(player.x, player.z);
+        }
+    }
+
+    private void markChunks(double x, double z) {
+        int minChunkX = NukkitMath.floorDouble(x - this.maxRange) >> 4;
+        int maxChunkX = NukkitMath.floorDouble(x + this.maxRange) >> 4;
+        int minChunkZ = NukkitMath.floorDouble(z - this.maxRange) >> 4;
+        int maxChunkZ = NukkitMath.floorDouble(z + this.maxRange) >> 4;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            // Distance to the nearest block column of the chunk
+            double dx = Math.max(0, Math.max((chunkX << 4) - x, x - ((chunkX << 4) + 16)));
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                double dz = Math.max(0, Math.max((chunkZ << 4) - z, z - ((chunkZ << 4) + 16)));
+                double distance = dx * dx + dz * dz;
+
+                int mask = 0;
+                for (int i = 0; i < this.ranges.length; i++) {
+                    int range = this.ranges[i];
+                    if (range > 0 && distance <= range * range) {
+                        mask |= 1 << i;
+                    }
+                }
+                if (mask != 0) {
+                    long key = Level.chunkHash(chunkX, chunkZ);
+                    this.activeChunks.put(key, (byte) (this.activeChunks.get(key) | mask));
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether the category of an entity has an activation range
+     */
+    public boolean hasRange(Entity entity) {
+        Category category = getCategory(entity);
+        return category != null && this.ranges[category.ordinal()] > 0;
+    }
+
+    /**
+     * Check whether an entity is within the activation range of its category around a player
+     *
+     * @return true if it is or the category has no range
+     */
+    public boolean isInRange(Entity entity) {
+        Category category = getCategory(entity);
+        if (category == null || this.ranges[category.ordinal()] <= 0) {
+            return true;
+        }
+        long key = Level.chunkHash(NukkitMath.floorDouble(entity.x) >> 4, NukkitMath.floorDouble(entity.z) >> 4);
+        return (this.activeChunks.get(key) & (1 << category.ordinal())) != 0;
+    }
+
+    /**
+     * Check whether an entity should be ticked in the current tick
+     *
+     * @param currentTick current server tick
+     */
+    public boolean shouldTick(Entity entity, int currentTick) {
+        int interval = this.inactiveTickInterval;
+        if (interval <= 1 || this.maxRange <= 0) {
+            return true;
+        }
+        // Spread the ticks of inactive entities over the interval
+        if (Math.floorMod(currentTick + entity.getId(), interval) == 0 || this.isInRange(entity) || isAlwaysActive(entity)) {
+            return true;
+        }
+        this.skippedTicks.addTo(entity.getId(), 1);
+        return false;
+    }
+
+    /**
+     * Get and reset the number of ticks an entity was skipped for since it was last ticked
+     *
+     * @return skipped ticks
+     */
+    public int takeSkippedTicks(Entity entity) {
+        return this.skippedTicks.isEmpty() ? 0 : this.skippedTicks.remove(entity.getId());
+    }
+
+    /**
+     * Forget the skipped ticks of an entity removed from the level
+     */
+    public void remove(Entity entity) {
+        if (!this.skippedTicks.isEmpty()) {
+            this.skippedTicks.remove(entity.getId());
+        }
+    }
+
+    private static boolean isAlwaysActive(Entity entity) {
+        return entity instanceof Player || entity instanceof EntityBoss || !entity.isAlive()
+                || entity.riding != null || !entity.passengers.isEmpty()
+                || (entity instanceof EntityProjectile || entity instanceof EntityVehicle) && isMoving(entity);
+    }
+
+    private static boolean isMoving(Entity entity) {
+        return Math.abs(entity.motionX) > 0.00001 || Math.abs(entity.motionY) > 0.00001 || Math.abs(entity.motionZ) > 0.00001;
+    }
+}
@@ -0,0 +1,183 @@
+package cn.nukkit.level;
+
+import cn.nukkit.Server;
+import cn.nukkit.entity.Entity;
+import cn.nukkit.entity.item.EntityItem;
+import cn.nukkit.entity.item.EntityXPOrb;
+import cn.nukkit.event.entity.EntityMergeEvent;
+import cn.nukkit.item.Item;
+import cn.nukkit.network.protocol.EntityEventPacket;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Merges dropped items and experience orbs of a level which lie close to each other.
+ * <p>
+ * Items and orbs become merge candidates when they are added to the level and while they move. Every
+ * {@link Server#entityMergeInterval} ticks each candidate which has settled is checked once against its neighbours
+ * from the {@link EntitySpatialIndex}, the smaller entity is added to the larger one and removed.
+ * The merger is not thread safe, it must only be used by the thread ticking the level.
+ */
+public class EntityMerger {
+
+    /**
+     * Largest merge radius, keeps the neighbour queries within the cells around a candidate
+     */
+    private static final double MAX_RADIUS = 8;
+    /**
+     * Horizontal speed squared below which a candidate counts as settled
+     */
+    private static final double SETTLED_MOTION = 0.0025;
+
+    private final Level level;
+    private final ObjectOpenHashSet<Entity> candidates = new ObjectOpenHashSet<>();
+    private final List<Entity> pending = new ObjectArrayList<>();
+    private final List<Entity> nearby = new ObjectArrayList<>();
+
+    public EntityMerger(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * Check whether an entity is merged by the merger
+     */
+    public static boolean canMerge(Entity entity) {
+        return entity instanceof EntityItem || entity instanceof EntityXPOrb;
+    }
+
+    /**
+     * Check the entity in the next merge pass
+     */
+    public void addCandidate(Entity entity) {
+        if (this.level.getServer().entityMergeInterval > 0) {
+            this.candidates.add(entity);
+        }
+    }
+
+    /**
+     * Run a merge pass if one is due
+     *
+     * @param currentTick current level tick
+     */
+    public void tick(long currentTick) {
+        Server server = this.level.getServer();
+        int interval = server.entityMergeInterval;
+        if (interval <= 0) {
+            this.candidates.clear();
+            return;
+        }
+        if (this.candidates.isEmpty() || currentTick % interval != 0) {
+            return;
+        }
+
+        // Merging may spawn entities through plugins, which would add candidates while iterating
+        this.pending.addAll(this.candidates);
+        this.candidates.clear();
+        try {
+            for (Entity entity : this.pending) {
+                if (entity.closed || !entity.isAlive() || entity.getLevel() != this.level) {
+                    continue;
+                }
+                if (!isSettled(entity)) {
+                    this.candidates.add(entity);
+                    continue;
+                }
+
+                double radius = Math.min(MAX_RADIUS, entity instanceof EntityItem ? server.itemMergeRadius : server.xpOrbMergeRadius);
+                if (radius > 0) {
+                    this.mergeNearby(entity, radius);
+                }
+            }
+        } finally {
+            this.pending.clear();
+        }
+    }
+
+    private void mergeNearby(Entity entity, double radius) {
+        this.nearby.clear();
+        this.level.getEntityIndex().getEntitiesInRadius(entity.x, entity.y, entity.z, radius, entity, this.nearby);
+        try {
+            for (Entity other : this.nearby) {
+                if (other.closed || !other.isAlive() || other.getClass() != entity.getClass() || !isSettled(other)) {
+                    continue;
+                }
+
+                boolean merged;
+                if (entity instanceof EntityItem) {
+                    merged = this.mergeItems((EntityItem) entity, (EntityItem) other);
+                } else {
+                    merged = this.mergeOrbs((EntityXPOrb) entity, (EntityXPOrb) other);
+                }
+                if (merged && entity.closed) {
+                    return;
+                }
+            }
+        } finally {
+            this.nearby.clear();
+        }
+    }
+
+    private boolean mergeItems(EntityItem a, EntityItem b) {
+        Item itemA = a.getItem();
+        Item itemB = b.getItem();
+        if (itemA == null || itemB == null || !Objects.equals(a.getOwner(), b.getOwner()) || !itemA.equals(itemB, true, true)) {
+            return false;
+        }
+        int count = itemA.getCount() + itemB.getCount();
+        if (count > itemA.getMaxStackSize()) {
+            return false;
+        }
+
+        // The larger stack stays, ties keep the older entity
+        EntityItem target = itemA.getCount() > itemB.getCount() || itemA.getCount() == itemB.getCount() && a.getId() < b.getId() ? a : b;
+        EntityItem source = target == a ? b : a;
+        if (!this.callEvent(source, target)) {
+            return false;
+        }
+
+        source.getItem().setCount(0);
+        source.close();
+        target.getItem().setCount(count);
+        target.setPickupDelay(Math.max(target.getPickupDelay(), source.getPickupDelay()));
+        target.age = Math.min(target.age, source.age);
+
+        EntityEventPacket packet = new EntityEventPacket();
+        packet.eid = target.getId();
+        packet.data = count;
+        packet.event = EntityEventPacket.MERGE_ITEMS;
+        Server.broadcastPacket(target.getViewers().values(), packet);
+        return true;
+    }
+
+    private boolean mergeOrbs(EntityXPOrb a, EntityXPOrb b) {
+        int exp = a.getExp() + b.getExp();
+        if (exp > Short.MAX_VALUE) {
+            return false;
+        }
+
+        EntityXPOrb target = a.getExp() > b.getExp() || a.getExp() == b.getExp() && a.getId() < b.getId() ? a : b;
+        EntityXPOrb source = target == a ? b : a;
+        if (!this.callEvent(source, target)) {
+            return false;
+        }
+
+        source.close();
+        target.setExp(exp);
+        target.setPickupDelay(Math.max(target.getPickupDelay(), source.getPickupDelay()));
+        target.age = Math.min(target.age, source.age);
+        return true;
+    }
+
+    private boolean callEvent(Entity source, Entity target) {
+        EntityMergeEvent event = new EntityMergeEvent(source, target);
+        this.level.getServer().getPluginManager().callEvent(event);
+        return !event.isCancelled() && !source.closed && !target.closed;
+    }
+
+    private static boolean isSettled(Entity entity) {
+        return entity.isOnGround() || entity.motionX * entity.motionX + entity.motionZ * entity.motionZ < SETTLED_MOTION && Math.abs(entity.motionY) < 0.1;
+    }
+}
@@ -0,0 +1,392 @@
+package cn.nukkit.level;
+
+import cn.nukkit.Player;
+import cn.nukkit.entity.Entity;
+import cn.nukkit.math.AxisAlignedBB;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Grid of the entities of a level, one cell per 16x16x16 chunk section.
+ * <p>
+ * Entities are added and removed together with the level entity map and moved between cells when their position
+ * changes, so neighbourhood queries only visit the cells around the queried area instead of every entity in the level.
+ * Queries write into collections provided by the caller or return a single entity and do not allocate.
+ * The index is not thread safe, it must only be used by the thread ticking the level. Other threads should use
+ * {@link Level#getNearbyEntities(AxisAlignedBB)} and {@link Level#getCollidingEntities(AxisAlignedBB)}, which fall back
+ * to the entity maps of the chunks.
+ */
+public class EntitySpatialIndex {
+
+    /**
+     * Entities are indexed by their position, this is how far the bounding boxes of the indexed entities reach out of
+     * their position. It grows with the largest entity ever indexed, e.g. an ender dragon, and never shrinks.
+     */
+    private double horizontalMargin = 2;
+    private double verticalMargin = 4;
+
+    private final Grid entities = new Grid();
+    private final Grid players = new Grid();
+
+    /**
+     * Cells visited by the running queries. Used as a stack so a query can be started from the filter of another query.
+     */
+    private Cell[] cellStack = new Cell[64];
+    private int cellStackSize;
+
+    public static long cellKey(int cellX, int cellY, int cellZ) {
+        return ((long) (cellX & 0xffffff) << 40) | ((long) (cellZ & 0xffffff) << 16) | (clampCellY(cellY) & 0xffff);
+    }
+
+    private static long cellKey(Entity entity) {
+        return cellKey(floor(entity.x) >> 4, floor(entity.y) >> 4, floor(entity.z) >> 4);
+    }
+
+    public void add(Entity entity) {
+        this.measure(entity);
+        long key = cellKey(entity);
+        this.entities.add(entity, key);
+        if (entity instanceof Player) {
+            this.players.add(entity, key);
+        }
+    }
+
+    public void remove(Entity entity) {
+        this.entities.remove(entity);
+        if (entity instanceof Player) {
+            this.players.remove(entity);
+        }
+    }
+
+    /**
+     * Move an entity to the cell of its current position. Entities which were not added to the index are ignored.
+     */
+    public void update(Entity entity) {
+        long key = cellKey(entity);
+        if (this.entities.update(entity, key)) {
+            this.measure(entity);
+            if (entity instanceof Player) {
+                this.players.update(entity, key);
+            }
+        }
+    }
+
+    /**
+     * Grow the margins to cover the bounding box of an entity
+     */
+    private void measure(Entity entity) {
+        AxisAlignedBB bb = entity.boundingBox;
+        double horizontal = Math.max(Math.max(entity.x - bb.getMinX(), bb.getMaxX() - entity.x), Math.max(entity.z - bb.getMinZ(), bb.getMaxZ() - entity.z));
+        if (horizontal > this.horizontalMargin) {
+            this.horizontalMargin = Math.ceil(horizontal);
+        }
+        double vertical = Math.max(entity.y - bb.getMinY(), bb.getMaxY() - entity.y);
+        if (vertical > this.verticalMargin) {
+            this.verticalMargin = Math.ceil(vertical);
+        }
+    }
+
+    /**
+     * Get how far the bounding boxes of the indexed entities may reach out of their position horizontally
+     */
+    public double getHorizontalMargin() {
+        return this.horizontalMargin;
+    }
+
+    public int size() {
+        return this.entities.byEntity.size();
+    }
+
+    /**
+     * Collect the entities whose bounding box intersects with the given box
+     *
+     * @param bb box
+     * @param exclude entity to skip, may be null
+     * @param result collection the entities are added to
+     * @return number of added entities
+     */
+    public int getEntities(AxisAlignedBB bb, Entity exclude, Collection<? super Entity> result) {
+        int start = this.cellStackSize;
+        double horizontal = this.horizontalMargin;
+        double vertical = this.verticalMargin;
+        int end = this.collectCells(this.entities, bb.getMinX() - horizontal, bb.getMinY() - vertical, bb.getMinZ() - horizontal,
+                bb.getMaxX() + horizontal, bb.getMaxY() + vertical, bb.getMaxZ() + horizontal);
+        int count = 0;
+        try {
+            for (int i = start; i < end; i++) {
+                Cell cell = this.cellStack[i];
+                for (int j = 0; j < cell.size; j++) {
+                    Entity entity = cell.entities[j];
+                    if (entity != exclude && entity.boundingBox.intersectsWith(bb)) {
+                        result.add(entity);
+                        count++;
+                    }
+                }
+            }
+        } finally {
+            this.releaseCells(start, end);
+        }
+        return count;
+    }
+
+    /**
+     * Collect the entities whose position is within the given distance
+     *
+     * @param exclude entity to skip, may be null
+     * @param result collection the entities are added to
+     * @return number of added entities
+     */
+    public int getEntitiesInRadius(double x, double y, double z, double radius, Entity exclude, Collection<? super Entity> result) {
+        return this.getInRadius(this.entities, x, y, z, radius, exclude, result);
+    }
+
+    /**
+     * Collect the players whose position is within the given distance
+     *
+     * @param result collection the players are added to
+     * @return number of added players
+     */
+    public int getPlayersInRadius(double x, double y, double z, double radius, Collection<? super Player> result) {
+        return this.getInRadius(this.players, x, y, z, radius, null, result);
+    }
+
+    /**
+     * Check whether there is a player within the given distance
+     */
+    public boolean hasPlayerInRadius(double x, double y, double z, double radius) {
+        return this.getNearest(x, y, z, radius, Player.class, null, null) != null;
+    }
+
+    /**
+     * Find the nearest entity of a type within the given distance.
+     * The filter is only tested for entities closer than the best match found so far.
+     *
+     * @param type entity type
+     * @param exclude entity to skip, may be null
+     * @param filter additional condition, may be null
+     * @return nearest matching entity or null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getNearest(double x, double y, double z, double radius, Class<T> type, Entity exclude, DistanceFilter<? super T> filter) {
+        Grid grid = Player.class.isAssignableFrom(type) ? this.players : this.entities;
+        int start = this.cellStackSize;
+        int end = this.collectCells(grid, x - radius, y - radius, z - radius, x + radius, y + radius, z + radius);
+        double nearest = radius * radius;
+        T result = null;
+        try {
+            for (int i = start; i < end; i++) {
+                Cell cell = this.cellStack[i];
+                for (int j = 0; j < cell.size; j++) {
+                    Entity entity = cell.entities[j];
+                    if (entity == exclude || !type.isInstance(entity)) {
+                        continue;
+                    }
+
+                    double distance = distanceSquared(entity, x, y, z);
+                    if (distance > nearest) {
+                        continue;
+                    }
+
+                    if (filter == null || filter.test((T) entity, distance)) {
+                        nearest = distance;
+                        result = (T) entity;
+                    }
+                }
+            }
+        } finally {
+            this.releaseCells(start, end);
+        }
+        return result;
+    }
+
+    private <T> int getInRadius(Grid grid, double x, double y, double z, double radius, Entity exclude, Collection<? super T> result) {
+        int start = this.cellStackSize;
+        int end = this.collectCells(grid, x - radius, y - radius, z - radius, x + radius, y + radius, z + radius);
+        double radiusSquared = radius * radius;
+        int count = 0;
+        try {
+            for (int i = start; i < end; i++) {
+                Cell cell = this.cellStack[i];
+                for (int j = 0; j < cell.size; j++) {
+                    Entity entity = cell.entities[j];
+                    if (entity != exclude && distanceSquared(entity, x, y, z) <= radiusSquared) {
+                        //noinspection unchecked
+                        result.add((T) entity);
+                        count++;
+                    }
+                }
+            }
+        } finally {
+            this.releaseCells(start, end);
+        }
+        return count;
+    }
+
+    /**
+     * Push the non empty cells overlapping with the given area to the cell stack
+     *
+     * @return end index of the pushed cells
+     */
+    private int collectCells(Grid grid, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        int minCellX = floor(minX) >> 4;
+        int minCellY = clampCellY(floor(minY) >> 4);
+        int minCellZ = floor(minZ) >> 4;
+        int maxCellX = floor(maxX) >> 4;
+        int maxCellY = clampCellY(floor(maxY) >> 4);
+        int maxCellZ = floor(maxZ) >> 4;
+
+        long area = (long) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1) * (maxCellZ - minCellZ + 1);
+        if (area > grid.cells.size()) {
+            // Fewer occupied cells than cells in the area, check the occupied ones instead
+            for (Cell cell : grid.cells.values()) {
+                if (cell.x >= minCellX && cell.x <= maxCellX && cell.y >= minCellY && cell.y <= maxCellY && cell.z >= minCellZ && cell.z <= maxCellZ) {
+                    this.pushCell(cell);
+                }
+            }
+        } else {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                    for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                        Cell cell = grid.cells.get(cellKey(cellX, cellY, cellZ));
+                        if (cell != null) {
+                            this.pushCell(cell);
+                        }
+                    }
+                }
+            }
+        }
+        return this.cellStackSize;
+    }
+
+    private void pushCell(Cell cell) {
+        if (this.cellStackSize == this.cellStack.length) {
+            this.cellStack = Arrays.copyOf(this.cellStack, this.cellStackSize << 1);
+        }
+        this.cellStack[this.cellStackSize++] = cell;
+    }
+
+    private void releaseCells(int start, int end) {
+        Arrays.fill(this.cellStack, start, end, null);
+        this.cellStackSize = start;
+    }
+
+    private static double distanceSquared(Entity entity, double x, double y, double z) {
+        double dx = entity.x - x;
+        double dy = entity.y - y;
+        double dz = entity.z - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static int clampCellY(int cellY) {
+        return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, cellY));
+    }
+
+    private static int floor(double value) {
+        int i = (int) value;
+        return value < i ? i - 1 : i;
+    }
+
+    /**
+     * Condition for {@link #getNearest(double, double, double, double, Class, Entity, DistanceFilter)}
+     */
+    @FunctionalInterface
+    public interface DistanceFilter<T> {
+
+        /**
+         * @param entity candidate
+         * @param distanceSquared squared distance between the candidate and the queried position
+         */
+        boolean test(T entity, double distanceSquared);
+    }
+
+    private static class Grid {
+
+        private final Long2ObjectOpenHashMap<Cell> cells = new Long2ObjectOpenHashMap<>();
+        private final Long2ObjectOpenHashMap<Cell> byEntity = new Long2ObjectOpenHashMap<>();
+
+        private void add(Entity entity, long key) {
+            Cell current = this.byEntity.get(entity.getId());
+            if (current != null) {
+                this.move(entity, current, key);
+                return;
+            }
+            this.insert(entity, key);
+        }
+
+        private boolean update(Entity entity, long key) {
+            Cell current = this.byEntity.get(entity.getId());
+            if (current == null) {
+                return false;
+            }
+            this.move(entity, current, key);
+            return true;
+        }
+
+        private void remove(Entity entity) {
+            Cell current = this.byEntity.remove(entity.getId());
+            if (current != null) {
+                this.removeFromCell(entity, current);
+            }
+        }
+
+        private void move(Entity entity, Cell current, long key) {
+            if (current.key != key) {
+                this.removeFromCell(entity, current);
+                this.insert(entity, key);
+            }
+        }
+
+        private void insert(Entity entity, long key) {
+            Cell cell = this.cells.get(key);
+            if (cell == null) {
+                cell = new Cell(key, floor(entity.x) >> 4, clampCellY(floor(entity.y) >> 4), floor(entity.z) >> 4);
+                this.cells.put(key, cell);
+            }
+            cell.add(entity);
+            this.byEntity.put(entity.getId(), cell);
+        }
+
+        private void removeFromCell(Entity entity, Cell cell) {
+            cell.remove(entity);
+            if (cell.size == 0) {
+                this.cells.remove(cell.key);
+            }
+        }
+    }
+
+    private static class Cell {
+
+        private final long key;
+        private final int x;
+        private final int y;
+        private final int z;
+        private Entity[] entities = new Entity[4];
+        private int size;
+
+        private Cell(long key, int x, int y, int z) {
+            this.key = key;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        private void add(Entity entity) {
+            if (this.size == this.entities.length) {
+                this.entities = Arrays.copyOf(this.entities, this.size << 1);
+            }
+            this.entities[this.size++] = entity;
+        }
+
+        private void remove(Entity entity) {
+            for (int i = 0; i < this.size; i++) {
+                if (this.entities[i] == entity) {
+                    this.entities[i] = this.entities[--this.size];
+                    this.entities[this.size] = null;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -2,29 +2,23 @@ package cn.nukkit.level;
 
 import cn.nukkit.block.Block;
 import cn.nukkit.block.BlockID;
-import cn.nukkit.block.BlockTNT;
-import cn.nukkit.blockentity.BlockEntity;
-import cn.nukkit.blockentity.BlockEntityShulkerBox;
+import cn.nukkit.block.BlockStateInfo;
 import cn.nukkit.entity.Entity;
 import cn.nukkit.entity.EntityExplosive;
 import cn.nukkit.entity.item.EntityItem;
 import cn.nukkit.entity.item.EntityXPOrb;
 import cn.nukkit.event.block.BlockExplodeEvent;
-import cn.nukkit.event.block.BlockUpdateEvent;
 import cn.nukkit.event.entity.EntityDamageByBlockEvent;
 import cn.nukkit.event.entity.EntityDamageByEntityEvent;
 import cn.nukkit.event.entity.EntityDamageEvent;
 import cn.nukkit.event.entity.EntityDamageEvent.DamageCause;
 import cn.nukkit.event.entity.EntityExplodeEvent;
-import cn.nukkit.inventory.InventoryHolder;
-import cn.nukkit.item.Item;
-import cn.nukkit.item.ItemTool;
 import cn.nukkit.level.particle.HugeExplodeSeedParticle;
 import cn.nukkit.math.*;
 import cn.nukkit.network.protocol.LevelSoundEventPacket;
-import cn.nukkit.utils.Hash;
 import cn.nukkit.utils.Utils;
-import it.unimi.dsi.fastutil.longs.LongArraySet;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -36,17 +30,26 @@ import java.util.List;
 public class Explosion {
 
     private static final int rays = 16;
+    private static final double stepLen = 0.3d;
+    /**
+     * Steps of the rays cast from the center, three components of length {@link #stepLen} per ray
+     */
+    private static final double[] RAY_STEPS = createRaySteps();
+
     private final Level level;
     private final Position source;
     private final double size;
 
     private List<Block> affectedBlocks = new ArrayList<>();
-    private static final double stepLen = 0.3d;
 
     private final Object what;
     private boolean doesDamage = true;
 
     private double fireChance = 0.0; // 0.0 .. 1.0
+    /**
+     * Whether the explosion waits for the budget of the next tick
+     */
+    private boolean deferred;
 
     public Explosion(Position center, double size, Entity what) {
         this(center, size, (Object) what);
@@ -63,6 +66,27 @@ public class Explosion {
         this.what = what;
     }
 
+    private static double[] createRaySteps() {
+        DoubleArrayList steps = new DoubleArrayList();
+        int mRays = rays - 1;
+        for (int i = 0; i < rays; ++i) {
+            for (int j = 0; j < rays; ++j) {
+                for (int k = 0; k < rays; ++k) {
+                    if (i == 0 || i == mRays || j == 0 || j == mRays || k == 0 || k == mRays) {
+                        double x = (double) i / (double) mRays * 2d - 1;
+                        double y = (double) j / (double) mRays * 2d - 1;
+                        double z = (double) k / (double) mRays * 2d - 1;
+                        double len = Math.sqrt(x * x + y * y + z * z);
+                        steps.add((x / len) * stepLen);
+                        steps.add((y / len) * stepLen);
+                        steps.add((z / len) * stepLen);
+                    }
+                }
+            }
+        }
+        return steps.toDoubleArray();
+    }
+
     /**
      * @return bool
      */
@@ -84,55 +108,74 @@ public class Explosion {
         if (this.size < 0.1) return false;
         if (!level.getServer().explosionBreakBlocks) return true;
 
-        Vector3 vector = new Vector3(0, 0, 0);
-        Vector3 vBlock = new Vector3(0, 0, 0);
+        if (!this.level.getExplosionBatch().tryAcquire()) {
+            this.deferred = true;
+            return true;
+        }
+        this.traceRays();
+        return true;
+    }
 
-        int mRays = 15;
-        for (int i = 0; i < rays; ++i) {
-            for (int j = 0; j < rays; ++j) {
-                for (int k = 0; k < rays; ++k) {
-                    if (i == 0 || i == mRays || j == 0 || j == mRays || k == 0 || k == mRays) {
-                        vector.setComponents((double) i / (double) mRays * 2d - 1, (double) j / (double) mRays * 2d - 1, (double) k / (double) mRays * 2d - 1);
-                        double len = vector.length();
-                        vector.setComponents((vector.x / len) * stepLen, (vector.y / len) * stepLen, (vector.z / len) * stepLen);
-                        double pointerX = this.source.x;
-                        double pointerY = this.source.y;
-                        double pointerZ = this.source.z;
-
-                        for (double blastForce = this.size * (Utils.random.nextInt(700, 1301)) / 1000d; blastForce > 0; blastForce -= 0.22499999999999998) {
-                            int x = (int) pointerX;
-                            int y = (int) pointerY;
-                            int z = (int) pointerZ;
-                            vBlock.x = pointerX >= x ? x : x - 1;
-                            vBlock.y = pointerY >= y ? y : y - 1;
-                            vBlock.z = pointerZ >= z ? z : z - 1;
-                            if (!level.isYInRange(vBlock.y)) {
-                                break;
-                            }
-                            Block block = this.level.getBlock(vBlock);
-
-                            if (block.getId() != 0 && block.getId() != 7) {
-                                blastForce -= (block.getResistance() / 5 + 0.3d) * stepLen;
-                                if (blastForce > 0) {
-                                    if (!this.affectedBlocks.contains(block)) {
-                                        this.affectedBlocks.add(block);
-                                    }
-                                }
-                            }
-                            pointerX += vector.x;
-                            pointerY += vector.y;
-                            pointerZ += vector.z;
+    /**
+     * Run an explosion deferred by the explosion budget
+     */
+    void explodeDeferred() {
+        ExplosionBatch batch = this.level.getExplosionBatch();
+        if (!batch.tryAcquire()) {
+            batch.defer(this);
+            return;
+        }
+        this.deferred = false;
+        this.traceRays();
+        this.explodeB();
+    }
+
+    private void traceRays() {
+        LongOpenHashSet affected = new LongOpenHashSet();
+        ExplosionBatch batch = this.level.getExplosionBatch();
+        BlockCursor cursor = BlockCursor.get();
+        try {
+            for (int ray = 0; ray < RAY_STEPS.length; ray += 3) {
+                double stepX = RAY_STEPS[ray];
+                double stepY = RAY_STEPS[ray + 1];
+                double stepZ = RAY_STEPS[ray + 2];
+                double pointerX = this.source.x;
+                double pointerY = this.source.y;
+                double pointerZ = this.source.z;
+
+                for (double blastForce = this.size * (Utils.random.nextInt(700, 1301)) / 1000d; blastForce > 0; blastForce -= 0.22499999999999998) {
+                    int x = NukkitMath.floorDouble(pointerX);
+                    int y = NukkitMath.floorDouble(pointerY);
+                    int z = NukkitMath.floorDouble(pointerZ);
+                    if (!level.isYInRange(y)) {
+                        break;
+                    }
+                    BlockStateInfo state = cursor.getState(this.level, x, y, z);
+                    int id = state.getId();
+
+                    // Blocks broken by earlier explosions of this tick are already gone
+                    if (id != BlockID.AIR && id != BlockID.BEDROCK && !batch.isPending(x, y, z)) {
+                        blastForce -= (state.getResistance(this.level, x, y, z) / 5 + 0.3d) * stepLen;
+                        if (blastForce > 0 && affected.add(ExplosionBatch.blockKey(x, y, z))) {
+                            this.affectedBlocks.add(this.level.getBlock(x, y, z));
                         }
                     }
+                    pointerX += stepX;
+                    pointerY += stepY;
+                    pointerZ += stepZ;
                 }
             }
+        } finally {
+            cursor.clear();
         }
-
-        return true;
     }
 
     public boolean explodeB() {
-        LongArraySet updateBlocks = new LongArraySet();
+        if (this.deferred) {
+            this.level.getExplosionBatch().defer(this);
+            return true;
+        }
+
         double yield = (1d / this.size) * 100d;
 
         if (this.what instanceof Entity) {
@@ -189,55 +232,7 @@ public class Explosion {
             }
         }
 
-        ItemTool netheritePickaxe = (ItemTool) Item.get(Item.NETHERITE_PICKAXE);
-        netheritePickaxe.setUnbreakable(true);
-        BlockEntity container;
-        for (Block block : this.affectedBlocks) {
-            if (block.getId() == Block.TNT) {
-                ((BlockTNT) block).prime(Utils.rand(10, 30), this.what instanceof Entity ? (Entity) this.what : null);
-            } else if (block.getId() == Block.BED_BLOCK && (block.getDamage() & 0x08) == 0x08) {
-                this.level.setBlockAt((int) block.x, (int) block.y, (int) block.z, Block.AIR);
-                continue; // We don't want drops from both bed parts
-            } else if ((container = block.getLevel().getBlockEntity(block)) instanceof InventoryHolder) {
-                if (block.getLevel().getGameRules().getBoolean(GameRule.DO_TILE_DROPS)) {
-                    if (container instanceof BlockEntityShulkerBox) {
-                        this.level.dropItem(block.add(0.5, 0.5, 0.5), block.toItem());
-                        ((InventoryHolder) container).getInventory().clearAll();
-                    } else {
-                        for (Item drop : ((InventoryHolder) container).getInventory().getContents().values()) {
-                            this.level.dropItem(block.add(0.5, 0.5, 0.5), drop);
-                        }
-                        ((InventoryHolder) container).getInventory().clearAll();
-                    }
-                }
-            } else if (block.alwaysDropsOnExplosion() || Math.random() * 100 < yield) {
-                for (Item drop : block.getDrops(netheritePickaxe)) {
-                    this.level.dropItem(block.add(0.5, 0.5, 0.5), drop);
-                }
-            }
-
-            this.level.setBlockAt((int) block.x, (int) block.y, (int) block.z, Block.AIR);
-
-            if (Math.random() < fireChance) {
-                this.level.setBlockAt((int) block.x, (int) block.y, (int) block.z, BlockID.FIRE);
-            }
-
-            Vector3 pos = new Vector3(block.x, block.y, block.z);
-
-            for (BlockFace side : BlockFace.values()) {
-                Vector3 sideBlock = pos.getSide(side);
-                long index = Hash.hashBlock((int) sideBlock.x, (int) sideBlock.y, (int) sideBlock.z);
-                if (!this.affectedBlocks.contains(sideBlock) && !updateBlocks.contains(index)) {
-                    BlockUpdateEvent ev = new BlockUpdateEvent(this.level.getBlock(sideBlock));
-                    this.level.getServer().getPluginManager().callEvent(ev);
-                    if (!ev.isCancelled()) {
-                        ev.getBlock().onUpdate(Level.BLOCK_UPDATE_NORMAL);
-                    }
-                    updateBlocks.add(index);
-                    this.level.antiXrayOnBlockChange(null, block, 0);
-                }
-            }
-        }
+        this.level.getExplosionBatch().add(this.affectedBlocks, yield, this.fireChance, this.what instanceof Entity ? (Entity) this.what : null);
 
         this.level.addParticle(new HugeExplodeSeedParticle(this.source));
         this.level.addLevelSoundEvent(source, LevelSoundEventPacket.SOUND_EXPLODE);
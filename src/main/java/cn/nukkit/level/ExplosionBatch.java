@@ -0,0 +1,251 @@
+package cn.nukkit.level;
+
+import cn.nukkit.Server;
+import cn.nukkit.block.Block;
+import cn.nukkit.block.BlockID;
+import cn.nukkit.block.BlockTNT;
+import cn.nukkit.blockentity.BlockEntity;
+import cn.nukkit.blockentity.BlockEntityShulkerBox;
+import cn.nukkit.entity.Entity;
+import cn.nukkit.event.block.BlockUpdateEvent;
+import cn.nukkit.inventory.InventoryHolder;
+import cn.nukkit.item.Item;
+import cn.nukkit.item.ItemTool;
+import cn.nukkit.math.BlockFace;
+import cn.nukkit.math.Vector3;
+import cn.nukkit.utils.Utils;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Removes the blocks destroyed by the explosions of a level in one pass.
+ * <p>
+ * While the entities of a level are ticked, the blocks of all explosions are collected and removed together after the
+ * entity tick. A block hit by several explosions is broken once, the neighbours of the removed blocks are updated once,
+ * equal drops within a chunk section are dropped as one stack and the light of all removed blocks is updated together
+ * on the next tick. Blocks waiting for removal count as air for later explosions of the same tick, as if they had been
+ * removed already. Explosions outside of the entity tick remove their blocks immediately.
+ * <p>
+ * Only {@link Server#explosionBudgetPerTick} explosions breaking blocks are computed per tick, later ones are deferred
+ * to the start of the next tick. A deferred explosion is computed entirely then: its {@code EntityExplodeEvent} or
+ * {@code BlockExplodeEvent} is called, entities are damaged and blocks are broken one tick after it was triggered.
+ * The batch is not thread safe, it must only be used by the thread ticking the level.
+ */
+public class ExplosionBatch {
+
+    private final Level level;
+    private final Long2ObjectLinkedOpenHashMap<Entry> blocks = new Long2ObjectLinkedOpenHashMap<>();
+    private final ArrayDeque<Explosion> deferred = new ArrayDeque<>();
+    private boolean collecting;
+    private int explosions;
+
+    public ExplosionBatch(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * Pack a block position into a key, covering the full height range of a level
+     */
+    public static long blockKey(int x, int y, int z) {
+        return ((long) (x & 0x3ffffff) << 38) | ((long) (z & 0x3ffffff) << 12) | (y & 0xfff);
+    }
+
+    /**
+     * Start collecting the blocks of the explosions in this tick and run the explosions deferred from the previous tick.
+     * Called once per tick before the entities are ticked.
+     */
+    public void startTick() {
+        this.explosions = 0;
+        this.collecting = true;
+        for (int i = this.deferred.size(); i > 0 && !this.deferred.isEmpty(); i--) {
+            this.deferred.poll().explodeDeferred();
+        }
+    }
+
+    /**
+     * Take an explosion from the budget of the current tick
+     *
+     * @return false if the budget is used up and the explosion has to be deferred
+     */
+    public boolean tryAcquire() {
+        int budget = this.level.getServer().explosionBudgetPerTick;
+        if (budget > 0 && this.explosions >= budget) {
+            return false;
+        }
+        this.explosions++;
+        return true;
+    }
+
+    /**
+     * Run an explosion at the start of the next tick
+     */
+    void defer(Explosion explosion) {
+        this.deferred.add(explosion);
+    }
+
+    /**
+     * Get the number of explosions waiting for the next tick
+     */
+    public int getDeferredCount() {
+        return this.deferred.size();
+    }
+
+    /**
+     * Check whether a block waits for removal in this tick
+     */
+    public boolean isPending(int x, int y, int z) {
+        return !this.blocks.isEmpty() && this.blocks.containsKey(blockKey(x, y, z));
+    }
+
+    /**
+     * Remove the blocks destroyed by an explosion, with the next flush while collecting or immediately otherwise
+     *
+     * @param blocks     destroyed blocks
+     * @param yield      chance in percent of a block dropping its items
+     * @param fireChance chance of a removed block being replaced by fire, 0 to 1
+     * @param cause      entity which caused the explosion, or null
+     */
+    public void add(Collection<Block> blocks, double yield, double fireChance, Entity cause) {
+        for (Block block : blocks) {
+            if (block == null) {
+                continue;
+            }
+            long key = blockKey(block.getFloorX(), block.getFloorY(), block.getFloorZ());
+            if (!this.blocks.containsKey(key)) {
+                this.blocks.put(key, new Entry(block, yield, fireChance, cause));
+            }
+        }
+        if (!this.collecting) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Remove the collected blocks and stop collecting. Called once per tick after the entities are ticked.
+     */
+    public void flush() {
+        this.collecting = false;
+        if (this.blocks.isEmpty()) {
+            return;
+        }
+
+        // Block updates may cause explosions which flush on their own
+        List<Entry> entries = new ObjectArrayList<>(this.blocks.values());
+        LongOpenHashSet removed = new LongOpenHashSet(this.blocks.keySet());
+        this.blocks.clear();
+
+        ItemTool netheritePickaxe = (ItemTool) Item.get(Item.NETHERITE_PICKAXE);
+        netheritePickaxe.setUnbreakable(true);
+        boolean tileDrops = this.level.getGameRules().getBoolean(GameRule.DO_TILE_DROPS);
+        Long2ObjectOpenHashMap<List<Drop>> drops = new Long2ObjectOpenHashMap<>();
+
+        BlockEntity container;
+        for (Entry entry : entries) {
+            Block block = entry.block;
+            int x = block.getFloorX();
+            int y = block.getFloorY();
+            int z = block.getFloorZ();
+
+            boolean bedHead = false;
+            if (block.getId() == Block.TNT) {
+                ((BlockTNT) block).prime(Utils.rand(10, 30), entry.cause);
+            } else if (block.getId() == Block.BED_BLOCK && (block.getDamage() & 0x08) == 0x08) {
+                bedHead = true; // We don't want drops from both bed parts
+            } else if ((container = this.level.getBlockEntity(block)) instanceof InventoryHolder) {
+                if (tileDrops) {
+                    if (container instanceof BlockEntityShulkerBox) {
+                        addDrop(drops, x, y, z, block.toItem());
+                    } else {
+                        for (Item drop : ((InventoryHolder) container).getInventory().getContents().values()) {
+                            addDrop(drops, x, y, z, drop);
+                        }
+                    }
+                    ((InventoryHolder) container).getInventory().clearAll();
+                }
+            } else if (block.alwaysDropsOnExplosion() || Math.random() * 100 < entry.yield) {
+                for (Item drop : block.getDrops(netheritePickaxe)) {
+                    addDrop(drops, x, y, z, drop);
+                }
+            }
+
+            this.level.setBlockAt(x, y, z, BlockID.AIR);
+            boolean fire = !bedHead && Math.random() < entry.fireChance;
+            if (fire) {
+                this.level.setBlockAt(x, y, z, BlockID.FIRE);
+            }
+            if (fire || !block.isTransparent() || block.getLightLevel() > 0 || block.diffusesSkyLight()
+                    || Block.getBlockLightFilter(block.getId()) > 0) {
+                this.level.addLightUpdate(x, y, z);
+            }
+            this.level.antiXrayOnBlockChange(null, block, 0);
+        }
+
+        for (List<Drop> section : drops.values()) {
+            for (Drop drop : section) {
+                this.level.dropItem(drop.position, drop.item);
+            }
+        }
+
+        LongOpenHashSet updated = new LongOpenHashSet();
+        for (Entry entry : entries) {
+            int x = entry.block.getFloorX();
+            int y = entry.block.getFloorY();
+            int z = entry.block.getFloorZ();
+            for (BlockFace side : BlockFace.values()) {
+                int sideX = x + side.getXOffset();
+                int sideY = y + side.getYOffset();
+                int sideZ = z + side.getZOffset();
+                long key = blockKey(sideX, sideY, sideZ);
+                if (!this.level.isYInRange(sideY) || removed.contains(key) || !updated.add(key)) {
+                    continue;
+                }
+
+                BlockUpdateEvent ev = new BlockUpdateEvent(this.level.getBlock(sideX, sideY, sideZ));
+                this.level.getServer().getPluginManager().callEvent(ev);
+                if (!ev.isCancelled()) {
+                    ev.getBlock().onUpdate(Level.BLOCK_UPDATE_NORMAL);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a drop to the stacks of its chunk section, filling equal stacks first
+     */
+    private static void addDrop(Long2ObjectOpenHashMap<List<Drop>> drops, int x, int y, int z, Item item) {
+        if (item == null || item.getId() == Item.AIR || item.getCount() <= 0) {
+            return;
+        }
+
+        List<Drop> section = drops.computeIfAbsent(blockKey(x >> 4, y >> 4, z >> 4), k -> new ObjectArrayList<>());
+        int count = item.getCount();
+        for (Drop drop : section) {
+            Item stack = drop.item;
+            int space = stack.getMaxStackSize() - stack.getCount();
+            if (space > 0 && stack.equals(item, true, true)) {
+                int moved = Math.min(space, count);
+                stack.setCount(stack.getCount() + moved);
+                count -= moved;
+                if (count == 0) {
+                    return;
+                }
+            }
+        }
+
+        Item stack = item.clone();
+        stack.setCount(count);
+        section.add(new Drop(new Vector3(x + 0.5, y + 0.5, z + 0.5), stack));
+    }
+
+    private record Entry(Block block, double yield, double fireChance, Entity cause) {
+    }
+
+    private record Drop(Vector3 position, Item item) {
+    }
+}
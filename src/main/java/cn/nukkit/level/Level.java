@@ -35,14 +35,21 @@ import cn.nukkit.level.format.ChunkSection;
 import cn.nukkit.level.format.FullChunk;
 import cn.nukkit.level.format.LevelProvider;
 import cn.nukkit.level.format.anvil.Anvil;
+import cn.nukkit.level.format.generic.BaseChunk;
 import cn.nukkit.level.format.generic.BaseFullChunk;
 import cn.nukkit.level.format.generic.EmptyChunkSection;
+import cn.nukkit.level.format.generic.serializer.ChunkBlobs;
 import cn.nukkit.level.format.generic.serializer.NetworkChunkSerializer;
+import cn.nukkit.level.format.generic.serializer.SubChunkSerializer;
 import cn.nukkit.level.generator.Generator;
 import cn.nukkit.level.generator.PopChunkManager;
 import cn.nukkit.level.generator.task.GenerationTask;
 import cn.nukkit.level.generator.task.LightPopulationTask;
 import cn.nukkit.level.generator.task.PopulationTask;
+import cn.nukkit.level.light.BlockLightEngine;
+import cn.nukkit.level.light.LightEngine;
+import cn.nukkit.level.light.SkyLightEngine;
+import cn.nukkit.level.pathfinding.PathScheduler;
 import cn.nukkit.level.particle.DestroyBlockParticle;
 import cn.nukkit.level.particle.ItemBreakParticle;
 import cn.nukkit.level.particle.Particle;
@@ -57,6 +64,8 @@ import cn.nukkit.metadata.Metadatable;
 import cn.nukkit.nbt.NBTIO;
 import cn.nukkit.nbt.tag.*;
 import cn.nukkit.network.protocol.*;
+import cn.nukkit.network.protocol.types.BlockChangeEntry;
+import cn.nukkit.network.protocol.types.SubChunkEntry;
 import cn.nukkit.plugin.InternalPlugin;
 import cn.nukkit.plugin.Plugin;
 import cn.nukkit.potion.Effect;
@@ -94,7 +103,7 @@ import java.util.function.Predicate;
 public class Level implements ChunkManager, Metadatable {
 
     private static int levelIdCounter = 1;
-    private static int chunkLoaderCounter = 1;
+    private static final AtomicInteger chunkLoaderCounter = new AtomicInteger(1);
 
     public static final int BLOCK_UPDATE_NORMAL = 1;
     public static final int BLOCK_UPDATE_RANDOM = 2;
@@ -119,9 +128,21 @@ public class Level implements ChunkManager, Metadatable {
 
     // Lower values use less memory
     public static final int MAX_BLOCK_CACHE = 512;
+    /**
+     * Changed blocks of a chunk tracked for clients receiving sub chunk block updates, the whole chunk is resent for more
+     * changes. Clients without sub chunk updates still get the whole chunk after {@link #MAX_BLOCK_CACHE} changes.
+     */
+    public static final int MAX_SUB_CHUNK_BLOCK_CACHE = 4096;
 
     // The blocks that can randomly tick
     private static final boolean[] randomTickBlocks = new boolean[Block.MAX_BLOCK_ID];
+
+    private static final Block[] NO_BLOCKS = new Block[0];
+    /**
+     * Default condition of {@link #getCollisionBlocks(AxisAlignedBB, boolean, boolean)}, air is skipped before the block is created
+     */
+    private static final Predicate<Block> NOT_AIR = block -> block.getId() != 0;
+
     public static final boolean[] xrayableBlocks = new boolean[Block.MAX_BLOCK_ID];
 
     static {
@@ -197,6 +218,31 @@ public class Level implements ChunkManager, Metadatable {
     @NonComputationAtomic
     public final Long2ObjectNonBlockingMap<Entity> entities = new Long2ObjectNonBlockingMap<>();
 
+    /**
+     * Entities of this level indexed by position, used for neighbourhood queries
+     */
+    private final EntitySpatialIndex entityIndex = new EntitySpatialIndex();
+
+    /**
+     * Which entities are ticked every tick, based on their distance to players
+     */
+    private final EntityActivation entityActivation = new EntityActivation(this);
+
+    /**
+     * Merges dropped items and experience orbs lying close to each other
+     */
+    private final EntityMerger entityMerger = new EntityMerger(this);
+
+    /**
+     * Removes the blocks of the explosions in a tick together
+     */
+    private final ExplosionBatch explosionBatch = new ExplosionBatch(this);
+
+    /**
+     * Path searches of walking entities
+     */
+    private final PathScheduler pathScheduler;
+
     private final ConcurrentLinkedQueue<BlockEntity> updateBlockEntities = new ConcurrentLinkedQueue<>();
 
     private final Server server;
@@ -251,6 +297,19 @@ public class Level implements ChunkManager, Metadatable {
     private final Long2ObjectOpenHashMap<Boolean> chunkGenerationQueue = new Long2ObjectOpenHashMap<>();
     private final int chunkGenerationQueueSize;
     private final int chunkPopulationQueueSize;
+    /**
+     * Chunks which are being loaded asynchronously
+     */
+    private final Long2ObjectOpenHashMap<CompletableFuture<BaseFullChunk>> chunkLoadQueue = new Long2ObjectOpenHashMap<>();
+    private final int chunkLoadQueueSize;
+    /**
+     * Asynchronously loaded chunks waiting to be installed on the level thread
+     */
+    private final Queue<Runnable> chunkLoadCallbacks = new ConcurrentLinkedQueue<>();
+    /**
+     * Sub chunk responses serialized by the async chunk thread, sent on the next tick
+     */
+    private final Queue<Runnable> subChunkCallbacks = new ConcurrentLinkedQueue<>();
 
     private boolean autoSave;
     private boolean autoCompaction;
@@ -383,6 +442,8 @@ public class Level implements ChunkManager, Metadatable {
         this.chunksPerTicks = this.server.getPropertyInt("chunk-ticking-per-tick", 40);
         this.chunkGenerationQueueSize = this.server.getPropertyInt("chunk-generation-queue-size", 8);
         this.chunkPopulationQueueSize = this.server.getPropertyInt("chunk-generation-population-queue-size", 8);
+        this.chunkLoadQueueSize = Math.max(1, this.server.getPropertyInt("chunk-loading-queue-size", 32));
+        this.pathScheduler = new PathScheduler(this, Math.max(0, this.server.getPropertyInt("pathfinding-nodes-per-tick", 2048)));
         this.chunkTickList.clear();
         this.clearChunksOnTick = this.server.getPropertyBoolean("clear-chunk-tick-list", true);
         this.temporalVector = new Vector3(0, 0, 0);
@@ -402,10 +463,27 @@ public class Level implements ChunkManager, Metadatable {
         }
     }
 
+    /**
+     * Check whether blocks with the given id receive random ticks
+     *
+     * @param blockId block id
+     * @return can randomly tick
+     */
+    public static boolean isRandomTickable(int blockId) {
+        return blockId >= 0 && blockId < randomTickBlocks.length && randomTickBlocks[blockId];
+    }
+
     public static long chunkHash(int x, int z) {
         return (((long) x) << 32) | (z & 0xffffffffL);
     }
 
+    /**
+     * Hash of a sub chunk position, covering the full height range of a level
+     */
+    public static long subChunkHash(int x, int y, int z) {
+        return (((long) x & 0x3ffffffL) << 38) | (((long) z & 0x3ffffffL) << 12) | (y & 0xfff);
+    }
+
     public static long blockHash(int x, int y, int z) {
         if (y < 0 || y >= 256) {
             throw new IllegalArgumentException("Y coordinate " + y + " is out of range!");
@@ -454,7 +532,7 @@ public class Level implements ChunkManager, Metadatable {
 
     public static int generateChunkLoaderId(ChunkLoader loader) {
         if (loader.getLoaderId() == 0) {
-            return chunkLoaderCounter++;
+            return chunkLoaderCounter.getAndIncrement();
         } else {
             throw new IllegalStateException("ChunkLoader has a loader id already assigned: " + loader.getLoaderId());
         }
@@ -914,7 +992,7 @@ public class Level implements ChunkManager, Metadatable {
 
         this.cancelUnloadChunkRequest(hash);
 
-        if (autoLoad) {
+        if (autoLoad && this.loadChunkAsync(chunkX, chunkZ, true) == null) {
             this.loadChunk(chunkX, chunkZ);
         }
     }
@@ -969,7 +1047,7 @@ public class Level implements ChunkManager, Metadatable {
 
     @SuppressWarnings("unchecked")
     public void doTick(int currentTick) {
-        updateBlockLight(lightQueue);
+        this.processLightUpdates();
         this.checkTime();
 
         if (/*stopTime || !this.gameRules.getBoolean(GameRule.DO_DAYLIGHT_CYCLE) ||*/ currentTick % 6000 == 0) { // Keep the time in sync
@@ -1042,21 +1120,34 @@ public class Level implements ChunkManager, Metadatable {
             }
         }
 
-        if (!this.updateEntities.isEmpty()) {
-            for (long id : this.updateEntities.keySetLong()) {
-                Entity entity = this.updateEntities.get(id);
-                if (entity == null) {
-                    this.updateEntities.remove(id);
-                    continue;
-                }
-                if (entity.closed || !entity.onUpdate(currentTick)) {
-                    this.updateEntities.remove(id);
+        try {
+            this.explosionBatch.startTick();
+            if (!this.updateEntities.isEmpty()) {
+                this.entityActivation.update();
+                for (long id : this.updateEntities.keySetLong()) {
+                    Entity entity = this.updateEntities.get(id);
+                    if (entity == null) {
+                        this.updateEntities.remove(id);
+                        continue;
+                    }
+                    if (!entity.closed && !this.entityActivation.shouldTick(entity, currentTick)) {
+                        continue;
+                    }
+                    if (entity.closed || !entity.onUpdate(currentTick)) {
+                        this.updateEntities.remove(id);
+                    }
                 }
             }
+        } finally {
+            this.explosionBatch.flush();
         }
 
+        this.entityMerger.tick(this.levelCurrentTick);
+
         this.updateBlockEntities.removeIf(blockEntity -> !blockEntity.isValid() || !blockEntity.onUpdate());
 
+        this.pathScheduler.tick();
+
         this.tickChunks();
 
         synchronized (changedBlocks) {
@@ -1069,20 +1160,13 @@ public class Level implements ChunkManager, Metadatable {
                         Map<Character, Object> blocks = entry.getValue().get();
                         int chunkX = Level.getHashX(index);
                         int chunkZ = Level.getHashZ(index);
-                        if (blocks == null || blocks.size() > MAX_BLOCK_CACHE) {
+                        if (blocks == null || blocks.size() > MAX_SUB_CHUNK_BLOCK_CACHE) {
                             FullChunk chunk = this.getChunk(chunkX, chunkZ);
                             for (Player p : this.getChunkPlayers(chunkX, chunkZ).values()) {
                                 p.onChunkChanged(chunk);
                             }
                         } else {
-                            Player[] playerArray = this.getChunkPlayers(chunkX, chunkZ).values().toArray(Player.EMPTY_ARRAY);
-                            Vector3[] blocksArray = new Vector3[blocks.size()];
-                            int i = 0;
-                            for (char blockHash : blocks.keySet()) {
-                                Vector3 hash = getBlockXYZ(index, blockHash);
-                                blocksArray[i++] = hash;
-                            }
-                            this.sendBlocks(playerArray, blocksArray, UpdateBlockPacket.FLAG_ALL);
+                            this.sendChangedBlocks(index, blocks);
                         }
                     }
                 }
@@ -1094,10 +1178,20 @@ public class Level implements ChunkManager, Metadatable {
             NetworkChunkSerializer.NetworkChunkSerializerCallbackData data;
             int count = (this.getPlayers().size() + 1) * this.server.chunksPerTick;
             for (int i = 0; i < count && (data = this.asyncChunkRequestCallbackQueue.poll()) != null; ++i) {
-                this.chunkRequestCallback(data.getProtocol(), data.getTimestamp(), data.getX(), data.getZ(), data.getSubChunkCount(), data.getPayload());
+                this.chunkRequestCallback(data.getProtocol(), data.getTimestamp(), data.getX(), data.getZ(), data.getSubChunkCount(), data.getPayload(), data.getBlobs());
             }
         }
 
+        Runnable chunkLoadCallback;
+        while ((chunkLoadCallback = this.chunkLoadCallbacks.poll()) != null) {
+            chunkLoadCallback.run();
+        }
+
+        Runnable subChunkCallback;
+        while ((subChunkCallback = this.subChunkCallbacks.poll()) != null) {
+            subChunkCallback.run();
+        }
+
         this.processChunkRequest();
 
         if (this.sleepTicks > 0 && --this.sleepTicks <= 0) {
@@ -1299,12 +1393,96 @@ public class Level implements ChunkManager, Metadatable {
                     throw new IllegalStateException("Unable to create BlockUpdatePacket at (" + b.x + ", " + b.y + ", " + b.z + ") in " + getName() + " for players with protocol " + protocolId);
                 }
 
-                for (Player player : players) {
-                    if (player.protocol < ProtocolInfo.v1_4_0 && dataLayer > 0) {
-                        continue; //1.4以前的版本不支持dataLayer
+                if (protocolId < ProtocolInfo.v1_4_0 && dataLayer > 0) {
+                    continue; //1.4以前的版本不支持dataLayer
+                }
+                Server.broadcastPacket(players, packet);
+            }
+        }
+    }
+
+    /**
+     * Send the changed blocks of a chunk to the players using it. Clients supporting it get one packet per sub chunk,
+     * older clients one packet per block or the whole chunk if more than {@link #MAX_BLOCK_CACHE} blocks were changed.
+     */
+    private void sendChangedBlocks(long index, Map<Character, Object> blocks) {
+        int chunkX = Level.getHashX(index);
+        int chunkZ = Level.getHashZ(index);
+        Map<Integer, Player> players = this.getChunkPlayers(chunkX, chunkZ);
+        if (players.isEmpty()) {
+            return;
+        }
+
+        List<Player> subChunkPlayers = new ArrayList<>();
+        List<Player> blockPlayers = new ArrayList<>();
+        FullChunk chunk = null;
+        for (Player player : players.values()) {
+            if (player.protocol >= ProtocolInfo.v1_17_30) {
+                subChunkPlayers.add(player);
+            } else if (blocks.size() > MAX_BLOCK_CACHE) {
+                if (chunk == null) {
+                    chunk = this.getChunk(chunkX, chunkZ);
+                }
+                player.onChunkChanged(chunk);
+            } else {
+                blockPlayers.add(player);
+            }
+        }
+        if (subChunkPlayers.isEmpty() && blockPlayers.isEmpty()) {
+            return;
+        }
+
+        Vector3[] blocksArray = new Vector3[blocks.size()];
+        int i = 0;
+        for (char blockHash : blocks.keySet()) {
+            blocksArray[i++] = getBlockXYZ(index, blockHash);
+        }
+        if (!subChunkPlayers.isEmpty()) {
+            this.sendSubChunkBlocks(subChunkPlayers.toArray(Player.EMPTY_ARRAY), blocksArray, UpdateBlockPacket.FLAG_ALL);
+        }
+        if (!blockPlayers.isEmpty()) {
+            this.sendBlocks(blockPlayers.toArray(Player.EMPTY_ARRAY), blocksArray, UpdateBlockPacket.FLAG_ALL);
+        }
+    }
+
+    /**
+     * Send blocks grouped into one {@link UpdateSubChunkBlocksPacket} per sub chunk.
+     * All target players must use {@link ProtocolInfo#v1_17_30} or newer.
+     */
+    public void sendSubChunkBlocks(Player[] target, Vector3[] blocks, int flags) {
+        Long2ObjectMap<List<Vector3>> subChunks = new Long2ObjectOpenHashMap<>();
+        for (Vector3 b : blocks) {
+            if (b != null) {
+                subChunks.computeIfAbsent(Level.subChunkHash((int) b.x >> 4, (int) b.y >> 4, (int) b.z >> 4), k -> new ArrayList<>()).add(b);
+            }
+        }
+
+        Int2ObjectMap<ObjectList<Player>> targets = Server.sortPlayers(target);
+        for (List<Vector3> subChunk : subChunks.values()) {
+            Vector3 first = subChunk.get(0);
+            int subChunkX = (int) first.x >> 4;
+            int subChunkY = (int) first.y >> 4;
+            int subChunkZ = (int) first.z >> 4;
+            for (Int2ObjectMap.Entry<ObjectList<Player>> entry : targets.int2ObjectEntrySet()) {
+                int protocolId = entry.getIntKey();
+                UpdateSubChunkBlocksPacket packet = new UpdateSubChunkBlocksPacket(subChunkX, subChunkY, subChunkZ);
+                for (Vector3 b : subChunk) {
+                    int x = (int) b.x;
+                    int y = (int) b.y;
+                    int z = (int) b.z;
+                    int runtimeId;
+                    try {
+                        if (b instanceof Block) {
+                            runtimeId = GlobalBlockPalette.getOrCreateRuntimeId(protocolId, ((Block) b).getId(), ((Block) b).getDamage());
+                        } else {
+                            runtimeId = this.getBlockRuntimeId(protocolId, x, y, z, 0);
+                        }
+                    } catch (NoSuchElementException e) {
+                        throw new IllegalStateException("Unable to create UpdateSubChunkBlocksPacket at (" + x + ", " + y + ", " + z + ") in " + getName() + " for players with protocol " + protocolId);
                     }
-                    player.dataPacket(packet);
+                    packet.standardBlocks.add(new BlockChangeEntry(new BlockVector3(x, y, z), runtimeId, flags, 0, BlockChangeEntry.MessageType.NONE));
                 }
+                Server.broadcastPacket(entry.getValue(), packet);
             }
         }
     }
@@ -1402,7 +1580,8 @@ public class Level implements ChunkManager, Metadatable {
                     final int randomTickSpeed = gameRules.getInteger(GameRule.RANDOM_TICK_SPEED);
                     if (this.useSections) {
                         for (ChunkSection section : ((Chunk) chunk).getSections()) {
-                            if (!(section instanceof EmptyChunkSection)) {
+                            // Sections without random tickable blocks (e.g. only stone or air) are skipped
+                            if (!(section instanceof EmptyChunkSection) && section.getRandomTickableCount() != 0) {
                                 int Y = section.getY();
                                 for (int i = 0; i < randomTickSpeed; ++i) {
                                     int lcg = this.getUpdateLCG();
@@ -1650,7 +1829,7 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public Block[] getCollisionBlocks(AxisAlignedBB bb, boolean targetFirst, boolean ignoreCollidesCheck) {
-        return getCollisionBlocks(bb, targetFirst, ignoreCollidesCheck, block -> block.getId() != 0);
+        return getCollisionBlocks(bb, targetFirst, ignoreCollidesCheck, NOT_AIR);
     }
 
     public Block[] getCollisionBlocks(AxisAlignedBB bb, boolean targetFirst, boolean ignoreCollidesCheck, Predicate<Block> condition) {
@@ -1661,32 +1840,36 @@ public class Level implements ChunkManager, Metadatable {
         int maxY = NukkitMath.ceilDouble(bb.getMaxY());
         int maxZ = NukkitMath.ceilDouble(bb.getMaxZ());
 
-        List<Block> collides = new ArrayList<>();
-
-        if (targetFirst) {
+        List<Block> collides = null;
+        BlockCursor cursor = BlockCursor.get();
+        try {
             for (int z = minZ; z <= maxZ; ++z) {
                 for (int x = minX; x <= maxX; ++x) {
                     for (int y = minY; y <= maxY; ++y) {
-                        Block block = this.getBlock(x, y, z, false);
-                        if (block != null && condition.test(block) && (ignoreCollidesCheck || block.collidesWithBB(bb))) {
-                            return new Block[]{block};
+                        BlockStateInfo state = cursor.getState(this, x, y, z);
+                        if (condition == NOT_AIR && state.isAir()) {
+                            continue;
+                        }
+                        if (!ignoreCollidesCheck && !state.collidesWithBB(this, x, y, z, bb)) {
+                            continue;
                         }
-                    }
-                }
-            }
-        } else {
-            for (int z = minZ; z <= maxZ; ++z) {
-                for (int x = minX; x <= maxX; ++x) {
-                    for (int y = minY; y <= maxY; ++y) {
                         Block block = this.getBlock(x, y, z, false);
                         if (block != null && condition.test(block) && (ignoreCollidesCheck || block.collidesWithBB(bb))) {
+                            if (targetFirst) {
+                                return new Block[]{block};
+                            }
+                            if (collides == null) {
+                                collides = new ArrayList<>();
+                            }
                             collides.add(block);
                         }
                     }
                 }
             }
+        } finally {
+            cursor.clear();
         }
-        return collides.toArray(new Block[0]);
+        return collides == null ? NO_BLOCKS : collides.toArray(NO_BLOCKS);
     }
 
     public boolean hasCollisionBlocks(AxisAlignedBB bb) {
@@ -1701,15 +1884,20 @@ public class Level implements ChunkManager, Metadatable {
         int maxY = NukkitMath.ceilDouble(bb.getMaxY());
         int maxZ = NukkitMath.ceilDouble(bb.getMaxZ());
 
-        for (int z = minZ; z <= maxZ; ++z) {
-            for (int x = minX; x <= maxX; ++x) {
-                for (int y = minY; y <= maxY; ++y) {
-                    Block block = this.getBlock(entity != null ? entity.chunk : null, x, y, z, 0, false);
-                    if (block != null && block.getId() != 0 && block.collidesWithBB(bb)) {
-                        return true;
+        BlockCursor cursor = BlockCursor.get();
+        try {
+            for (int z = minZ; z <= maxZ; ++z) {
+                for (int x = minX; x <= maxX; ++x) {
+                    for (int y = minY; y <= maxY; ++y) {
+                        BlockStateInfo state = cursor.getState(this, x, y, z);
+                        if (!state.isAir() && state.collidesWithBB(this, x, y, z, bb)) {
+                            return true;
+                        }
                     }
                 }
             }
+        } finally {
+            cursor.clear();
         }
 
         return false;
@@ -1747,18 +1935,23 @@ public class Level implements ChunkManager, Metadatable {
 
         List<AxisAlignedBB> collides = new ArrayList<>();
 
-        for (int z = minZ; z <= maxZ; ++z) {
-            for (int x = minX; x <= maxX; ++x) {
-                for (int y = minY; y <= maxY; ++y) {
-                    Block block = this.getBlock(x, y, z, false);
-                    if (block.getId() == BlockID.BARRIER && entity.canPassThroughBarrier()) {
-                        continue;
-                    }
-                    if (!block.canPassThrough() && block.collidesWithBB(bb)) {
-                        collides.add(block.getBoundingBox());
+        BlockCursor cursor = BlockCursor.get();
+        try {
+            for (int z = minZ; z <= maxZ; ++z) {
+                for (int x = minX; x <= maxX; ++x) {
+                    for (int y = minY; y <= maxY; ++y) {
+                        BlockStateInfo state = cursor.getState(this, x, y, z);
+                        if (state.isAir() || state.getId() == BlockID.BARRIER && entity.canPassThroughBarrier()) {
+                            continue;
+                        }
+                        if (!state.canPassThrough(this, x, y, z) && state.collidesWithBB(this, x, y, z, bb)) {
+                            collides.add(state.getBoundingBox(this, x, y, z));
+                        }
                     }
                 }
             }
+        } finally {
+            cursor.clear();
         }
 
         if (entities || solidEntities) {
@@ -1780,15 +1973,20 @@ public class Level implements ChunkManager, Metadatable {
         int maxY = NukkitMath.ceilDouble(bb.getMaxY());
         int maxZ = NukkitMath.ceilDouble(bb.getMaxZ());
 
-        for (int z = minZ; z <= maxZ; ++z) {
-            for (int x = minX; x <= maxX; ++x) {
-                for (int y = minY; y <= maxY; ++y) {
-                    Block block = this.getBlock(x, y, z, false);
-                    if (!block.canPassThrough() && block.collidesWithBB(bb)) {
-                        return true;
+        BlockCursor cursor = BlockCursor.get();
+        try {
+            for (int z = minZ; z <= maxZ; ++z) {
+                for (int x = minX; x <= maxX; ++x) {
+                    for (int y = minY; y <= maxY; ++y) {
+                        BlockStateInfo state = cursor.getState(this, x, y, z);
+                        if (!state.isAir() && !state.canPassThrough(this, x, y, z) && state.collidesWithBB(this, x, y, z, bb)) {
+                            return true;
+                        }
                     }
                 }
             }
+        } finally {
+            cursor.clear();
         }
 
         if (entities) {
@@ -1917,6 +2115,29 @@ public class Level implements ChunkManager, Metadatable {
         return this.getBlock(null, x, y, z, layer, load);
     }
 
+    /**
+     * Get the shared state of a block without creating a block instance. Chunks are not loaded, air is returned for
+     * unloaded chunks like {@link #getBlock(int, int, int, boolean)} does.
+     */
+    public BlockStateInfo getBlockStateInfo(int x, int y, int z) {
+        return this.getBlockStateInfo(null, x, y, z);
+    }
+
+    public BlockStateInfo getBlockStateInfo(FullChunk chunk, int x, int y, int z) {
+        if (!isYInRange(y)) {
+            return BlockStateInfo.get(BlockID.AIR);
+        }
+        int cx = x >> 4;
+        int cz = z >> 4;
+        if (chunk == null || chunk.getX() != cx || chunk.getZ() != cz) {
+            chunk = getChunkIfLoaded(cx, cz);
+            if (chunk == null) {
+                return BlockStateInfo.get(BlockID.AIR);
+            }
+        }
+        return BlockStateInfo.get(chunk.getFullBlock(x & 0x0f, y, z & 0x0f, 0));
+    }
+
     public Block getBlock(FullChunk chunk, int x, int y, int z, int layer, boolean load) {
         int[] fullState;
         if (isYInRange(y)) {
@@ -1948,146 +2169,84 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public synchronized void updateAllLight(Vector3 pos) {
-        this.updateBlockSkyLight((int) pos.x, (int) pos.y, (int) pos.z);
+        // Queued light updates recalculate block and sky light
         this.addLightUpdate((int) pos.x, (int) pos.y, (int) pos.z);
     }
 
+    /**
+     * Queue a sky light update, processed together with the other light updates on the next tick
+     */
     public void updateBlockSkyLight(int x, int y, int z) {
+        if (this.isOverWorld()) {
+            this.skyLightEngine.addUpdate(x, y, z);
+        }
     }
 
+    /**
+     * Recalculate the light of blocks given by chunk hash and {@link #localBlockHash(double, double, double)}.
+     * The local hash only holds y 0 to 255, queued updates of the level use {@link #addLightUpdate(int, int, int)}.
+     */
     public void updateBlockLight(Map<Long, Map<Character, Object>> map) {
-        int size = map.size();
-        if (size == 0) {
-            return;
-        }
-        Queue<Long> lightPropagationQueue = new ConcurrentLinkedQueue<>();
-        Queue<Object[]> lightRemovalQueue = new ConcurrentLinkedQueue<>();
-        Long2ObjectOpenHashMap<Object> visited = new Long2ObjectOpenHashMap<>();
-        Long2ObjectOpenHashMap<Object> removalVisited = new Long2ObjectOpenHashMap<>();
-
+        boolean skyLight = this.isOverWorld();
         Iterator<Map.Entry<Long, Map<Character, Object>>> iter = map.entrySet().iterator();
-        while (iter.hasNext() && size-- > 0) {
+        while (iter.hasNext()) {
             Map.Entry<Long, Map<Character, Object>> entry = iter.next();
             iter.remove();
             long index = entry.getKey();
-            Map<Character, Object> blocks = entry.getValue();
-            int chunkX = Level.getHashX(index);
-            int chunkZ = Level.getHashZ(index);
-            int bx = chunkX << 4;
-            int bz = chunkZ << 4;
-            for (char blockHash : blocks.keySet()) {
+            int bx = Level.getHashX(index) << 4;
+            int bz = Level.getHashZ(index) << 4;
+            for (char blockHash : entry.getValue().keySet()) {
                 int hi = (byte) (blockHash >>> 8);
                 int lo = (byte) blockHash;
-                int y = lo & 0xFF;
                 int x = (hi & 0xF) + bx;
+                int y = lo & 0xFF;
                 int z = ((hi >> 4) & 0xF) + bz;
-                BaseFullChunk chunk = getChunk(x >> 4, z >> 4, false);
-                if (chunk != null) {
-                    int lcx = x & 0xF;
-                    int lcz = z & 0xF;
-                    int oldLevel = chunk.getBlockLight(lcx, y, lcz);
-                    int newLevel = Block.getBlockLight(chunk.getBlockId(lcx, y, lcz));
-                    if (oldLevel != newLevel) {
-                        this.setBlockLightAt(x, y, z, newLevel);
-                        long hash = Hash.hashBlock(x, y, z);
-                        if (newLevel < oldLevel) {
-                            removalVisited.put(hash, changeBlocksPresent);
-                            lightRemovalQueue.add(new Object[]{hash, oldLevel});
-                        } else {
-                            visited.put(hash, changeBlocksPresent);
-                            lightPropagationQueue.add(hash);
-                        }
-                    }
+                this.blockLightEngine.addUpdate(x, y, z);
+                if (skyLight) {
+                    this.skyLightEngine.addUpdate(x, y, z);
                 }
             }
         }
 
-        while (!lightRemovalQueue.isEmpty()) {
-            Object[] val = lightRemovalQueue.poll();
-            long node = (long) val[0];
-            int x = Hash.hashBlockX(node);
-            int y = Hash.hashBlockY(node);
-            int z = Hash.hashBlockZ(node);
-
-            int lightLevel = (int) val[1];
-
-            this.computeRemoveBlockLight(x - 1, y, z, lightLevel, lightRemovalQueue, lightPropagationQueue, removalVisited, visited);
-            this.computeRemoveBlockLight(x + 1, y, z, lightLevel, lightRemovalQueue, lightPropagationQueue, removalVisited, visited);
-            this.computeRemoveBlockLight(x, y - 1, z, lightLevel, lightRemovalQueue, lightPropagationQueue, removalVisited, visited);
-            this.computeRemoveBlockLight(x, y + 1, z, lightLevel, lightRemovalQueue, lightPropagationQueue, removalVisited, visited);
-            this.computeRemoveBlockLight(x, y, z - 1, lightLevel, lightRemovalQueue, lightPropagationQueue, removalVisited, visited);
-            this.computeRemoveBlockLight(x, y, z + 1, lightLevel, lightRemovalQueue, lightPropagationQueue, removalVisited, visited);
-        }
-
-        while (!lightPropagationQueue.isEmpty()) {
-            long node = lightPropagationQueue.poll();
-
-            int x = Hash.hashBlockX(node);
-            int y = Hash.hashBlockY(node);
-            int z = Hash.hashBlockZ(node);
-
-            int id = this.getBlockIdAt(x, y, z);
-            int lightFilter = id >= Block.MAX_BLOCK_ID ? 15 : Block.lightFilter[id];
-            int lightLevel = this.getBlockLightAt(x, y, z) - lightFilter;
-
-            if (lightLevel >= 1) {
-                this.computeSpreadBlockLight(x - 1, y, z, lightLevel, lightPropagationQueue, visited);
-                this.computeSpreadBlockLight(x + 1, y, z, lightLevel, lightPropagationQueue, visited);
-                this.computeSpreadBlockLight(x, y - 1, z, lightLevel, lightPropagationQueue, visited);
-                this.computeSpreadBlockLight(x, y + 1, z, lightLevel, lightPropagationQueue, visited);
-                this.computeSpreadBlockLight(x, y, z - 1, lightLevel, lightPropagationQueue, visited);
-                this.computeSpreadBlockLight(x, y, z + 1, lightLevel, lightPropagationQueue, visited);
-            }
-        }
+        this.blockLightEngine.process();
+        this.skyLightEngine.process();
     }
 
-    private void computeRemoveBlockLight(int x, int y, int z, int currentLight, Queue<Object[]> queue,
-                                         Queue<Long> spreadQueue, Map<Long, Object> visited, Map<Long, Object> spreadVisited) {
-        int current = this.getBlockLightAt(x, y, z);
-        if (current != 0 && current < currentLight) {
-            this.setBlockLightAt(x, y, z, 0);
-            if (current > 1) {
-                long index = Hash.hashBlock(x, y, z);
-                if (!visited.containsKey(index)) {
-                    visited.put(index, changeBlocksPresent);
-                    queue.add(new Object[]{index, current});
-                }
-            }
-        } else if (current >= currentLight) {
-            long index = Hash.hashBlock(x, y, z);
-            if (!spreadVisited.containsKey(index)) {
-                spreadVisited.put(index, changeBlocksPresent);
-                spreadQueue.add(index);
+    private void processLightUpdates() {
+        boolean skyLight = this.isOverWorld();
+        int size = this.lightQueue.size();
+        Iterator<Long> iter = this.lightQueue.iterator();
+        while (iter.hasNext() && size-- > 0) {
+            long pos = iter.next();
+            iter.remove();
+            int x = LightEngine.unpackX(pos);
+            int y = LightEngine.unpackY(pos);
+            int z = LightEngine.unpackZ(pos);
+            this.blockLightEngine.addUpdate(x, y, z);
+            if (skyLight) {
+                this.skyLightEngine.addUpdate(x, y, z);
             }
         }
-    }
-
-    private void computeSpreadBlockLight(int x, int y, int z, int currentLight, Queue<Long> queue,
-                                         Map<Long, Object> visited) {
-        int current = this.getBlockLightAt(x, y, z);
-        if (current < currentLight - 1) {
-            this.setBlockLightAt(x, y, z, currentLight);
 
-            long index = Hash.hashBlock(x, y, z);
-            if (!visited.containsKey(index)) {
-                visited.put(index, changeBlocksPresent);
-                if (currentLight > 1) {
-                    queue.add(index);
-                }
-            }
+        // All changes of the tick are propagated together
+        if (this.blockLightEngine.hasUpdates()) {
+            this.blockLightEngine.process();
+        }
+        if (this.skyLightEngine.hasUpdates()) {
+            this.skyLightEngine.process();
         }
     }
 
-    private final Map<Long, Map<Character, Object>> lightQueue = new ConcurrentHashMap<>(8, 0.9f, 1);
+    /**
+     * Blocks whose light is recalculated on the next tick, packed with {@link LightEngine#pack(int, int, int)}
+     * to cover the full height range of the level
+     */
+    private final Set<Long> lightQueue = ConcurrentHashMap.newKeySet();
+    private final BlockLightEngine blockLightEngine = new BlockLightEngine(this);
+    private final SkyLightEngine skyLightEngine = new SkyLightEngine(this);
 
     public void addLightUpdate(int x, int y, int z) {
-        long index = chunkHash(x >> 4, z >> 4);
-        Map<Character, Object> currentMap = lightQueue.get(index);
-        if (currentMap == null) {
-            currentMap = new ConcurrentHashMap<>(8, 0.9f, 1);
-            this.lightQueue.put(index, currentMap);
-        }
-        currentMap.put(Level.localBlockHash(x, y, z), changeBlocksPresent);
+        this.lightQueue.add(LightEngine.pack(x, y, z));
     }
 
     @Override
@@ -2138,6 +2297,7 @@ public class Level implements ChunkManager, Metadatable {
         if (blockPrevious.getFullId() == block.getFullId()) {
             return false;
         }
+        this.pathScheduler.getCache().invalidate(x, y, z);
         block.x = x;
         block.y = y;
         block.z = z;
@@ -2165,7 +2325,9 @@ public class Level implements ChunkManager, Metadatable {
             loader.onBlockChanged(block);
         }
         if (update) {
-            if (blockPrevious.isTransparent() != block.isTransparent() || blockPrevious.getLightLevel() != block.getLightLevel()) {
+            if (blockPrevious.isTransparent() != block.isTransparent() || blockPrevious.getLightLevel() != block.getLightLevel()
+                    || blockPrevious.diffusesSkyLight() != block.diffusesSkyLight()
+                    || Block.getBlockLightFilter(blockPrevious.getId()) != Block.getBlockLightFilter(block.getId())) {
                 addLightUpdate(x, y, z);
             }
             BlockUpdateEvent ev = new BlockUpdateEvent(block);
@@ -2196,7 +2358,7 @@ public class Level implements ChunkManager, Metadatable {
             SoftReference<Map<Character, Object>> current = changedBlocks.computeIfAbsent(index, k -> new SoftReference<>(new HashMap<>()));
             Map<Character, Object> currentMap = current.get();
             if (currentMap != changeBlocksFullMap && currentMap != null) {
-                if (currentMap.size() > MAX_BLOCK_CACHE) {
+                if (currentMap.size() > MAX_SUB_CHUNK_BLOCK_CACHE) {
                     this.changedBlocks.put(index, new SoftReference<>(changeBlocksFullMap));
                 } else {
                     currentMap.put(Level.localBlockHash(x, y, z), changeBlocksPresent);
@@ -2905,27 +3067,21 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public Entity[] getCollidingEntities(AxisAlignedBB bb, Entity entity) {
-        List<Entity> nearby = new ArrayList<>();
-
-        if (entity == null || entity.canCollide()) {
-            int minX = NukkitMath.floorDouble((bb.getMinX() - 2) / 16);
-            int maxX = NukkitMath.ceilDouble((bb.getMaxX() + 2) / 16);
-            int minZ = NukkitMath.floorDouble((bb.getMinZ() - 2) / 16);
-            int maxZ = NukkitMath.ceilDouble((bb.getMaxZ() + 2) / 16);
+        if (entity != null && !entity.canCollide()) {
+            return EMPTY_ENTITY_ARR;
+        }
 
-            for (int x = minX; x <= maxX; ++x) {
-                for (int z = minZ; z <= maxZ; ++z) {
-                    for (Entity ent : this.getChunkEntities(x, z, false).values()) {
-                        if ((entity == null || (ent != entity && entity.canCollideWith(ent)))
-                                && ent.boundingBox.intersectsWith(bb)) {
-                            nearby.add(ent);
-                        }
-                    }
-                }
-            }
+        List<Entity> nearby = new ArrayList<>();
+        if (this.isTickThread()) {
+            this.entityIndex.getEntities(bb, entity, nearby);
+        } else {
+            this.collectChunkEntities(bb, entity, false, nearby);
+        }
+        if (entity != null) {
+            nearby.removeIf(ent -> !entity.canCollideWith(ent));
         }
 
-        return nearby.toArray(new Entity[0]);
+        return nearby.isEmpty() ? EMPTY_ENTITY_ARR : nearby.toArray(EMPTY_ENTITY_ARR);
     }
 
     public Entity[] getNearbyEntities(AxisAlignedBB bb) {
@@ -2933,51 +3089,110 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     private static final Entity[] EMPTY_ENTITY_ARR = new Entity[0];
-    private static final Entity[] ENTITY_BUFFER = new Entity[512];
 
     public Entity[] getNearbyEntities(AxisAlignedBB bb, Entity entity) {
         return getNearbyEntities(bb, entity, false);
     }
 
     public Entity[] getNearbyEntities(AxisAlignedBB bb, Entity entity, boolean loadChunks) {
-        int index = 0;
+        List<Entity> nearby = new ArrayList<>();
+        if (!this.isTickThread()) {
+            this.collectChunkEntities(bb, entity, loadChunks, nearby);
+            return nearby.isEmpty() ? EMPTY_ENTITY_ARR : nearby.toArray(EMPTY_ENTITY_ARR);
+        }
 
-        int minX = NukkitMath.floorDouble((bb.getMinX() - 2) * 0.0625);
-        int maxX = NukkitMath.ceilDouble((bb.getMaxX() + 2) * 0.0625);
-        int minZ = NukkitMath.floorDouble((bb.getMinZ() - 2) * 0.0625);
-        int maxZ = NukkitMath.ceilDouble((bb.getMaxZ() + 2) * 0.0625);
+        if (loadChunks) {
+            // Entities of the loaded chunks are added to the index when they are created
+            int minX = NukkitMath.floorDouble((bb.getMinX() - 2) * 0.0625);
+            int maxX = NukkitMath.ceilDouble((bb.getMaxX() + 2) * 0.0625);
+            int minZ = NukkitMath.floorDouble((bb.getMinZ() - 2) * 0.0625);
+            int maxZ = NukkitMath.ceilDouble((bb.getMaxZ() + 2) * 0.0625);
 
-        ArrayList<Entity> overflow = null;
+            for (int x = minX; x <= maxX; ++x) {
+                for (int z = minZ; z <= maxZ; ++z) {
+                    this.getChunk(x, z, true);
+                }
+            }
+        }
+
+        this.entityIndex.getEntities(bb, entity, nearby);
+        return nearby.isEmpty() ? EMPTY_ENTITY_ARR : nearby.toArray(EMPTY_ENTITY_ARR);
+    }
+
+    /**
+     * Check whether the current thread ticks this level and may use the entity index
+     */
+    private boolean isTickThread() {
+        Level ticking = Server.getTickingLevel();
+        return ticking != null ? ticking == this : this.server.isPrimaryThread();
+    }
+
+    /**
+     * Collect the entities intersecting with a box from the entity maps of the chunks, for callers outside the level thread
+     */
+    private void collectChunkEntities(AxisAlignedBB bb, Entity entity, boolean loadChunks, List<Entity> result) {
+        double margin = this.entityIndex.getHorizontalMargin();
+        int minX = NukkitMath.floorDouble((bb.getMinX() - margin) * 0.0625);
+        int maxX = NukkitMath.ceilDouble((bb.getMaxX() + margin) * 0.0625);
+        int minZ = NukkitMath.floorDouble((bb.getMinZ() - margin) * 0.0625);
+        int maxZ = NukkitMath.ceilDouble((bb.getMaxZ() + margin) * 0.0625);
 
         for (int x = minX; x <= maxX; ++x) {
             for (int z = minZ; z <= maxZ; ++z) {
                 for (Entity ent : this.getChunkEntities(x, z, loadChunks).values()) {
                     if (ent != entity && ent.boundingBox.intersectsWith(bb)) {
-                        if (index < ENTITY_BUFFER.length) {
-                            ENTITY_BUFFER[index] = ent;
-                        } else {
-                            if (overflow == null) overflow = new ArrayList<>(1024);
-                            overflow.add(ent);
-                        }
-                        index++;
+                        result.add(ent);
                     }
                 }
             }
         }
+    }
 
-        if (index == 0) return EMPTY_ENTITY_ARR;
-        Entity[] copy;
-        if (overflow == null) {
-            copy = Arrays.copyOfRange(ENTITY_BUFFER, 0, index);
-            Arrays.fill(ENTITY_BUFFER, 0, index, null);
-        } else {
-            copy = new Entity[ENTITY_BUFFER.length + overflow.size()];
-            System.arraycopy(ENTITY_BUFFER, 0, copy, 0, ENTITY_BUFFER.length);
-            for (int i = 0; i < overflow.size(); i++) {
-                copy[ENTITY_BUFFER.length + i] = overflow.get(i);
-            }
-        }
-        return copy;
+    /**
+     * Get the spatial index of the entities in this level.
+     * Queries of the index do not allocate and should be preferred over {@link #getEntities()} and
+     * {@link #getNearbyEntities(AxisAlignedBB)} in code running every tick.
+     *
+     * @return entity index
+     */
+    public EntitySpatialIndex getEntityIndex() {
+        return this.entityIndex;
+    }
+
+    /**
+     * Get the activation of the entities in this level, which decides whether an entity is ticked every tick
+     *
+     * @return entity activation
+     */
+    public EntityActivation getEntityActivation() {
+        return this.entityActivation;
+    }
+
+    /**
+     * Get the merger of the dropped items and experience orbs in this level
+     *
+     * @return entity merger
+     */
+    public EntityMerger getEntityMerger() {
+        return this.entityMerger;
+    }
+
+    /**
+     * Get the batch removing the blocks destroyed by explosions in this level
+     *
+     * @return explosion batch
+     */
+    public ExplosionBatch getExplosionBatch() {
+        return this.explosionBatch;
+    }
+
+    /**
+     * Get the scheduler running the path searches of walking entities in this level
+     *
+     * @return path scheduler
+     */
+    public PathScheduler getPathScheduler() {
+        return this.pathScheduler;
     }
 
     @NonComputationAtomic
@@ -3063,6 +3278,7 @@ public class Level implements ChunkManager, Metadatable {
     @Override
     public void setBlockIdAt(int x, int y, int z, int layer, int id) {
         this.getChunk(x >> 4, z >> 4, true).setBlockId(x & 0x0f, ensureY(y), z & 0x0f, layer, id & Block.ID_MASK);
+        this.pathScheduler.getCache().invalidate(x, y, z);
         addBlockChange(x, y, z);
         temporalVector.setComponents(x, y, z);
         for (ChunkLoader loader : this.getChunkLoaders(x >> 4, z >> 4)) {
@@ -3081,6 +3297,7 @@ public class Level implements ChunkManager, Metadatable {
         boolean changed = chunk.setBlockAtLayer(x & 0x0f, ensureY(y), z & 0x0f, layer, id & Block.ID_MASK, data & Block.DATA_MASK);
         chunk.setBlockId(x & 0x0f, ensureY(y), z & 0x0f, id & Block.ID_MASK);
         chunk.setBlockData(x & 0x0f, ensureY(y), z & 0x0f, data & Block.DATA_MASK);
+        this.pathScheduler.getCache().invalidate(x, y, z);
         addBlockChange(x, y, z);
         temporalVector.setComponents(x, y, z);
         for (ChunkLoader loader : this.getChunkLoaders(x >> 4, z >> 4)) {
@@ -3117,6 +3334,7 @@ public class Level implements ChunkManager, Metadatable {
     @Override
     public void setBlockDataAt(int x, int y, int z, int layer, int data) {
         this.getChunk(x >> 4, z >> 4, true).setBlockData(x & 0x0f, ensureY(y), z & 0x0f, layer, data & Block.DATA_MASK);
+        this.pathScheduler.getCache().invalidate(x, y, z);
         addBlockChange(x, y, z);
         temporalVector.setComponents(x, y, z);
         for (ChunkLoader loader : this.getChunkLoaders(x >> 4, z >> 4)) {
@@ -3247,6 +3465,7 @@ public class Level implements ChunkManager, Metadatable {
 
         long index = Level.chunkHash(chunkX, chunkZ);
         FullChunk oldChunk = this.getChunk(chunkX, chunkZ, false);
+        this.pathScheduler.getCache().invalidateChunk(chunkX, chunkZ);
 
         if (oldChunk != chunk) {
             if (unload && oldChunk != null) {
@@ -3632,10 +3851,101 @@ public class Level implements ChunkManager, Metadatable {
         Preconditions.checkState(player.getLoaderId() > 0, player.getName() + " has no chunk loader");
         long index = Level.chunkHash(x, z);
 
+        if (player.isSubChunkRequestMode() && this.getChunkIfLoaded(x, z) instanceof BaseChunk chunk) {
+            this.sendChunkColumn(x, z, chunk, player);
+            return;
+        }
+
         this.getChunkSendQueue(player.protocol).computeIfAbsent(index, k ->
                 new Int2ObjectOpenHashMap<>()).put(player.getLoaderId(), player);
     }
 
+    /**
+     * Send the header of a chunk to a player in sub chunk request mode, the sub chunks are sent when the client requests them
+     */
+    private void sendChunkColumn(int x, int z, BaseChunk chunk, Player player) {
+        LevelChunkPacket pk = new LevelChunkPacket();
+        pk.chunkX = x;
+        pk.chunkZ = z;
+        pk.dimension = this.getDimension();
+        pk.requestSubChunks = true;
+        pk.subChunkLimit = SubChunkSerializer.getRequestCount(chunk, this.dimensionData);
+        pk.data = SubChunkSerializer.serializeColumn(player.protocol, chunk, this.dimensionData);
+        player.sendChunk(x, z, pk);
+    }
+
+    /**
+     * Answer a sub chunk request of a player. Sub chunks are serialized on the async chunk thread if async chunk sending is enabled.
+     */
+    public void requestSubChunks(Player player, SubChunkRequestPacket request) {
+        SubChunkPacket pk = new SubChunkPacket();
+        pk.protocol = player.protocol;
+        pk.dimension = request.dimension;
+        pk.subChunkX = request.subChunkX;
+        pk.subChunkY = request.subChunkY;
+        pk.subChunkZ = request.subChunkZ;
+
+        int count = request.getOffsetCount();
+        int minSectionY = this.dimensionData.getMinSectionY();
+        int maxSectionY = minSectionY + (this.dimensionData.getHeight() >> 4) - 1;
+        SubChunkEntry[] entries = new SubChunkEntry[count];
+        // Copies of the requested sections and their block entities, taken here as the level keeps changing the chunks
+        ChunkSection[] sections = new ChunkSection[count];
+        byte[][] blockEntities = new byte[count][];
+        int[][] columnHeights = new int[count][];
+        Long2ObjectOpenHashMap<int[]> heights = new Long2ObjectOpenHashMap<>();
+        for (int i = 0; i < count; i++) {
+            int offsetX = request.offsets[i * 3];
+            int offsetY = request.offsets[i * 3 + 1];
+            int offsetZ = request.offsets[i * 3 + 2];
+            int sectionY = request.subChunkY + offsetY;
+            long index = Level.chunkHash(request.subChunkX + offsetX, request.subChunkZ + offsetZ);
+            if (request.dimension != this.getDimension()) {
+                entries[i] = SubChunkEntry.of(offsetX, offsetY, offsetZ, SubChunkEntry.Result.INVALID_DIMENSION);
+            } else if (sectionY < minSectionY || sectionY > maxSectionY) {
+                entries[i] = SubChunkEntry.of(offsetX, offsetY, offsetZ, SubChunkEntry.Result.INDEX_OUT_OF_BOUNDS);
+            } else if (player.usedChunks.get(index) != Boolean.TRUE || !(this.requireProvider().getLoadedChunk(index) instanceof BaseChunk chunk)) {
+                entries[i] = SubChunkEntry.of(offsetX, offsetY, offsetZ, SubChunkEntry.Result.CHUNK_NOT_FOUND);
+            } else {
+                int[] chunkHeights = heights.get(index);
+                if (chunkHeights == null) {
+                    heights.put(index, chunkHeights = SubChunkSerializer.getColumnHeights(chunk));
+                }
+                columnHeights[i] = chunkHeights;
+                ChunkSection section = SubChunkSerializer.getSection(chunk, sectionY);
+                if (section != null) {
+                    sections[i] = this.asyncChuckExecutor != null ? section.copy() : section;
+                    blockEntities[i] = SubChunkSerializer.serializeBlockEntities(chunk, player.protocol, sectionY);
+                }
+            }
+        }
+
+        Runnable serialize = () -> {
+            for (int i = 0; i < count; i++) {
+                if (entries[i] == null) {
+                    entries[i] = SubChunkSerializer.serializeSubChunk(player.protocol, sections[i], blockEntities[i],
+                            request.subChunkY + request.offsets[i * 3 + 1], columnHeights[i], this.antiXray,
+                            request.offsets[i * 3], request.offsets[i * 3 + 1], request.offsets[i * 3 + 2]);
+                }
+            }
+            Collections.addAll(pk.entries, entries);
+        };
+
+        if (this.asyncChuckExecutor != null) {
+            this.asyncChuckExecutor.execute(() -> {
+                serialize.run();
+                this.subChunkCallbacks.add(() -> {
+                    if (player.isConnected() && player.getLevel() == this) {
+                        player.dataPacket(pk);
+                    }
+                });
+            });
+        } else {
+            serialize.run();
+            player.dataPacket(pk);
+        }
+    }
+
     @Deprecated
     private void sendChunk(int x, int z, long index, DataPacket packet) {
         for (int protocolId : chunkSendTasks.keySet()) {
@@ -3644,6 +3954,10 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     private void sendChunkInternal(int x, int z, long index, DataPacket packet, int protocol) {
+        this.sendChunkInternal(x, z, index, packet, protocol, 0, null);
+    }
+
+    private void sendChunkInternal(int x, int z, long index, DataPacket packet, int protocol, int subChunkCount, ChunkBlobs blobs) {
         LongSet tasks = this.getChunkSendTasks(protocol);
         if (!tasks.contains(index)) {
             return;
@@ -3652,7 +3966,11 @@ public class Level implements ChunkManager, Metadatable {
         ConcurrentMap<Long, Int2ObjectMap<Player>> queue = this.getChunkSendQueue(protocol);
         for (Player player : queue.get(index).values()) {
             if (player.isConnected() && player.usedChunks.containsKey(index)) {
-                player.sendChunk(x, z, packet);
+                if (blobs != null && player.isClientCacheEnabled()) {
+                    player.sendChunk(x, z, subChunkCount, blobs, this.getDimension());
+                } else {
+                    player.sendChunk(x, z, packet);
+                }
             }
         }
         queue.remove(index);
@@ -3703,10 +4021,21 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public void asyncChunkRequestCallback(int protocol, long timestamp, int x, int z, int subChunkCount, byte[] payload) {
-        this.asyncChunkRequestCallbackQueue.add(new NetworkChunkSerializer.NetworkChunkSerializerCallbackData(protocol, timestamp, x, z, subChunkCount, payload));
+        this.asyncChunkRequestCallback(protocol, timestamp, x, z, subChunkCount, payload, null);
+    }
+
+    public void asyncChunkRequestCallback(int protocol, long timestamp, int x, int z, int subChunkCount, byte[] payload, ChunkBlobs blobs) {
+        this.asyncChunkRequestCallbackQueue.add(new NetworkChunkSerializer.NetworkChunkSerializerCallbackData(protocol, timestamp, x, z, subChunkCount, payload, blobs));
     }
 
     public void chunkRequestCallback(int protocol, long timestamp, int x, int z, int subChunkCount, byte[] payload) {
+        this.chunkRequestCallback(protocol, timestamp, x, z, subChunkCount, payload, null);
+    }
+
+    /**
+     * @param blobs chunk split into blobs for players using the client blob cache, null if not available
+     */
+    public void chunkRequestCallback(int protocol, long timestamp, int x, int z, int subChunkCount, byte[] payload, ChunkBlobs blobs) {
         long index = Level.chunkHash(x, z);
 
         if (server.cacheChunks) {
@@ -3716,7 +4045,7 @@ public class Level implements ChunkManager, Metadatable {
                 chunk.setChunkPacket(protocol, data);
             }
             //this.sendChunk(x, z, index, data);
-            this.sendChunkInternal(x, z, index, data, protocol);
+            this.sendChunkInternal(x, z, index, data, protocol, subChunkCount, blobs);
             return;
         }
 
@@ -3728,7 +4057,11 @@ public class Level implements ChunkManager, Metadatable {
                 for (Player player : queue.get(index).values()) {
                     if (player.isConnected() && player.usedChunks.containsKey(index)) {
                         if (matchMVChunkProtocol(protocol, player.protocol)) {
-                            player.sendChunk(x, z, subChunkCount, payload, this.getDimension());
+                            if (blobs != null && player.isClientCacheEnabled()) {
+                                player.sendChunk(x, z, subChunkCount, blobs, this.getDimension());
+                            } else {
+                                player.sendChunk(x, z, subChunkCount, payload, this.getDimension());
+                            }
                         }
                     }
                 }
@@ -3753,6 +4086,8 @@ public class Level implements ChunkManager, Metadatable {
 
         this.entities.remove(entity.getId());
         this.updateEntities.remove(entity.getId());
+        this.entityIndex.remove(entity);
+        this.entityActivation.remove(entity);
     }
 
     public void addEntity(Entity entity) {
@@ -3764,6 +4099,10 @@ public class Level implements ChunkManager, Metadatable {
             this.players.put(entity.getId(), (Player) entity);
         }
         this.entities.put(entity.getId(), entity);
+        this.entityIndex.add(entity);
+        if (EntityMerger.canMerge(entity)) {
+            this.entityMerger.addCandidate(entity);
+        }
     }
 
     public void addBlockEntity(BlockEntity blockEntity) {
@@ -3812,6 +4151,68 @@ public class Level implements ChunkManager, Metadatable {
         return forceLoadChunk(index, x, z, generate) != null;
     }
 
+    /**
+     * Load a chunk without blocking the level thread.
+     * The chunk is read by the level provider and installed during the next tick of this level.
+     *
+     * @param x chunk x
+     * @param z chunk z
+     * @param generate create an empty chunk if the chunk does not exist
+     * @return future completed on the level thread once the chunk is loaded, or null if too many chunks are being loaded already
+     */
+    @Nullable
+    public synchronized CompletableFuture<BaseFullChunk> loadChunkAsync(int x, int z, boolean generate) {
+        long index = Level.chunkHash(x, z);
+        BaseFullChunk chunk = this.requireProvider().getLoadedChunk(index);
+        if (chunk != null) {
+            return CompletableFuture.completedFuture(chunk);
+        }
+
+        CompletableFuture<BaseFullChunk> loading = this.chunkLoadQueue.get(index);
+        if (loading != null) {
+            return loading;
+        }
+
+        if (this.chunkLoadQueue.size() >= this.chunkLoadQueueSize) {
+            return null;
+        }
+
+        CompletableFuture<BaseFullChunk> future = new CompletableFuture<>();
+        this.chunkLoadQueue.put(index, future);
+        this.requireProvider().getChunkAsync(x, z, generate, this.chunkLoadCallbacks::add)
+                .whenComplete((loaded, error) -> this.finishChunkLoad(index, x, z, generate, future, loaded, error));
+        return future;
+    }
+
+    public boolean isChunkLoading(int x, int z) {
+        return this.chunkLoadQueue.containsKey(Level.chunkHash(x, z));
+    }
+
+    private synchronized void finishChunkLoad(long index, int x, int z, boolean generate, CompletableFuture<BaseFullChunk> future, BaseFullChunk chunk, Throwable error) {
+        if (!this.chunkLoadQueue.remove(index, future)) {
+            // The chunk was loaded synchronously in the meantime
+            future.complete(this.requireProvider().getLoadedChunk(index));
+            return;
+        }
+
+        if (error != null) {
+            this.server.getLogger().error("Failed to load chunk " + x + ", " + z, error);
+            future.completeExceptionally(error);
+            return;
+        }
+
+        if (chunk == null) {
+            if (generate) {
+                future.completeExceptionally(new IllegalStateException("Could not create new chunk"));
+            } else {
+                future.complete(null);
+            }
+            return;
+        }
+
+        future.complete(this.initLoadedChunk(index, x, z, chunk));
+    }
+
     private synchronized BaseFullChunk forceLoadChunk(long index, int x, int z, boolean generate) {
         BaseFullChunk chunk = this.requireProvider().getChunk(x, z, generate);
 
@@ -3822,6 +4223,12 @@ public class Level implements ChunkManager, Metadatable {
             return null;
         }
 
+        // A pending asynchronous load of this chunk must not initialize it a second time
+        this.chunkLoadQueue.remove(index);
+        return this.initLoadedChunk(index, x, z, chunk);
+    }
+
+    private BaseFullChunk initLoadedChunk(long index, int x, int z, BaseFullChunk chunk) {
         if (chunk.getProvider() != null) {
             this.server.getPluginManager().callEvent(new ChunkLoadEvent(chunk, !chunk.isGenerated()));
         } else {
@@ -3900,6 +4307,8 @@ public class Level implements ChunkManager, Metadatable {
             }
         }
 
+        this.pathScheduler.getCache().invalidateChunk(x, z);
+
         try {
             LevelProvider levelProvider = this.requireProvider();
             if (chunk != null) {
@@ -4309,7 +4718,24 @@ public class Level implements ChunkManager, Metadatable {
         pk.pitch = pitch;
         pk.onGround = entity.onGround;
 
-        entity.getViewers().values().stream().filter(p -> p.protocol < ProtocolInfo.v1_16_100).forEach(p -> p.dataPacket(pk));
+        Collection<Player> viewers = entity.getViewers().values();
+        List<Player> legacyViewers = new ArrayList<>();
+        List<Player> deltaViewers = new ArrayList<>(viewers.size());
+        for (Player viewer : viewers) {
+            if (viewer.protocol < ProtocolInfo.v1_16_100) {
+                legacyViewers.add(viewer);
+            } else {
+                deltaViewers.add(viewer);
+            }
+        }
+
+        if (!legacyViewers.isEmpty()) {
+            Server.broadcastPacket(legacyViewers, pk);
+        }
+
+        if (deltaViewers.isEmpty()) {
+            return;
+        }
 
         MoveEntityDeltaPacket pk2 = new MoveEntityDeltaPacket();
         pk2.eid = entity.getId();
@@ -4341,7 +4767,7 @@ public class Level implements ChunkManager, Metadatable {
             pk2.flags |= MoveEntityDeltaPacket.FLAG_ON_GROUND;
         }
 
-        entity.getViewers().values().stream().filter(p -> p.protocol >= ProtocolInfo.v1_16_100).forEach(p -> p.dataPacket(pk2));
+        Server.broadcastPacket(deltaViewers, pk2);
     }
 
     public boolean isRaining() {
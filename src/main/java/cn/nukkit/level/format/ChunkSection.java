@@ -94,6 +94,15 @@ public interface ChunkSection {
 
     boolean isEmpty();
 
+    /**
+     * Get the number of blocks on the first layer which can be randomly ticked
+     *
+     * @return random tickable block count, or -1 if unknown
+     */
+    default int getRandomTickableCount() {
+        return -1;
+    }
+
     boolean hasLayer(int layer);
 
     // for < 1.13 chunk format
@@ -7,6 +7,8 @@ import cn.nukkit.math.Vector3;
 import it.unimi.dsi.fastutil.ints.IntSet;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * @author MagicDroidX
@@ -33,6 +35,18 @@ public interface LevelProvider {
 
     BaseFullChunk getChunk(int X, int Z, boolean create);
 
+    /**
+     * Load a chunk without blocking the calling thread.
+     * The chunk is read by the provider and added to the loaded chunks by the given executor, which must run
+     * tasks on the level thread. Providers which can not read chunks concurrently load the chunk immediately.
+     *
+     * @param mainThread executor running tasks on the level thread
+     * @return future completed with the chunk, or with null if the chunk does not exist and create is false
+     */
+    default CompletableFuture<BaseFullChunk> getChunkAsync(int chunkX, int chunkZ, boolean create, Executor mainThread) {
+        return CompletableFuture.completedFuture(this.getChunk(chunkX, chunkZ, create));
+    }
+
     BaseFullChunk getEmptyChunk(int chunkX, int chunkZ);
 
     void saveChunks();
@@ -115,9 +115,10 @@ public class Anvil extends BaseLevelProvider {
                             x,
                             z,
                             networkChunkSerializerCallback.getSubchunks(),
-                            networkChunkSerializerCallback.getStream().getBuffer()
+                            networkChunkSerializerCallback.getStream().getBuffer(),
+                            networkChunkSerializerCallback.getBlobs()
                     );
-                }, level.antiXrayEnabled(), getLevel().getDimensionData());
+                }, level.antiXrayEnabled(), getLevel().getDimensionData(), this.getServer().clientChunkCache);
             });
         }else {
             NetworkChunkSerializer.serialize(protocols, chunk, networkChunkSerializerCallback -> {
@@ -126,9 +127,10 @@ public class Anvil extends BaseLevelProvider {
                         x,
                         z,
                         networkChunkSerializerCallback.getSubchunks(),
-                        networkChunkSerializerCallback.getStream().getBuffer()
+                        networkChunkSerializerCallback.getStream().getBuffer(),
+                        networkChunkSerializerCallback.getBlobs()
                 );
-            }, level.antiXrayEnabled(), this.level.getDimensionData());
+            }, level.antiXrayEnabled(), this.level.getDimensionData(), this.getServer().clientChunkCache);
         }
     }
 
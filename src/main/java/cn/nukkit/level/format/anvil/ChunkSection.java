@@ -1,6 +1,7 @@
 package cn.nukkit.level.format.anvil;
 
 import cn.nukkit.block.Block;
+import cn.nukkit.level.Level;
 import cn.nukkit.level.format.anvil.util.BlockStorage;
 import cn.nukkit.level.format.anvil.util.NibbleArray;
 import cn.nukkit.level.format.generic.BaseChunk;
@@ -46,6 +47,11 @@ public class ChunkSection implements cn.nukkit.level.format.ChunkSection {
 
     private int contentVersion;
 
+    /**
+     * Number of random tickable blocks on the first layer, -1 until counted. Updated while holding the write lock
+     */
+    private volatile int randomTickableCount = -1;
+
     private ChunkSection(int y, List<BlockStorage> storage, byte[] blockLight, byte[] skyLight, byte[] compressedLight,
                          boolean hasBlockLight, boolean hasSkyLight) {
         this.y = y;
@@ -178,7 +184,10 @@ public class ChunkSection implements cn.nukkit.level.format.ChunkSection {
     public void setBlockId(int x, int y, int z, int layer, int id) {
         sectionLock.writeLock().lock();
         try {
-            getOrSetStorage(layer).setBlockId(x, y, z, id);
+            BlockStorage storage = getOrSetStorage(layer);
+            int previous = storage.getBlockId(x, y, z);
+            storage.setBlockId(x, y, z, id);
+            updateRandomTickableCount(layer, previous, id);
         } finally {
             sectionLock.writeLock().unlock();
         }
@@ -194,7 +203,10 @@ public class ChunkSection implements cn.nukkit.level.format.ChunkSection {
     public boolean setFullBlockId(int x, int y, int z, int layer, int fullId) {
         sectionLock.writeLock().lock();
         try {
-            getOrSetStorage(layer).setFullBlock(x, y, z, fullId);
+            BlockStorage storage = getOrSetStorage(layer);
+            int previous = storage.getBlockId(x, y, z);
+            storage.setFullBlock(x, y, z, fullId);
+            updateRandomTickableCount(layer, previous, storage.getBlockId(x, y, z));
             return true;
         } finally {
             sectionLock.writeLock().unlock();
@@ -274,6 +286,7 @@ public class ChunkSection implements cn.nukkit.level.format.ChunkSection {
         sectionLock.writeLock().lock();
         try {
             int[] before = getOrSetStorage(layer).getAndSetBlock(x, y, z, block.getId(), block.getDamage());
+            updateRandomTickableCount(layer, before[0], block.getId());
             return Block.get(before[0], before[1]);
         } finally {
             sectionLock.writeLock().unlock();
@@ -295,12 +308,59 @@ public class ChunkSection implements cn.nukkit.level.format.ChunkSection {
         sectionLock.writeLock().lock();
         try {
             int[] previousState = getOrSetStorage(layer).getAndSetBlock(x, y, z, blockId, meta);
+            updateRandomTickableCount(layer, previousState[0], blockId);
             return previousState[0] != blockId || previousState[1] != meta;
         } finally {
             sectionLock.writeLock().unlock();
         }
     }
 
+    @Override
+    public int getRandomTickableCount() {
+        int count = this.randomTickableCount;
+        if (count >= 0) {
+            return count;
+        }
+
+        sectionLock.writeLock().lock();
+        try {
+            if (this.randomTickableCount < 0) {
+                count = 0;
+                BlockStorage storage = getStorageIfExists(0);
+                if (storage != null && storage.hasBlockIds()) {
+                    for (int x = 0; x < 16; x++) {
+                        for (int z = 0; z < 16; z++) {
+                            for (int y = 0; y < 16; y++) {
+                                if (Level.isRandomTickable(storage.getBlockId(x, y, z))) {
+                                    count++;
+                                }
+                            }
+                        }
+                    }
+                }
+                this.randomTickableCount = count;
+            }
+            return this.randomTickableCount;
+        } finally {
+            sectionLock.writeLock().unlock();
+        }
+    }
+
+    private void updateRandomTickableCount(int layer, int previousId, int id) {
+        int count = this.randomTickableCount;
+        if (layer != 0 || count < 0) {
+            return;
+        }
+
+        if (Level.isRandomTickable(previousId)) {
+            count--;
+        }
+        if (Level.isRandomTickable(id)) {
+            count++;
+        }
+        this.randomTickableCount = count;
+    }
+
     @Override
     public int getBlockSkyLight(int x, int y, int z) {
         if (this.skyLight == null) {
@@ -204,6 +204,11 @@ public class EmptyChunkSection implements ChunkSection {
         if (level != 15) throw new ChunkException("Tried to modify an empty Chunk");
     }
 
+    @Override
+    public int getRandomTickableCount() {
+        return 0;
+    }
+
     @Override
     public boolean isEmpty() {
         return true;
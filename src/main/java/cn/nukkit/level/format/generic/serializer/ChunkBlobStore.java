@@ -0,0 +1,42 @@
+package cn.nukkit.level.format.generic.serializer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Blobs sent to clients using the blob cache, by hash.
+ * <p>
+ * Equal blobs of different chunks and serializations are stored once. The store is limited by the total size of the
+ * blobs, players keep the blobs they are waiting for a cache status of until it arrives.
+ */
+public class ChunkBlobStore {
+
+    private final Cache<Long, byte[]> blobs;
+
+    /**
+     * @param maxBytes maximum total size of the stored blobs
+     */
+    public ChunkBlobStore(long maxBytes) {
+        this.blobs = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long id, byte[] blob) -> blob.length)
+                .build();
+    }
+
+    /**
+     * Store a blob
+     *
+     * @return the stored blob with the same hash, the given blob if there was none
+     */
+    public byte[] intern(long id, byte[] blob) {
+        byte[] stored = this.blobs.asMap().putIfAbsent(id, blob);
+        return stored != null ? stored : blob;
+    }
+
+    /**
+     * @return stored blob or null
+     */
+    public byte[] get(long id) {
+        return this.blobs.getIfPresent(id);
+    }
+}
@@ -0,0 +1,11 @@
+package cn.nukkit.level.format.generic.serializer;
+
+/**
+ * A serialized chunk split for clients using the blob cache
+ *
+ * @param blobIds hashes of the blobs
+ * @param blobs   serialized sub chunks followed by the biomes
+ * @param payload data which is not cached, border blocks and block entities
+ */
+public record ChunkBlobs(long[] blobIds, byte[][] blobs, byte[] payload) {
+}
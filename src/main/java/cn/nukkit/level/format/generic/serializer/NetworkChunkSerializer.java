@@ -14,6 +14,7 @@ import cn.nukkit.nbt.tag.CompoundTag;
 import cn.nukkit.network.protocol.ProtocolInfo;
 import cn.nukkit.utils.BinaryStream;
 import cn.nukkit.utils.ThreadCache;
+import com.google.common.hash.Hashing;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import lombok.AllArgsConstructor;
@@ -21,6 +22,7 @@ import lombok.Data;
 
 import java.io.IOException;
 import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -31,6 +33,7 @@ public class NetworkChunkSerializer {
     private static final int EXTENDED_NEGATIVE_SUB_CHUNKS = 4;
 
     private static final byte[] negativeSubChunks;
+    private static final byte[] EMPTY_SUB_CHUNK = {8, 0};
 
     static {
         // Build up 4 SubChunks for the extended negative height
@@ -45,6 +48,13 @@ public class NetworkChunkSerializer {
     }
 
     public static void serialize(IntSet protocols, BaseChunk chunk, Consumer<NetworkChunkSerializerCallback> callback, boolean antiXray, DimensionData dimensionData) {
+        serialize(protocols, chunk, callback, antiXray, dimensionData, false);
+    }
+
+    /**
+     * @param splitBlobs also split the chunk into blobs for clients using the blob cache
+     */
+    public static void serialize(IntSet protocols, BaseChunk chunk, Consumer<NetworkChunkSerializerCallback> callback, boolean antiXray, DimensionData dimensionData, boolean splitBlobs) {
         for (int protocolId : protocols) {
             byte[] blockEntities;
             if (chunk.getBlockEntities().isEmpty()) {
@@ -80,6 +90,7 @@ public class NetworkChunkSerializer {
 
             byte[] biomePalettes = null;
             int writtenSections = protocolSubChunkCount;
+            boolean padded = false;
             if (protocolId >= ProtocolInfo.v1_18_0) {
                 biomePalettes = getBiomePalettes(chunk, protocolId, maxDimensionSections);
 
@@ -88,17 +99,34 @@ public class NetworkChunkSerializer {
                 if (dimensionData.getDimensionId() == Level.DIMENSION_OVERWORLD && sections.length < maxDimensionSections) {
                     stream.put(negativeSubChunks);
                     writtenSections += EXTENDED_NEGATIVE_SUB_CHUNKS;
+                    padded = true;
+                }
+            }
+
+            // One blob per sub chunk and one for the biomes
+            byte[][] blobs = null;
+            int blobIndex = 0;
+            if (splitBlobs && protocolId >= ProtocolInfo.v1_12_0) {
+                blobs = new byte[writtenSections + 1][];
+                if (padded) {
+                    for (int i = 0; i < EXTENDED_NEGATIVE_SUB_CHUNKS; i++) {
+                        blobs[blobIndex++] = EMPTY_SUB_CHUNK;
+                    }
                 }
             }
 
             int offset = protocolId < ProtocolInfo.v1_18_0 ? chunk.getSectionOffset() : 0;
             for (int i = offset; i < protocolSubChunkCount + offset; i++) {
+                int start = stream.getCount();
                 if (protocolId < ProtocolInfo.v1_13_0) {
                     stream.putByte((byte) 0);
                     stream.put(sections[i].getBytes(protocolId));
                 } else {
                     sections[i].writeTo(protocolId, stream, antiXray);
                 }
+                if (blobs != null) {
+                    blobs[blobIndex++] = Arrays.copyOfRange(stream.getBufferUnsafe(), start, stream.getCount());
+                }
             }
 
             if (protocolId < ProtocolInfo.v1_12_0) {
@@ -107,11 +135,12 @@ public class NetworkChunkSerializer {
                 }
                 stream.put(PAD_256);
             }
-            if (protocolId >= ProtocolInfo.v1_18_0) {
-                stream.put(biomePalettes);
-            }else {
-                stream.put(chunk.getBiomeIdArray());
+            byte[] biomes = protocolId >= ProtocolInfo.v1_18_0 ? biomePalettes : chunk.getBiomeIdArray();
+            stream.put(biomes);
+            if (blobs != null) {
+                blobs[blobIndex] = protocolId >= ProtocolInfo.v1_18_0 ? biomes : biomes.clone();
             }
+            int payloadStart = stream.getCount();
             // Border blocks
             stream.putByte((byte) 0);
             if (protocolId < ProtocolInfo.v1_16_100) {
@@ -120,11 +149,20 @@ public class NetworkChunkSerializer {
             }
             stream.put(blockEntities);
 
-            callback.accept(new NetworkChunkSerializerCallback(protocolId, stream, writtenSections));
+            ChunkBlobs chunkBlobs = null;
+            if (blobs != null) {
+                long[] blobIds = new long[blobs.length];
+                for (int i = 0; i < blobs.length; i++) {
+                    blobIds[i] = Hashing.farmHashFingerprint64().hashBytes(blobs[i]).asLong();
+                }
+                chunkBlobs = new ChunkBlobs(blobIds, blobs, Arrays.copyOfRange(stream.getBufferUnsafe(), payloadStart, stream.getCount()));
+            }
+
+            callback.accept(new NetworkChunkSerializerCallback(protocolId, stream, writtenSections, chunkBlobs));
         }
     }
 
-    private static byte[] getBiomePalettes(BaseChunk chunk, int protocolId, int maxDimensionSections) {
+    static byte[] getBiomePalettes(BaseChunk chunk, int protocolId, int maxDimensionSections) {
         if (chunk.has3dBiomes()) {
             BinaryStream binaryStream = ThreadCache.binaryStream.get().reset();
             for (int y = 0; y < maxDimensionSections; y++) {
@@ -181,6 +219,14 @@ public class NetworkChunkSerializer {
         private int protocolId;
         private BinaryStream stream;
         private Integer subchunks;
+        /**
+         * Chunk split into blobs, null if not requested
+         */
+        private ChunkBlobs blobs;
+
+        public NetworkChunkSerializerCallback(int protocolId, BinaryStream stream, Integer subchunks) {
+            this(protocolId, stream, subchunks, null);
+        }
     }
 
     @AllArgsConstructor
@@ -192,5 +238,10 @@ public class NetworkChunkSerializer {
         private int z;
         private int subChunkCount;
         private byte[] payload;
+        private ChunkBlobs blobs;
+
+        public NetworkChunkSerializerCallbackData(int protocol, long timestamp, int x, int z, int subChunkCount, byte[] payload) {
+            this(protocol, timestamp, x, z, subChunkCount, payload, null);
+        }
     }
 }
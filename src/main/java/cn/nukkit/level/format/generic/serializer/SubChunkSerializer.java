@@ -0,0 +1,199 @@
+package cn.nukkit.level.format.generic.serializer;
+
+import cn.nukkit.blockentity.BlockEntity;
+import cn.nukkit.blockentity.BlockEntitySpawnable;
+import cn.nukkit.level.DimensionData;
+import cn.nukkit.level.format.ChunkSection;
+import cn.nukkit.level.format.generic.BaseChunk;
+import cn.nukkit.nbt.NBTIO;
+import cn.nukkit.nbt.tag.CompoundTag;
+import cn.nukkit.network.protocol.types.SubChunkEntry;
+import cn.nukkit.utils.BinaryStream;
+import cn.nukkit.utils.ThreadCache;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Serializes chunks for clients in sub chunk request mode.
+ * <p>
+ * The chunk is sent as a column header with the biomes only, the client then requests the sub chunks it needs.
+ * Sub chunk positions are absolute section y coordinates, starting at the bottom of the dimension.
+ */
+public final class SubChunkSerializer {
+
+    private SubChunkSerializer() {
+    }
+
+    /**
+     * Serialize the payload of the column header
+     *
+     * @return biomes and border blocks
+     */
+    public static byte[] serializeColumn(int protocolId, BaseChunk chunk, DimensionData dimensionData) {
+        byte[] biomes = NetworkChunkSerializer.getBiomePalettes(chunk, protocolId, dimensionData.getHeight() >> 4);
+        BinaryStream stream = ThreadCache.binaryStream.get().reset();
+        stream.put(biomes);
+        // Border blocks
+        stream.putByte((byte) 0);
+        return stream.getBuffer();
+    }
+
+    /**
+     * Get the number of sub chunks the client should request, counted from the bottom of the dimension
+     */
+    public static int getRequestCount(BaseChunk chunk, DimensionData dimensionData) {
+        ChunkSection[] sections = chunk.getSections();
+        for (int i = sections.length - 1; i >= 0; i--) {
+            if (!sections[i].isEmpty()) {
+                int sectionY = i - chunk.getSectionOffset();
+                return Math.max(0, Math.min(dimensionData.getHeight() >> 4, sectionY - dimensionData.getMinSectionY() + 1));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the highest non air block of each column
+     *
+     * @return y coordinates indexed by (z << 4) | x, {@link Integer#MIN_VALUE} for empty columns
+     */
+    public static int[] getColumnHeights(BaseChunk chunk) {
+        int[] heights = new int[256];
+        Arrays.fill(heights, Integer.MIN_VALUE);
+        int remaining = 256;
+
+        ChunkSection[] sections = chunk.getSections();
+        for (int i = sections.length - 1; i >= 0 && remaining > 0; i--) {
+            ChunkSection section = sections[i];
+            if (section.isEmpty()) {
+                continue;
+            }
+            int baseY = (i - chunk.getSectionOffset()) << 4;
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    int column = (z << 4) | x;
+                    if (heights[column] != Integer.MIN_VALUE) {
+                        continue;
+                    }
+                    for (int y = 15; y >= 0; y--) {
+                        if (section.getBlockId(x, y, z) != 0) {
+                            heights[column] = baseY + y;
+                            remaining--;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return heights;
+    }
+
+    /**
+     * Serialize a requested sub chunk
+     *
+     * @param sectionY absolute section y coordinate
+     * @param heights column heights of the chunk from {@link #getColumnHeights(BaseChunk)}
+     */
+    public static SubChunkEntry serializeSubChunk(int protocolId, BaseChunk chunk, int sectionY, int[] heights, boolean antiXray,
+                                                  int offsetX, int offsetY, int offsetZ) {
+        ChunkSection section = getSection(chunk, sectionY);
+        if (section == null) {
+            return createEntry(offsetX, offsetY, offsetZ, SubChunkEntry.Result.SUCCESS_ALL_AIR, null, sectionY, heights);
+        }
+        return serializeSubChunk(protocolId, section, serializeBlockEntities(chunk, protocolId, sectionY), sectionY, heights, antiXray,
+                offsetX, offsetY, offsetZ);
+    }
+
+    /**
+     * Serialize a requested sub chunk from a copy of its section, so it can be done off the level thread
+     *
+     * @param section copy of the section, null if it is empty
+     * @param blockEntities block entities of the section from {@link #serializeBlockEntities(BaseChunk, int, int)}
+     * @param sectionY absolute section y coordinate
+     * @param heights column heights of the chunk from {@link #getColumnHeights(BaseChunk)}
+     */
+    public static SubChunkEntry serializeSubChunk(int protocolId, ChunkSection section, byte[] blockEntities, int sectionY, int[] heights,
+                                                  boolean antiXray, int offsetX, int offsetY, int offsetZ) {
+        if (section == null) {
+            return createEntry(offsetX, offsetY, offsetZ, SubChunkEntry.Result.SUCCESS_ALL_AIR, null, sectionY, heights);
+        }
+
+        BinaryStream stream = ThreadCache.binaryStream.get().reset();
+        section.writeTo(protocolId, stream, antiXray);
+        stream.put(blockEntities);
+        return createEntry(offsetX, offsetY, offsetZ, SubChunkEntry.Result.SUCCESS, stream.getBuffer(), sectionY, heights);
+    }
+
+    /**
+     * Get a section of a chunk
+     *
+     * @param sectionY absolute section y coordinate
+     * @return section, null if it is empty or out of range
+     */
+    public static ChunkSection getSection(BaseChunk chunk, int sectionY) {
+        int index = sectionY + chunk.getSectionOffset();
+        ChunkSection[] sections = chunk.getSections();
+        if (index < 0 || index >= sections.length || sections[index].isEmpty()) {
+            return null;
+        }
+        return sections[index];
+    }
+
+    private static SubChunkEntry createEntry(int offsetX, int offsetY, int offsetZ, SubChunkEntry.Result result, byte[] data, int sectionY, int[] heights) {
+        int baseY = sectionY << 4;
+        boolean allHigher = true;
+        boolean allLower = true;
+        byte[] heightMap = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            int height = heights[i];
+            if (height >= baseY + 16) {
+                heightMap[i] = 16;
+                allLower = false;
+            } else if (height < baseY) {
+                heightMap[i] = -1;
+                allHigher = false;
+            } else {
+                heightMap[i] = (byte) (height - baseY);
+                allHigher = allLower = false;
+            }
+        }
+
+        if (allHigher) {
+            return new SubChunkEntry(offsetX, offsetY, offsetZ, result, data, SubChunkEntry.HeightMapType.TOO_HIGH, null);
+        }
+        if (allLower) {
+            return new SubChunkEntry(offsetX, offsetY, offsetZ, result, data, SubChunkEntry.HeightMapType.TOO_LOW, null);
+        }
+        return new SubChunkEntry(offsetX, offsetY, offsetZ, result, data, SubChunkEntry.HeightMapType.HAS_DATA, heightMap);
+    }
+
+    /**
+     * Serialize the spawnable block entities of a section
+     *
+     * @param sectionY absolute section y coordinate
+     */
+    public static byte[] serializeBlockEntities(BaseChunk chunk, int protocolId, int sectionY) {
+        List<CompoundTag> tagList = null;
+        for (BlockEntity blockEntity : chunk.getBlockEntities().values()) {
+            if (blockEntity instanceof BlockEntitySpawnable && blockEntity.getFloorY() >> 4 == sectionY) {
+                if (tagList == null) {
+                    tagList = new ObjectArrayList<>();
+                }
+                tagList.add(((BlockEntitySpawnable) blockEntity).getSpawnCompound(protocolId));
+            }
+        }
+        if (tagList == null) {
+            return new byte[0];
+        }
+
+        try {
+            return NBTIO.write(tagList, ByteOrder.LITTLE_ENDIAN, true);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
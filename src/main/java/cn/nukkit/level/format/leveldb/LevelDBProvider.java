@@ -47,6 +47,7 @@ import java.nio.file.Paths;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
@@ -302,9 +303,10 @@ public class LevelDBProvider implements LevelProvider {
                             chunkX,
                             chunkZ,
                             networkChunkSerializerCallback.getSubchunks(),
-                            networkChunkSerializerCallback.getStream().getBuffer()
+                            networkChunkSerializerCallback.getStream().getBuffer(),
+                            networkChunkSerializerCallback.getBlobs()
                     );
-                }, level.antiXrayEnabled(), getLevel().getDimensionData());
+                }, level.antiXrayEnabled(), getLevel().getDimensionData(), this.getServer().clientChunkCache);
             });
         }else {
             NetworkChunkSerializer.serialize(protocols, chunk, networkChunkSerializerCallback -> {
@@ -313,9 +315,10 @@ public class LevelDBProvider implements LevelProvider {
                         chunkX,
                         chunkZ,
                         networkChunkSerializerCallback.getSubchunks(),
-                        networkChunkSerializerCallback.getStream().getBuffer()
+                        networkChunkSerializerCallback.getStream().getBuffer(),
+                        networkChunkSerializerCallback.getBlobs()
                 );
-            }, level.antiXrayEnabled(), this.level.getDimensionData());
+            }, level.antiXrayEnabled(), this.level.getDimensionData(), this.getServer().clientChunkCache);
         }
     }
 
@@ -373,6 +376,16 @@ public class LevelDBProvider implements LevelProvider {
 
     @Nullable
     public LevelDBChunk readChunk(int chunkX, int chunkZ) {
+        ChunkReadResult result = this.readChunkData(chunkX, chunkZ);
+        return result == null ? null : result.finish();
+    }
+
+    /**
+     * Read and build a chunk without touching the level, so this can run on the provider executor.
+     * Pending block ticks are returned with the chunk and have to be scheduled on the level thread.
+     */
+    @Nullable
+    private ChunkReadResult readChunkData(int chunkX, int chunkZ) {
         byte[] versionData = this.db.get(VERSION.getKey(chunkX, chunkZ, this.level.getDimensionData().getDimensionId()));
         if (versionData == null || versionData.length != 1) {
             versionData = this.db.get(VERSION_OLD.getKey(chunkX, chunkZ, this.level.getDimensionData().getDimensionId()));
@@ -407,14 +420,7 @@ public class LevelDBProvider implements LevelProvider {
         EntitySerializer.loadEntities(this.db, chunkBuilder);
 
         byte[] tickingData = this.db.get(PENDING_TICKS.getKey(chunkX, chunkZ, this.level.getDimension()));
-        if (tickingData != null && tickingData.length != 0) {
-            loadBlockTickingQueue(tickingData, false);
-        }
-
         byte[] randomTickingData = this.db.get(PENDING_RANDOM_TICKS.getKey(chunkX, chunkZ, this.level.getDimension()));
-        if (randomTickingData != null && randomTickingData.length != 0) {
-            loadBlockTickingQueue(randomTickingData, true);
-        }
 
         LevelDBChunk chunk = chunkBuilder.build();
 
@@ -422,6 +428,43 @@ public class LevelDBProvider implements LevelProvider {
             chunk.setHeightmapOrBiomesDirty();
         }
 
+        return new ChunkReadResult(chunk, tickingData, randomTickingData);
+    }
+
+    @Override
+    public CompletableFuture<BaseFullChunk> getChunkAsync(int chunkX, int chunkZ, boolean create, Executor mainThread) {
+        BaseFullChunk loaded = this.chunks.get(Level.chunkHash(chunkX, chunkZ));
+        if (loaded != null) {
+            return CompletableFuture.completedFuture(loaded);
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return this.readChunkData(chunkX, chunkZ);
+            } catch (Exception ex) {
+                Server.getInstance().getLogger().error("Failed to read chunk " + chunkX + ", " + chunkZ, ex);
+                return null;
+            }
+        }, this.executor).thenApplyAsync(result -> this.installChunk(chunkX, chunkZ, result, create), mainThread);
+    }
+
+    private synchronized BaseFullChunk installChunk(int chunkX, int chunkZ, ChunkReadResult result, boolean create) {
+        long index = Level.chunkHash(chunkX, chunkZ);
+        BaseFullChunk chunk = this.chunks.get(index);
+        if (chunk != null) {
+            // Loaded synchronously while we were reading
+            return chunk;
+        }
+
+        if (result != null) {
+            chunk = result.finish();
+        } else if (create) {
+            chunk = this.getEmptyChunk(chunkX, chunkZ);
+        } else {
+            return null;
+        }
+
+        this.chunks.put(index, chunk);
         return chunk;
     }
 
@@ -1097,6 +1140,29 @@ public class LevelDBProvider implements LevelProvider {
         }
     }
 
+    private class ChunkReadResult {
+
+        private final LevelDBChunk chunk;
+        private final byte[] tickingData;
+        private final byte[] randomTickingData;
+
+        private ChunkReadResult(LevelDBChunk chunk, byte[] tickingData, byte[] randomTickingData) {
+            this.chunk = chunk;
+            this.tickingData = tickingData;
+            this.randomTickingData = randomTickingData;
+        }
+
+        private LevelDBChunk finish() {
+            if (this.tickingData != null && this.tickingData.length != 0) {
+                loadBlockTickingQueue(this.tickingData, false);
+            }
+            if (this.randomTickingData != null && this.randomTickingData.length != 0) {
+                loadBlockTickingQueue(this.randomTickingData, true);
+            }
+            return this.chunk;
+        }
+    }
+
     private class AutoCompaction implements Runnable {
         @Override
         public void run() {
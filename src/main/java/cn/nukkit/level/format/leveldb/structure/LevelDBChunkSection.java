@@ -3,6 +3,7 @@ package cn.nukkit.level.format.leveldb.structure;
 import cn.nukkit.block.Block;
 import cn.nukkit.block.BlockID;
 import cn.nukkit.block.custom.container.BlockStorageContainer;
+import cn.nukkit.level.Level;
 import cn.nukkit.level.format.ChunkSection;
 import cn.nukkit.level.format.generic.EmptyChunkSection;
 import cn.nukkit.level.format.leveldb.BlockStateMapping;
@@ -19,9 +20,8 @@ import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 
 import static cn.nukkit.level.format.generic.EmptyChunkSection.EMPTY_DATA_ARRAY;
 import static cn.nukkit.level.format.generic.EmptyChunkSection.EMPTY_ID_ARRAY;
@@ -43,10 +43,18 @@ public class LevelDBChunkSection implements ChunkSection {
 
 
     protected boolean dirty;
-
-    protected ReadWriteLock lock = new ReentrantReadWriteLock();
-    protected Lock readLock = lock.readLock();
-    protected Lock writeLock = lock.writeLock();
+    /**
+     * Number of random tickable blocks on the first layer, -1 until counted. Updated while holding the write lock
+     */
+    private volatile int randomTickableCount = -1;
+
+    /**
+     * Block reads use optimistic reads and only fall back to the read lock if a write happened concurrently.
+     * The lock is not reentrant, locked methods must not call other locked methods of this section.
+     */
+    protected final StampedLock lock = new StampedLock();
+    protected final Lock readLock = lock.asReadLock();
+    protected final Lock writeLock = lock.asWriteLock();
     private final ReentrantLock skyLightLock = new ReentrantLock();
 
     public LevelDBChunkSection(int y) {
@@ -128,17 +136,7 @@ public class LevelDBChunkSection implements ChunkSection {
 
     @Override
     public int getBlockId(int x, int y, int z, int layer) {
-        try {
-            this.readLock.lock();
-
-            if (!this.hasLayerUnsafe(layer)) {
-                return BlockID.AIR;
-            }
-
-            return (this.storages[layer].get(x, y, z)) >> Block.DATA_BITS;
-        } finally {
-            this.readLock.unlock();
-        }
+        return this.getFullBlock(x, y, z, layer) >> Block.DATA_BITS;
     }
 
     @Override
@@ -170,6 +168,7 @@ public class LevelDBChunkSection implements ChunkSection {
             storage.set(x, y, z, fullId);
 
             dirty = true;
+            this.updateRandomTickableCount(layer, previous, fullId);
             parent.get().onSubChunkBlockChanged(this, x, y, z, layer, previous, fullId);
         } finally {
             this.writeLock.unlock();
@@ -182,18 +181,8 @@ public class LevelDBChunkSection implements ChunkSection {
     }
 
     @Override
-    public int getBlockData( int x, int y, int z, int layer) {
-        try {
-            this.readLock.lock();
-
-            if (!this.hasLayerUnsafe(layer)) {
-                return 0;
-            }
-
-            return (this.storages[layer].get(x, y, z)) & Block.DATA_MASK;
-        } finally {
-            this.readLock.unlock();
-        }
+    public int getBlockData(int x, int y, int z, int layer) {
+        return this.getFullBlock(x, y, z, layer) & Block.DATA_MASK;
     }
 
     @Override
@@ -221,6 +210,7 @@ public class LevelDBChunkSection implements ChunkSection {
             storage.set(x, y, z, fullId);
 
             dirty = true;
+            this.updateRandomTickableCount(layer, previous, fullId);
             parent.get().onSubChunkBlockChanged(this, x, y, z, layer, previous, fullId);
         } finally {
             this.writeLock.unlock();
@@ -234,19 +224,34 @@ public class LevelDBChunkSection implements ChunkSection {
 
     @Override
     public int getFullBlock(int x, int y, int z, int layer) {
-        try {
-            this.readLock.lock();
-
-            if (!this.hasLayerUnsafe(layer)) {
-                return BlockID.AIR;
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int fullId = this.getFullBlockUnsafe(x, y, z, layer);
+                if (this.lock.validate(stamp)) {
+                    return fullId;
+                }
+            } catch (RuntimeException ignored) {
+                // The storage was modified while reading, retry with the read lock
             }
+        }
 
-            return this.storages[layer].get(x, y, z);
+        stamp = this.lock.readLock();
+        try {
+            return this.getFullBlockUnsafe(x, y, z, layer);
         } finally {
-            this.readLock.unlock();
+            this.lock.unlockRead(stamp);
         }
     }
 
+    private int getFullBlockUnsafe(int x, int y, int z, int layer) {
+        StateBlockStorage[] storages = this.storages;
+        if (layer < 0 || layer >= storages.length || storages[layer] == null) {
+            return BlockID.AIR;
+        }
+        return storages[layer].get(x, y, z);
+    }
+
     @Override
     public int[] getBlockState(int x, int y, int z, int layer) {
         int full = this.getFullBlock(x, y, z, layer);
@@ -319,6 +324,7 @@ public class LevelDBChunkSection implements ChunkSection {
             }
 
             dirty = true;
+            this.updateRandomTickableCount(layer, previous, fullId);
             parent.get().onSubChunkBlockChanged(this, x, y, z, layer, previous, fullId);
         } finally {
             this.writeLock.unlock();
@@ -359,6 +365,7 @@ public class LevelDBChunkSection implements ChunkSection {
             storage.set(x, y, z, fullId);
 
             dirty = true;
+            this.updateRandomTickableCount(layer, previous, fullId);
             parent.get().onSubChunkBlockChanged(this, x, y, z, layer, previous, fullId);
             return true;
         } finally {
@@ -561,20 +568,57 @@ public class LevelDBChunkSection implements ChunkSection {
         try {
             this.readLock.lock();
 
-            for (StateBlockStorage storage : this.storages) {
-                if (storage == null) {
-                    continue;
-                }
+            return this.isEmptyUnsafe();
+        } finally {
+            this.readLock.unlock();
+        }
+    }
 
-                if (!storage.isEmpty()) {
-                    return false;
-                }
+    private boolean isEmptyUnsafe() {
+        for (StateBlockStorage storage : this.storages) {
+            if (storage == null) {
+                continue;
             }
 
-            return true;
+            if (!storage.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int getRandomTickableCount() {
+        int count = this.randomTickableCount;
+        if (count >= 0) {
+            return count;
+        }
+
+        try {
+            this.writeLock.lock();
+            if (this.randomTickableCount < 0) {
+                this.randomTickableCount = this.hasLayerUnsafe(0) ? this.storages[0].countRandomTickable() : 0;
+            }
+            return this.randomTickableCount;
         } finally {
-            this.readLock.unlock();
+            this.writeLock.unlock();
+        }
+    }
+
+    private void updateRandomTickableCount(int layer, int previous, int fullId) {
+        int count = this.randomTickableCount;
+        if (layer != 0 || count < 0) {
+            return;
+        }
+
+        if (Level.isRandomTickable(previous >> Block.DATA_BITS)) {
+            count--;
+        }
+        if (Level.isRandomTickable(fullId >> Block.DATA_BITS)) {
+            count++;
         }
+        this.randomTickableCount = count;
     }
 
     @Override
@@ -656,7 +700,7 @@ public class LevelDBChunkSection implements ChunkSection {
         try {
             this.readLock.lock();
 
-            int layers = this.hasLayer(1) ? 2 : 1;
+            int layers = this.hasLayerUnsafe(1) ? 2 : 1;
 
             stream.putByte((byte) 8);
             stream.putByte((byte) layers);
@@ -678,7 +722,7 @@ public class LevelDBChunkSection implements ChunkSection {
         try {
             this.writeLock.lock();
 
-            if (this.isEmpty()) {
+            if (this.isEmptyUnsafe()) {
                 return false;
             }
 
@@ -10,8 +10,8 @@ import cn.nukkit.level.format.anvil.util.NibbleArray;
 import cn.nukkit.level.format.leveldb.BlockStateMapping;
 import cn.nukkit.level.util.BitArray;
 import cn.nukkit.level.util.BitArrayVersion;
-import cn.nukkit.level.util.PalettedBlockStorage;
 import cn.nukkit.math.BlockVector3;
+import cn.nukkit.network.protocol.ProtocolInfo;
 import cn.nukkit.utils.BinaryStream;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
@@ -218,21 +218,49 @@ public class StateBlockStorage {
         this.set(elementIndex(pos.x, pos.y, pos.z), BlockStateMapping.get().getBlockStateFromFullId(value));
     }
 
+    /**
+     * Write the storage in the network format.
+     * The bit array is written as it is and only the palette entries are translated to runtime ids of the protocol,
+     * anti xray is applied by replacing the ore entries of the palette. Storages with a single state are written without
+     * a bit array for clients since 1.18.0, older clients get an array of one bit per block.
+     * The palette is only compacted when it overflows, entries no longer used by any block are still translated and sent.
+     */
     public void writeTo(int protocol, BinaryStream stream, boolean antiXray) {
-        PalettedBlockStorage palettedBlockStorage = PalettedBlockStorage.createFromBlockPalette(protocol);
+        int paletteSize = this.palette.size();
+        BitArrayVersion version = this.bitArray.getVersion();
+        if (paletteSize <= 1 && protocol >= ProtocolInfo.v1_18_0) {
+            version = BitArrayVersion.V0;
+        } else if (version == BitArrayVersion.V0) {
+            version = BitArrayVersion.V1;
+        }
+        stream.putByte((byte) getPaletteHeader(version, true));
 
-        for (int i = 0; i < BlockStorage.SECTION_SIZE; i++) {
-            int fullId = get(i);
-            int id = fullId >> Block.DATA_BITS;
-            int meta = fullId & Block.DATA_MASK;
-            if (antiXray && id < Block.MAX_BLOCK_ID && Level.xrayableBlocks[id]) {
-                fullId = Block.STONE << Block.DATA_BITS;
+        if (version != BitArrayVersion.V0) {
+            if (version == this.bitArray.getVersion()) {
+                for (int word : this.bitArray.getWords()) {
+                    stream.putLInt(word);
+                }
+            } else {
+                // Every block uses the only palette entry
+                for (int i = version.getWordsForSize(SECTION_SIZE); i > 0; i--) {
+                    stream.putLInt(0);
+                }
             }
-            int runtimeId = GlobalBlockPalette.getOrCreateRuntimeId(protocol, id, meta);
-            palettedBlockStorage.setBlock(i, runtimeId);
+            stream.putVarInt(paletteSize);
+        } else {
+            paletteSize = 1;
         }
 
-        palettedBlockStorage.writeTo(stream);
+        for (int i = 0; i < paletteSize; i++) {
+            BlockStateSnapshot state = this.palette.get(i);
+            int id = state.getLegacyId();
+            int meta = state.getLegacyData();
+            if (antiXray && id < Block.MAX_BLOCK_ID && Level.xrayableBlocks[id]) {
+                id = BlockID.STONE;
+                meta = 0;
+            }
+            stream.putVarInt(GlobalBlockPalette.getOrCreateRuntimeId(protocol, id, meta));
+        }
     }
 
     private void grow(BitArrayVersion version) {
@@ -266,6 +294,33 @@ public class StateBlockStorage {
         return index;
     }
 
+    /**
+     * Count the blocks which can be randomly ticked.
+     * The palette is checked first so storages without any random tickable state are not scanned.
+     *
+     * @return random tickable block count
+     */
+    public int countRandomTickable() {
+        boolean[] tickable = new boolean[this.palette.size()];
+        boolean any = false;
+        for (int i = 0; i < tickable.length; i++) {
+            tickable[i] = Level.isRandomTickable(this.palette.get(i).getLegacyId());
+            any |= tickable[i];
+        }
+
+        if (!any) {
+            return 0;
+        }
+
+        int count = 0;
+        for (int i = 0; i < SECTION_SIZE; i++) {
+            if (tickable[this.bitArray.get(i)]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     public boolean isEmpty() {
         if (this.palette.size() == 1) {
             return true;
@@ -0,0 +1,36 @@
+package cn.nukkit.level.light;
+
+import cn.nukkit.block.Block;
+import cn.nukkit.level.ChunkManager;
+import cn.nukkit.level.format.ChunkSection;
+import cn.nukkit.level.format.generic.BaseFullChunk;
+
+/**
+ * Propagates light emitted by blocks
+ */
+public class BlockLightEngine extends LightEngine {
+
+    public BlockLightEngine(ChunkManager level) {
+        super(level);
+    }
+
+    @Override
+    protected int getSourceLight(int x, int y, int z) {
+        return Block.getBlockLight(this.getBlockIdAt(x, y, z));
+    }
+
+    @Override
+    protected int getLight(ChunkSection section, int x, int y, int z) {
+        return section.getBlockLight(x, y, z);
+    }
+
+    @Override
+    protected void setLight(ChunkSection section, int x, int y, int z, int light) {
+        section.setBlockLight(x, y, z, light);
+    }
+
+    @Override
+    protected void setLight(BaseFullChunk chunk, int x, int y, int z, int light) {
+        chunk.setBlockLight(x, y, z, light);
+    }
+}
@@ -0,0 +1,310 @@
+package cn.nukkit.level.light;
+
+import cn.nukkit.block.Block;
+import cn.nukkit.level.ChunkManager;
+import cn.nukkit.level.Level;
+import cn.nukkit.level.format.Chunk;
+import cn.nukkit.level.format.ChunkSection;
+import cn.nukkit.level.format.generic.BaseFullChunk;
+import cn.nukkit.level.format.generic.EmptyChunkSection;
+
+/**
+ * Breadth-first light propagation working directly on chunk sections.
+ * <p>
+ * Positions are packed into longs and kept in primitive ring buffers, and the last used chunk and section are cached,
+ * so processing a batch of changed blocks does not allocate or look up the chunk map for every visited block.
+ * An engine is not thread safe, every level owns its own instances which are used on the level thread.
+ * Engines can also be created for any other {@link ChunkManager}, e.g. one holding copies of the chunks, to update the
+ * light of a snapshot on another thread.
+ */
+public abstract class LightEngine {
+
+    private static final int[] OFFSET_X = {-1, 1, 0, 0, 0, 0};
+    private static final int[] OFFSET_Y = {0, 0, -1, 1, 0, 0};
+    private static final int[] OFFSET_Z = {0, 0, 0, 0, -1, 1};
+
+    protected final ChunkManager level;
+
+    private final LightQueue updateQueue = new LightQueue();
+    private final LightQueue removalQueue = new LightQueue();
+    private final LightQueue spreadQueue = new LightQueue();
+
+    private BaseFullChunk chunk;
+    private int chunkX;
+    private int chunkZ;
+
+    private ChunkSection section;
+    private BaseFullChunk sectionChunk;
+    private int sectionY;
+
+    protected int minY;
+    protected int maxY;
+
+    protected LightEngine(ChunkManager level) {
+        this.level = level;
+    }
+
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3ffffff) << 38) | ((long) (z & 0x3ffffff) << 12) | (y & 0xfff);
+    }
+
+    public static int unpackX(long pos) {
+        return (int) (pos >> 38);
+    }
+
+    public static int unpackY(long pos) {
+        return (int) (pos << 52 >> 52);
+    }
+
+    public static int unpackZ(long pos) {
+        return (int) (pos << 26 >> 38);
+    }
+
+    /**
+     * Queue a changed block, the light around it is recalculated by the next {@link #process()}
+     */
+    public void addUpdate(int x, int y, int z) {
+        this.updateQueue.add(pack(x, y, z), 0);
+    }
+
+    public boolean hasUpdates() {
+        return !this.updateQueue.isEmpty();
+    }
+
+    /**
+     * Recalculate the light for all queued block changes
+     *
+     * @return number of processed block changes
+     */
+    public int process() {
+        if (this.updateQueue.isEmpty()) {
+            return 0;
+        }
+
+        this.minY = this.level.getMinBlockY();
+        this.maxY = this.level.getMaxBlockY();
+        int updates = 0;
+        try {
+            while (!this.updateQueue.isEmpty()) {
+                long pos = this.updateQueue.peekPosition();
+                this.updateQueue.remove();
+                int y = unpackY(pos);
+                if (y >= this.minY && y <= this.maxY) {
+                    this.seed(unpackX(pos), y, unpackZ(pos));
+                    updates++;
+                }
+            }
+
+            this.propagateRemoval();
+            this.propagateSpread();
+        } finally {
+            this.removalQueue.clear();
+            this.spreadQueue.clear();
+            this.chunk = null;
+            this.section = null;
+            this.sectionChunk = null;
+        }
+        return updates;
+    }
+
+    /**
+     * Compare the light of a changed block with its new source level and queue the required removal and spread
+     */
+    protected void seed(int x, int y, int z) {
+        int current = this.getLightAt(x, y, z);
+        if (current < 0) {
+            return;
+        }
+
+        int source = this.getSourceLight(x, y, z);
+        long pos = pack(x, y, z);
+        if (current > source) {
+            this.setLightAt(x, y, z, source);
+            this.removalQueue.add(pos, current);
+        } else if (source > current) {
+            this.setLightAt(x, y, z, source);
+        }
+
+        if (source > 0) {
+            this.spreadQueue.add(pos, 0);
+        }
+
+        // The changed block may let light from its neighbours pass now
+        for (int i = 0; i < 6; i++) {
+            int ny = y + OFFSET_Y[i];
+            if (ny < this.minY || ny > this.maxY) {
+                continue;
+            }
+            int nx = x + OFFSET_X[i];
+            int nz = z + OFFSET_Z[i];
+            if (this.getLightAt(nx, ny, nz) > 0) {
+                this.spreadQueue.add(pack(nx, ny, nz), 0);
+            }
+        }
+    }
+
+    private void propagateRemoval() {
+        while (!this.removalQueue.isEmpty()) {
+            long pos = this.removalQueue.peekPosition();
+            int removed = this.removalQueue.peekLevel();
+            this.removalQueue.remove();
+
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+            for (int i = 0; i < 6; i++) {
+                int ny = y + OFFSET_Y[i];
+                if (ny < this.minY || ny > this.maxY) {
+                    continue;
+                }
+                int nx = x + OFFSET_X[i];
+                int nz = z + OFFSET_Z[i];
+                int current = this.getLightAt(nx, ny, nz);
+                if (current <= 0) {
+                    continue;
+                }
+
+                long neighbour = pack(nx, ny, nz);
+                if (this.isLitBy(current, removed, OFFSET_Y[i] < 0)) {
+                    int source = this.getSourceLight(nx, ny, nz);
+                    this.setLightAt(nx, ny, nz, source);
+                    if (source > 0) {
+                        this.spreadQueue.add(neighbour, 0);
+                    }
+                    this.removalQueue.add(neighbour, current);
+                } else {
+                    // Lit by another source, fill the removed area from here
+                    this.spreadQueue.add(neighbour, 0);
+                }
+            }
+        }
+    }
+
+    private void propagateSpread() {
+        while (!this.spreadQueue.isEmpty()) {
+            long pos = this.spreadQueue.peekPosition();
+            this.spreadQueue.remove();
+
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+            int light = this.getLightAt(x, y, z);
+            if (light <= 1) {
+                continue;
+            }
+
+            for (int i = 0; i < 6; i++) {
+                int ny = y + OFFSET_Y[i];
+                if (ny < this.minY || ny > this.maxY) {
+                    continue;
+                }
+                int nx = x + OFFSET_X[i];
+                int nz = z + OFFSET_Z[i];
+                int current = this.getLightAt(nx, ny, nz);
+                if (current < 0) {
+                    continue;
+                }
+
+                int spread = this.getSpreadLight(light, this.getBlockIdAt(nx, ny, nz), OFFSET_Y[i] < 0);
+                if (spread > current) {
+                    this.setLightAt(nx, ny, nz, spread);
+                    if (spread > 1) {
+                        this.spreadQueue.add(pack(nx, ny, nz), 0);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the light level a block emits or receives without any neighbours
+     */
+    protected abstract int getSourceLight(int x, int y, int z);
+
+    protected abstract int getLight(ChunkSection section, int x, int y, int z);
+
+    protected abstract void setLight(ChunkSection section, int x, int y, int z, int light);
+
+    protected abstract void setLight(BaseFullChunk chunk, int x, int y, int z, int light);
+
+    /**
+     * Get the light level a block receives from a neighbour
+     *
+     * @param light light of the neighbour
+     * @param blockId id of the block receiving the light
+     * @param down the light travels downwards
+     */
+    protected int getSpreadLight(int light, int blockId, boolean down) {
+        return light - Math.max(1, Block.getBlockLightFilter(blockId));
+    }
+
+    /**
+     * Check whether a neighbour got its light from a block whose light was removed
+     *
+     * @param light light of the neighbour
+     * @param removed removed light level
+     * @param down the neighbour is below the removed block
+     */
+    protected boolean isLitBy(int light, int removed, boolean down) {
+        return light < removed;
+    }
+
+    /**
+     * @return light level, or -1 if the chunk is not loaded
+     */
+    protected int getLightAt(int x, int y, int z) {
+        ChunkSection section = this.getSection(x >> 4, y >> 4, z >> 4);
+        return section == null ? -1 : this.getLight(section, x & 0x0f, y & 0x0f, z & 0x0f);
+    }
+
+    protected void setLightAt(int x, int y, int z, int light) {
+        ChunkSection section = this.getSection(x >> 4, y >> 4, z >> 4);
+        if (section == null) {
+            return;
+        }
+
+        if (section instanceof EmptyChunkSection) {
+            // Let the chunk create the section
+            this.setLight(this.sectionChunk, x & 0x0f, y, z & 0x0f, light);
+            this.section = null;
+        } else {
+            this.setLight(section, x & 0x0f, y & 0x0f, z & 0x0f, light);
+            this.sectionChunk.setChanged();
+        }
+    }
+
+    protected int getBlockIdAt(int x, int y, int z) {
+        ChunkSection section = this.getSection(x >> 4, y >> 4, z >> 4);
+        return section == null ? 0 : section.getBlockId(x & 0x0f, y & 0x0f, z & 0x0f);
+    }
+
+    protected BaseFullChunk getChunk(int chunkX, int chunkZ) {
+        if (this.chunk != null && this.chunkX == chunkX && this.chunkZ == chunkZ) {
+            return this.chunk;
+        }
+
+        BaseFullChunk chunk = this.level instanceof Level ? ((Level) this.level).getChunkIfLoaded(chunkX, chunkZ) : this.level.getChunk(chunkX, chunkZ);
+        if (chunk != null) {
+            this.chunk = chunk;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+        return chunk;
+    }
+
+    private ChunkSection getSection(int chunkX, int sectionY, int chunkZ) {
+        if (this.section != null && this.sectionY == sectionY && this.chunkX == chunkX && this.chunkZ == chunkZ && this.sectionChunk == this.chunk) {
+            return this.section;
+        }
+
+        BaseFullChunk chunk = this.getChunk(chunkX, chunkZ);
+        if (!(chunk instanceof Chunk)) {
+            return null;
+        }
+
+        this.section = ((Chunk) chunk).getSection(sectionY);
+        this.sectionChunk = chunk;
+        this.sectionY = sectionY;
+        return this.section;
+    }
+}
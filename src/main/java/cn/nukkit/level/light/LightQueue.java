@@ -0,0 +1,82 @@
+package cn.nukkit.level.light;
+
+/**
+ * Growable ring buffer of packed block positions and light levels.
+ * Used instead of boxed queues so light propagation does not allocate per visited block.
+ */
+final class LightQueue {
+
+    private long[] positions;
+    private byte[] levels;
+    private int mask;
+    private int head;
+    private int tail;
+
+    LightQueue() {
+        this(1024);
+    }
+
+    LightQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1) << 1);
+        this.positions = new long[size];
+        this.levels = new byte[size];
+        this.mask = size - 1;
+    }
+
+    void add(long position, int level) {
+        if (this.tail - this.head == this.positions.length) {
+            this.grow();
+        }
+        int index = this.tail++ & this.mask;
+        this.positions[index] = position;
+        this.levels[index] = (byte) level;
+    }
+
+    boolean isEmpty() {
+        return this.head == this.tail;
+    }
+
+    int size() {
+        return this.tail - this.head;
+    }
+
+    /**
+     * @return position of the first entry
+     */
+    long peekPosition() {
+        return this.positions[this.head & this.mask];
+    }
+
+    /**
+     * @return light level of the first entry
+     */
+    int peekLevel() {
+        return this.levels[this.head & this.mask];
+    }
+
+    void remove() {
+        this.head++;
+    }
+
+    void clear() {
+        this.head = 0;
+        this.tail = 0;
+    }
+
+    private void grow() {
+        int size = this.positions.length;
+        long[] positions = new long[size << 1];
+        byte[] levels = new byte[size << 1];
+        int start = this.head & this.mask;
+        int first = size - start;
+        System.arraycopy(this.positions, start, positions, 0, first);
+        System.arraycopy(this.positions, 0, positions, first, start);
+        System.arraycopy(this.levels, start, levels, 0, first);
+        System.arraycopy(this.levels, 0, levels, first, start);
+        this.positions = positions;
+        this.levels = levels;
+        this.mask = positions.length - 1;
+        this.head = 0;
+        this.tail = size;
+    }
+}
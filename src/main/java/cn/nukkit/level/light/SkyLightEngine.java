@@ -0,0 +1,115 @@
+package cn.nukkit.level.light;
+
+import cn.nukkit.block.Block;
+import cn.nukkit.level.ChunkManager;
+import cn.nukkit.level.format.ChunkSection;
+import cn.nukkit.level.format.generic.BaseFullChunk;
+
+/**
+ * Propagates sky light.
+ * Blocks at or above the height map of their column are sources with full light, so open columns are resolved
+ * from the height map without walking them. The height map is kept up to date for every changed block.
+ * <p>
+ * Chunks store the height map in bytes, so heights are clamped to 0 to {@link #MAX_STORED_HEIGHT}. Blocks at or above
+ * the largest stored height and below 0 can not be answered from the height map, the blocks above them are checked.
+ */
+public class SkyLightEngine extends LightEngine {
+
+    /**
+     * Largest height the byte height map of a chunk can hold
+     */
+    private static final int MAX_STORED_HEIGHT = 255;
+
+    public SkyLightEngine(ChunkManager level) {
+        super(level);
+    }
+
+    @Override
+    protected void seed(int x, int y, int z) {
+        BaseFullChunk chunk = this.getChunk(x >> 4, z >> 4);
+        if (chunk == null) {
+            return;
+        }
+
+        int localX = x & 0x0f;
+        int localZ = z & 0x0f;
+        int height = chunk.getHeightMap(localX, localZ);
+        if (blocksSkyLight(this.getBlockIdAt(x, y, z))) {
+            if (y >= height && height < MAX_STORED_HEIGHT) {
+                chunk.setHeightMap(localX, localZ, clampHeight(y + 1));
+            }
+        } else if (y == height - 1 || height == MAX_STORED_HEIGHT && y >= height - 1) {
+            this.recalculateHeight(chunk, x, z);
+        }
+
+        super.seed(x, y, z);
+    }
+
+    /**
+     * Find the highest block of a column which blocks sky light and store the height above it
+     */
+    private void recalculateHeight(BaseFullChunk chunk, int x, int z) {
+        int y = this.maxY;
+        while (y >= 0 && !blocksSkyLight(this.getBlockIdAt(x, y, z))) {
+            y--;
+        }
+        chunk.setHeightMap(x & 0x0f, z & 0x0f, clampHeight(y + 1));
+    }
+
+    @Override
+    protected int getSourceLight(int x, int y, int z) {
+        BaseFullChunk chunk = this.getChunk(x >> 4, z >> 4);
+        if (chunk == null || y < chunk.getHeightMap(x & 0x0f, z & 0x0f)) {
+            return 0;
+        }
+        if (y >= 0 && y < MAX_STORED_HEIGHT) {
+            return 15;
+        }
+
+        // Outside the stored range, the height map only tells there is no blocker within it
+        int top = y < 0 ? -1 : this.maxY;
+        for (int above = y + 1; above <= top; above++) {
+            if (blocksSkyLight(this.getBlockIdAt(x, above, z))) {
+                return 0;
+            }
+        }
+        return 15;
+    }
+
+    private static int clampHeight(int height) {
+        return Math.max(0, Math.min(MAX_STORED_HEIGHT, height));
+    }
+
+    @Override
+    protected int getSpreadLight(int light, int blockId, boolean down) {
+        if (down && light == 15 && !blocksSkyLight(blockId)) {
+            // Full sky light goes straight down without decreasing
+            return 15;
+        }
+        return super.getSpreadLight(light, blockId, down);
+    }
+
+    @Override
+    protected boolean isLitBy(int light, int removed, boolean down) {
+        return light < removed || down && light == 15 && removed == 15;
+    }
+
+    @Override
+    protected int getLight(ChunkSection section, int x, int y, int z) {
+        return section.getBlockSkyLight(x, y, z);
+    }
+
+    @Override
+    protected void setLight(ChunkSection section, int x, int y, int z, int light) {
+        section.setBlockSkyLight(x, y, z, light);
+    }
+
+    @Override
+    protected void setLight(BaseFullChunk chunk, int x, int y, int z, int light) {
+        chunk.setBlockSkyLight(x, y, z, light);
+    }
+
+    private static boolean blocksSkyLight(int blockId) {
+        return Block.getBlockLightFilter(blockId) > 1 || blockId < Block.diffusesSkyLight.length && Block.diffusesSkyLight[blockId];
+    }
+}
@@ -0,0 +1,143 @@
+package cn.nukkit.level.pathfinding;
+
+import cn.nukkit.entity.Entity;
+import cn.nukkit.level.Level;
+import cn.nukkit.math.NukkitMath;
+import cn.nukkit.math.Vector3;
+
+/**
+ * Path following state of a walking entity.
+ * <p>
+ * A path is searched when the target is not close, and reused as long as the target stays near the end of the path.
+ * While a search is running or no path could be found, the entity moves straight towards the target.
+ */
+public class Navigation {
+
+    /**
+     * Targets closer than this are approached directly
+     */
+    private static final double DIRECT_DISTANCE = 2;
+    /**
+     * How far the target can move away from the goal of the path before a new path is searched
+     */
+    private static final int GOAL_TOLERANCE = 2;
+    private static final int SEARCH_INTERVAL = 10;
+    private static final int STUCK_TICKS = 40;
+
+    private final Entity entity;
+    private final Vector3 waypoint = new Vector3();
+
+    private Path path;
+    private PathFinder search;
+    private PathScheduler searchScheduler;
+    private int nextSearchTick;
+
+    private double lastX;
+    private double lastZ;
+    private int stuckTicks;
+
+    public Navigation(Entity entity) {
+        this.entity = entity;
+    }
+
+    /**
+     * Get the position the entity should move towards to reach the target
+     *
+     * @param target target position
+     * @return next waypoint, or null if the entity should move straight towards the target
+     */
+    public Vector3 getNextWaypoint(Vector3 target) {
+        Level level = this.entity.getLevel();
+        PathScheduler scheduler = level.getPathScheduler();
+        if (!scheduler.isEnabled()) {
+            return null;
+        }
+
+        double dx = target.x - this.entity.x;
+        double dz = target.z - this.entity.z;
+        if (dx * dx + dz * dz <= DIRECT_DISTANCE * DIRECT_DISTANCE && Math.abs(target.y - this.entity.y) < 1) {
+            this.stop();
+            return null;
+        }
+
+        if (this.search != null && this.search.isFinished()) {
+            this.path = this.search.getResult();
+            this.search = null;
+            this.searchScheduler = null;
+            this.stuckTicks = 0;
+        }
+
+        int goalX = NukkitMath.floorDouble(target.x);
+        int goalY = NukkitMath.floorDouble(target.y + 0.5);
+        int goalZ = NukkitMath.floorDouble(target.z);
+        Path path = this.path;
+        boolean outdated = path == null || path.isFinished()
+                || Math.abs(path.getGoalX() - goalX) > GOAL_TOLERANCE
+                || Math.abs(path.getGoalY() - goalY) > GOAL_TOLERANCE
+                || Math.abs(path.getGoalZ() - goalZ) > GOAL_TOLERANCE;
+        int tick = level.getServer().getTick();
+        if (outdated && this.search == null && tick >= this.nextSearchTick) {
+            this.nextSearchTick = tick + SEARCH_INTERVAL;
+            this.searchScheduler = scheduler;
+            this.search = scheduler.submit(this.entity.getFloorX(), NukkitMath.floorDouble(this.entity.y + 0.5), this.entity.getFloorZ(),
+                    goalX, goalY, goalZ, NukkitMath.ceilDouble(this.entity.getHeight()));
+        }
+
+        if (path == null) {
+            return null;
+        }
+
+        // Skip the waypoints which were reached already
+        while (!path.isFinished()) {
+            double wx = path.getX() + 0.5 - this.entity.x;
+            double wz = path.getZ() + 0.5 - this.entity.z;
+            if (wx * wx + wz * wz > 0.25 || Math.abs(path.getY() - this.entity.y) > 1.5) {
+                break;
+            }
+            path.advance();
+        }
+
+        if (path.isFinished()) {
+            this.path = null;
+            return null;
+        }
+
+        // A block on the way was changed
+        if (!scheduler.getCache().canStandAt(path.getX(), path.getY(), path.getZ(), NukkitMath.ceilDouble(this.entity.getHeight()))) {
+            this.path = null;
+            this.nextSearchTick = tick;
+            return null;
+        }
+
+        if (Math.abs(this.entity.x - this.lastX) < 0.01 && Math.abs(this.entity.z - this.lastZ) < 0.01) {
+            if (++this.stuckTicks > STUCK_TICKS) {
+                this.path = null;
+                this.stuckTicks = 0;
+                return null;
+            }
+        } else {
+            this.stuckTicks = 0;
+        }
+        this.lastX = this.entity.x;
+        this.lastZ = this.entity.z;
+
+        return this.waypoint.setComponents(path.getX() + 0.5, path.getY(), path.getZ() + 0.5);
+    }
+
+    public boolean isNavigating() {
+        return this.path != null || this.search != null;
+    }
+
+    /**
+     * Forget the current path and cancel the running search
+     */
+    public void stop() {
+        if (this.search != null) {
+            this.searchScheduler.cancel(this.search);
+            this.search = null;
+            this.searchScheduler = null;
+        }
+        this.path = null;
+        this.stuckTicks = 0;
+    }
+}
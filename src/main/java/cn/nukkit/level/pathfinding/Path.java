@@ -0,0 +1,76 @@
+package cn.nukkit.level.pathfinding;
+
+/**
+ * Waypoints found by a {@link PathFinder}, the block positions the feet of the entity pass through
+ */
+public class Path {
+
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] zs;
+    private final int goalX;
+    private final int goalY;
+    private final int goalZ;
+    private final boolean complete;
+    private int index;
+
+    public Path(int[] xs, int[] ys, int[] zs, int goalX, int goalY, int goalZ, boolean complete) {
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.goalX = goalX;
+        this.goalY = goalY;
+        this.goalZ = goalZ;
+        this.complete = complete;
+    }
+
+    public int getLength() {
+        return this.xs.length;
+    }
+
+    public int getIndex() {
+        return this.index;
+    }
+
+    public boolean isFinished() {
+        return this.index >= this.xs.length;
+    }
+
+    /**
+     * Move to the next waypoint
+     */
+    public void advance() {
+        this.index++;
+    }
+
+    public int getX() {
+        return this.xs[this.index];
+    }
+
+    public int getY() {
+        return this.ys[this.index];
+    }
+
+    public int getZ() {
+        return this.zs[this.index];
+    }
+
+    public int getGoalX() {
+        return this.goalX;
+    }
+
+    public int getGoalY() {
+        return this.goalY;
+    }
+
+    public int getGoalZ() {
+        return this.goalZ;
+    }
+
+    /**
+     * @return whether the path leads to the goal, otherwise it ends at the reachable position closest to the goal
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+}
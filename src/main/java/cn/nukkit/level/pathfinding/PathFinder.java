@@ -0,0 +1,311 @@
+package cn.nukkit.level.pathfinding;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * A* search for a walking entity over the block grid of a {@link WalkabilityCache}.
+ * <p>
+ * A search can be run in several steps with a node budget each, so the work of many searches can be spread over
+ * multiple ticks. If the goal can not be reached within the node limit, the path leads to the explored node closest
+ * to the goal.
+ */
+public class PathFinder {
+
+    private static final int[] OFFSET_X = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] OFFSET_Z = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private static final float DIAGONAL_COST = 1.4142135f;
+    private static final float STEP_UP_COST = 1f;
+    private static final float DROP_COST = 0.5f;
+    private static final float WATER_COST = 2f;
+
+    /**
+     * Maximum height an entity falls down without looking for another way
+     */
+    private static final int MAX_DROP = 3;
+
+    private final WalkabilityCache cache;
+    private final int goalX;
+    private final int goalY;
+    private final int goalZ;
+    private final int height;
+    private final int maxNodes;
+
+    private final Long2IntOpenHashMap nodeIndex = new Long2IntOpenHashMap();
+    private int[] nodeX = new int[64];
+    private int[] nodeY = new int[64];
+    private int[] nodeZ = new int[64];
+    private int[] parent = new int[64];
+    private float[] cost = new float[64];
+    private float[] estimate = new float[64];
+    private boolean[] closed = new boolean[64];
+    private int nodeCount;
+
+    /**
+     * Binary heap of open node indexes ordered by cost + estimate at the time they were added.
+     * A node is added again when a cheaper way to it is found.
+     */
+    private int[] heap = new int[64];
+    private float[] heapPriority = new float[64];
+    private int heapSize;
+
+    private int bestNode;
+    private int expanded;
+    private boolean finished;
+    private Path result;
+
+    /**
+     * @param cache block types of the level
+     * @param height height of the entity in blocks
+     * @param maxNodes maximum number of nodes expanded by the whole search
+     */
+    public PathFinder(WalkabilityCache cache, int startX, int startY, int startZ, int goalX, int goalY, int goalZ, int height, int maxNodes) {
+        this.cache = cache;
+        this.goalX = goalX;
+        this.goalY = goalY;
+        this.goalZ = goalZ;
+        this.height = Math.max(1, height);
+        this.maxNodes = maxNodes;
+        this.nodeIndex.defaultReturnValue(-1);
+
+        int start = this.addNode(startX, startY, startZ, -1, 0);
+        this.bestNode = start;
+        this.push(start);
+    }
+
+    public int getGoalX() {
+        return this.goalX;
+    }
+
+    public int getGoalY() {
+        return this.goalY;
+    }
+
+    public int getGoalZ() {
+        return this.goalZ;
+    }
+
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    /**
+     * @return found path, null if the search is not finished or no progress towards the goal was possible
+     */
+    public Path getResult() {
+        return this.result;
+    }
+
+    /**
+     * Continue the search
+     *
+     * @param budget maximum number of nodes to expand
+     * @return number of expanded nodes
+     */
+    public int step(int budget) {
+        int used = 0;
+        while (!this.finished && used < budget) {
+            if (this.heapSize == 0 || this.expanded >= this.maxNodes) {
+                this.finish(this.bestNode);
+                break;
+            }
+
+            int node = this.pop();
+            if (this.closed[node]) {
+                continue;
+            }
+            this.closed[node] = true;
+            this.expanded++;
+            used++;
+
+            int x = this.nodeX[node];
+            int y = this.nodeY[node];
+            int z = this.nodeZ[node];
+            if (x == this.goalX && y == this.goalY && z == this.goalZ) {
+                this.finish(node);
+                break;
+            }
+
+            if (this.estimate[node] < this.estimate[this.bestNode]) {
+                this.bestNode = node;
+            }
+
+            this.expand(node, x, y, z);
+        }
+        return used;
+    }
+
+    private void expand(int node, int x, int y, int z) {
+        for (int i = 0; i < 8; i++) {
+            int nx = x + OFFSET_X[i];
+            int nz = z + OFFSET_Z[i];
+            boolean diagonal = i >= 4;
+            if (diagonal && (!this.isPassable(x + OFFSET_X[i], y, z) || !this.isPassable(x, y, z + OFFSET_Z[i]))) {
+                // Do not cut corners
+                continue;
+            }
+
+            float moveCost = diagonal ? DIAGONAL_COST : 1f;
+            int ny = y;
+            if (!this.canStandAt(nx, ny, nz)) {
+                if (!diagonal && this.canStandAt(nx, y + 1, nz) && this.isPassable(x, y + this.height, z)) {
+                    ny = y + 1;
+                    moveCost += STEP_UP_COST;
+                } else if (this.isPassable(nx, y, nz)) {
+                    // Look for the ground below
+                    ny = Integer.MIN_VALUE;
+                    for (int drop = 1; drop <= MAX_DROP; drop++) {
+                        byte type = this.cache.getType(nx, y - drop, nz);
+                        if (type != WalkabilityCache.OPEN && type != WalkabilityCache.WATER) {
+                            break;
+                        }
+                        if (this.canStandAt(nx, y - drop, nz)) {
+                            ny = y - drop;
+                            moveCost += drop * DROP_COST;
+                            break;
+                        }
+                    }
+                    if (ny == Integer.MIN_VALUE) {
+                        continue;
+                    }
+                } else {
+                    continue;
+                }
+            }
+
+            if (this.cache.getType(nx, ny, nz) == WalkabilityCache.WATER) {
+                moveCost += WATER_COST;
+            }
+
+            this.visit(node, nx, ny, nz, this.cost[node] + moveCost);
+        }
+    }
+
+    private void visit(int parent, int x, int y, int z, float cost) {
+        long key = pack(x, y, z);
+        int node = this.nodeIndex.get(key);
+        if (node == -1) {
+            this.push(this.addNode(x, y, z, parent, cost));
+        } else if (!this.closed[node] && cost < this.cost[node]) {
+            this.parent[node] = parent;
+            this.cost[node] = cost;
+            // The old heap entry is skipped once the node is closed
+            this.push(node);
+        }
+    }
+
+    private boolean canStandAt(int x, int y, int z) {
+        return this.cache.canStandAt(x, y, z, this.height);
+    }
+
+    private boolean isPassable(int x, int y, int z) {
+        return this.cache.isPassable(x, y, z);
+    }
+
+    private int addNode(int x, int y, int z, int parent, float cost) {
+        int node = this.nodeCount++;
+        if (node == this.nodeX.length) {
+            int size = node << 1;
+            this.nodeX = Arrays.copyOf(this.nodeX, size);
+            this.nodeY = Arrays.copyOf(this.nodeY, size);
+            this.nodeZ = Arrays.copyOf(this.nodeZ, size);
+            this.parent = Arrays.copyOf(this.parent, size);
+            this.cost = Arrays.copyOf(this.cost, size);
+            this.estimate = Arrays.copyOf(this.estimate, size);
+            this.closed = Arrays.copyOf(this.closed, size);
+        }
+        this.nodeX[node] = x;
+        this.nodeY[node] = y;
+        this.nodeZ[node] = z;
+        this.parent[node] = parent;
+        this.cost[node] = cost;
+        this.estimate[node] = this.estimate(x, y, z);
+        this.nodeIndex.put(pack(x, y, z), node);
+        return node;
+    }
+
+    private float estimate(int x, int y, int z) {
+        int dx = Math.abs(x - this.goalX);
+        int dz = Math.abs(z - this.goalZ);
+        int min = Math.min(dx, dz);
+        return (dx + dz - min) + (DIAGONAL_COST - 1) * min + Math.abs(y - this.goalY);
+    }
+
+    private void finish(int node) {
+        this.finished = true;
+        if (node == 0) {
+            // No progress possible
+            return;
+        }
+
+        int length = 0;
+        for (int i = node; i > 0; i = this.parent[i]) {
+            length++;
+        }
+
+        int[] xs = new int[length];
+        int[] ys = new int[length];
+        int[] zs = new int[length];
+        for (int i = node, index = length - 1; i > 0; i = this.parent[i], index--) {
+            xs[index] = this.nodeX[i];
+            ys[index] = this.nodeY[i];
+            zs[index] = this.nodeZ[i];
+        }
+        boolean complete = xs[length - 1] == this.goalX && ys[length - 1] == this.goalY && zs[length - 1] == this.goalZ;
+        this.result = new Path(xs, ys, zs, this.goalX, this.goalY, this.goalZ, complete);
+    }
+
+    private void push(int node) {
+        if (this.heapSize == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.heapSize << 1);
+            this.heapPriority = Arrays.copyOf(this.heapPriority, this.heapSize << 1);
+        }
+        int index = this.heapSize++;
+        float priority = this.cost[node] + this.estimate[node];
+        while (index > 0) {
+            int parentIndex = (index - 1) >> 1;
+            if (this.heapPriority[parentIndex] <= priority) {
+                break;
+            }
+            this.heap[index] = this.heap[parentIndex];
+            this.heapPriority[index] = this.heapPriority[parentIndex];
+            index = parentIndex;
+        }
+        this.heap[index] = node;
+        this.heapPriority[index] = priority;
+    }
+
+    private int pop() {
+        int result = this.heap[0];
+        int size = --this.heapSize;
+        if (size > 0) {
+            int last = this.heap[size];
+            float priority = this.heapPriority[size];
+            int index = 0;
+            while (true) {
+                int child = (index << 1) + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && this.heapPriority[child + 1] < this.heapPriority[child]) {
+                    child++;
+                }
+                if (this.heapPriority[child] >= priority) {
+                    break;
+                }
+                this.heap[index] = this.heap[child];
+                this.heapPriority[index] = this.heapPriority[child];
+                index = child;
+            }
+            this.heap[index] = last;
+            this.heapPriority[index] = priority;
+        }
+        return result;
+    }
+
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3ffffff) << 38) | ((long) (z & 0x3ffffff) << 12) | (y & 0xfff);
+    }
+}
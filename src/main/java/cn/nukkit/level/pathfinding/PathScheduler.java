@@ -0,0 +1,69 @@
+package cn.nukkit.level.pathfinding;
+
+import cn.nukkit.level.Level;
+
+import java.util.ArrayDeque;
+
+/**
+ * Runs the path searches of a level with a fixed node budget per tick.
+ * Searches which do not fit into the budget continue in the next tick, entities keep their previous movement until
+ * their search is finished.
+ */
+public class PathScheduler {
+
+    /**
+     * Maximum number of nodes expanded by a single search
+     */
+    public static final int MAX_NODES_PER_SEARCH = 768;
+
+    private final WalkabilityCache cache;
+    private final ArrayDeque<PathFinder> queue = new ArrayDeque<>();
+    private final int nodesPerTick;
+
+    /**
+     * @param nodesPerTick node budget per tick, 0 disables path finding
+     */
+    public PathScheduler(Level level, int nodesPerTick) {
+        this.cache = new WalkabilityCache(level);
+        this.nodesPerTick = nodesPerTick;
+    }
+
+    public WalkabilityCache getCache() {
+        return this.cache;
+    }
+
+    public boolean isEnabled() {
+        return this.nodesPerTick > 0;
+    }
+
+    /**
+     * Queue a new search
+     *
+     * @param height height of the entity in blocks
+     * @return the search, finished once a path is found or the goal is unreachable
+     */
+    public PathFinder submit(int startX, int startY, int startZ, int goalX, int goalY, int goalZ, int height) {
+        PathFinder finder = new PathFinder(this.cache, startX, startY, startZ, goalX, goalY, goalZ, height, MAX_NODES_PER_SEARCH);
+        this.queue.add(finder);
+        return finder;
+    }
+
+    public void cancel(PathFinder finder) {
+        this.queue.remove(finder);
+    }
+
+    public int getQueueSize() {
+        return this.queue.size();
+    }
+
+    public void tick() {
+        int budget = this.nodesPerTick;
+        while (budget > 0 && !this.queue.isEmpty()) {
+            PathFinder finder = this.queue.peek();
+            budget -= finder.step(budget);
+            if (finder.isFinished()) {
+                this.queue.poll();
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package cn.nukkit.level.pathfinding;
+
+import cn.nukkit.block.*;
+import cn.nukkit.level.Level;
+import cn.nukkit.level.format.Chunk;
+import cn.nukkit.level.format.ChunkSection;
+import cn.nukkit.level.format.generic.BaseFullChunk;
+import cn.nukkit.level.format.generic.EmptyChunkSection;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Movement related type of every block, computed once per chunk section and dropped when a block of the section changes.
+ * Used by the path finder so searches do not create block instances.
+ * The cache is not thread safe, it must only be used by the thread ticking the level.
+ */
+public class WalkabilityCache {
+
+    /**
+     * Block without collision which can be walked through
+     */
+    public static final byte OPEN = 1;
+    /**
+     * Block with collision which can be stood on
+     */
+    public static final byte SOLID = 2;
+    /**
+     * Water, can be swum through
+     */
+    public static final byte WATER = 3;
+    /**
+     * Block which hurts entities, avoided by the path finder
+     */
+    public static final byte DANGER = 4;
+    /**
+     * Fences and walls, can not be walked through or jumped on
+     */
+    public static final byte TALL = 5;
+
+    /**
+     * Types by full block id, 0 if not computed yet
+     */
+    private static byte[] blockTypes;
+
+    private static final byte[] EMPTY_SECTION = new byte[4096];
+
+    static {
+        Arrays.fill(EMPTY_SECTION, OPEN);
+    }
+
+    private final Level level;
+    private final Long2ObjectOpenHashMap<byte[]> sections = new Long2ObjectOpenHashMap<>();
+
+    private long lastKey = Long.MIN_VALUE;
+    private byte[] lastSection;
+
+    public WalkabilityCache(Level level) {
+        this.level = level;
+    }
+
+    private static long sectionKey(int chunkX, int sectionY, int chunkZ) {
+        return ((long) (chunkX & 0x3ffffff) << 38) | ((long) (chunkZ & 0x3ffffff) << 12) | (sectionY & 0xfff);
+    }
+
+    /**
+     * Get the type of a block
+     *
+     * @return one of the type constants, {@link #SOLID} for blocks outside the world or in unloaded chunks
+     */
+    public byte getType(int x, int y, int z) {
+        if (y < this.level.getMinBlockY()) {
+            return SOLID;
+        }
+        if (y > this.level.getMaxBlockY()) {
+            return OPEN;
+        }
+
+        long key = sectionKey(x >> 4, y >> 4, z >> 4);
+        byte[] section;
+        if (key == this.lastKey) {
+            section = this.lastSection;
+        } else {
+            section = this.sections.get(key);
+            if (section == null) {
+                section = this.computeSection(x >> 4, y >> 4, z >> 4);
+                if (section == null) {
+                    return SOLID;
+                }
+                this.sections.put(key, section);
+            }
+            this.lastKey = key;
+            this.lastSection = section;
+        }
+        return section[((y & 0x0f) << 8) | ((z & 0x0f) << 4) | (x & 0x0f)];
+    }
+
+    /**
+     * Check whether a block can be moved through
+     */
+    public boolean isPassable(int x, int y, int z) {
+        byte type = this.getType(x, y, z);
+        return type == OPEN || type == WATER;
+    }
+
+    /**
+     * Check whether an entity fits into the blocks at a position and has ground to stand on or water to swim on
+     *
+     * @param height height of the entity in blocks
+     */
+    public boolean canStandAt(int x, int y, int z, int height) {
+        for (int i = 0; i < height; i++) {
+            if (!this.isPassable(x, y + i, z)) {
+                return false;
+            }
+        }
+
+        byte below = this.getType(x, y - 1, z);
+        return below == SOLID || below == WATER && this.getType(x, y, z) != WATER;
+    }
+
+    /**
+     * Drop the cached section containing a block
+     */
+    public void invalidate(int x, int y, int z) {
+        long key = sectionKey(x >> 4, y >> 4, z >> 4);
+        this.sections.remove(key);
+        if (key == this.lastKey) {
+            this.lastKey = Long.MIN_VALUE;
+            this.lastSection = null;
+        }
+    }
+
+    /**
+     * Drop all cached sections of a chunk
+     */
+    public void invalidateChunk(int chunkX, int chunkZ) {
+        if (this.sections.isEmpty()) {
+            return;
+        }
+        for (int sectionY = this.level.getMinBlockY() >> 4; sectionY <= this.level.getMaxBlockY() >> 4; sectionY++) {
+            this.sections.remove(sectionKey(chunkX, sectionY, chunkZ));
+        }
+        this.lastKey = Long.MIN_VALUE;
+        this.lastSection = null;
+    }
+
+    public void clear() {
+        this.sections.clear();
+        this.lastKey = Long.MIN_VALUE;
+        this.lastSection = null;
+    }
+
+    private byte[] computeSection(int chunkX, int sectionY, int chunkZ) {
+        BaseFullChunk chunk = this.level.getChunkIfLoaded(chunkX, chunkZ);
+        if (!(chunk instanceof Chunk)) {
+            return null;
+        }
+
+        ChunkSection section = ((Chunk) chunk).getSection(sectionY);
+        if (section == null) {
+            return null;
+        }
+        if (section instanceof EmptyChunkSection || section.isEmpty()) {
+            return EMPTY_SECTION;
+        }
+
+        byte[] types = new byte[4096];
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    types[(y << 8) | (z << 4) | x] = getBlockType(section.getFullBlock(x, y, z));
+                }
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Get the type of a block state
+     *
+     * @param fullId full block id
+     */
+    public static byte getBlockType(int fullId) {
+        byte[] types = blockTypes;
+        if (types == null) {
+            blockTypes = types = new byte[Block.fullList.length];
+        }
+        if (fullId < 0 || fullId >= types.length) {
+            return SOLID;
+        }
+
+        byte type = types[fullId];
+        if (type == 0) {
+            types[fullId] = type = computeBlockType(fullId);
+        }
+        return type;
+    }
+
+    private static byte computeBlockType(int fullId) {
+        int id = fullId >> Block.DATA_BITS;
+        switch (id) {
+            case BlockID.AIR:
+                return OPEN;
+            case BlockID.WATER:
+            case BlockID.STILL_WATER:
+                return WATER;
+            case BlockID.LAVA:
+            case BlockID.STILL_LAVA:
+            case BlockID.FIRE:
+            case BlockID.SOUL_FIRE:
+            case BlockID.CACTUS:
+            case BlockID.MAGMA:
+            case BlockID.SWEET_BERRY_BUSH:
+            case BlockID.WITHER_ROSE:
+            case BlockID.CAMPFIRE_BLOCK:
+            case BlockID.SOUL_CAMPFIRE_BLOCK:
+            case BlockID.COBWEB:
+            case BlockID.POWDER_SNOW:
+                return DANGER;
+        }
+
+        Block block = Block.fullList[fullId];
+        if (block == null) {
+            return SOLID;
+        }
+        if (block instanceof BlockFence || block instanceof BlockFenceGate || block instanceof BlockWall) {
+            return TALL;
+        }
+        return block.canPassThrough() ? OPEN : SOLID;
+    }
+}
@@ -3,36 +3,63 @@ package cn.nukkit.network;
 import cn.nukkit.Player;
 import cn.nukkit.Server;
 import cn.nukkit.event.server.BatchPacketsEvent;
+import cn.nukkit.event.server.DataPacketSendEvent;
 import cn.nukkit.network.protocol.BatchPacket;
 import cn.nukkit.network.protocol.DataPacket;
 import cn.nukkit.network.protocol.ProtocolInfo;
-import cn.nukkit.utils.Binary;
+import cn.nukkit.network.session.NetworkPlayerSession;
 import cn.nukkit.utils.BinaryStream;
 import cn.nukkit.utils.SnappyCompression;
 import cn.nukkit.utils.Zlib;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import it.unimi.dsi.fastutil.ints.Int2IntMap;
-import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
-import it.unimi.dsi.fastutil.objects.ObjectList;
+import lombok.extern.log4j.Log4j2;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * 主要处理服务器广播数据包
  * 因为每个玩家的协议版本不同，所以在这个线程提前根据玩家协议进行编码
+ * <p>
+ * Work is sharded by player across several single threaded executors, so packets sent to the same
+ * player keep their order while encoding and compression of different players can run in parallel.
  */
+@Log4j2
 public class BatchingHelper {
 
-    private final ExecutorService threadedExecutor;
+    /**
+     * Time in milliseconds the sender of an immediate packet waits for the shard to send it
+     */
+    private static final long IMMEDIATE_TIMEOUT = 5000;
+
+    private final ThreadPoolExecutor[] shards;
+    /**
+     * Smoothed time in nanoseconds between submitting a task to a shard and the task being finished
+     */
+    private final AtomicLongArray shardLatency;
 
     public BatchingHelper() {
-        ThreadFactoryBuilder builder = new ThreadFactoryBuilder();
-        builder.setNameFormat("Batching Executor");
-        this.threadedExecutor = Executors.newSingleThreadExecutor(builder.build());
+        this(1);
+    }
+
+    public BatchingHelper(int threads) {
+        int count = Math.max(1, threads);
+        this.shards = new ThreadPoolExecutor[count];
+        this.shardLatency = new AtomicLongArray(count);
+        for (int i = 0; i < count; i++) {
+            ThreadFactoryBuilder builder = new ThreadFactoryBuilder();
+            builder.setNameFormat(count == 1 ? "Batching Executor" : "Batching Executor #" + i);
+            this.shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), builder.build());
+        }
     }
 
     public void batchPackets(Player[] players, DataPacket[] packets) {
@@ -46,94 +73,279 @@ public class BatchingHelper {
             return;
         }
 
-        this.threadedExecutor.execute(() -> this.batchAndSendPackets(players, packets));
-    }
-
-    private void batchAndSendPackets(Player[] players, DataPacket[] packets) {
         //只有一个玩家时直接发送
         //未知原因 注释掉会导致客户端容易闪退
         if (players.length == 1) {
+            Player player = players[0];
             for (DataPacket packet : packets) {
-                packet.protocol = players[0].protocol;
-                players[0].getNetworkSession().sendPacket(packet);
-           }
-           return;
+                packet.protocol = player.protocol;
+                player.queuePacket(packet);
+            }
+            return;
         }
 
-        Int2ObjectMap<ObjectList<Player>> targets = new Int2ObjectOpenHashMap<>();
+        SharedPayload payload = new SharedPayload(packets);
         for (Player player : players) {
-            targets.computeIfAbsent(player.protocol, i -> new ObjectArrayList<>()).add(player);
+            player.queuePacket(new SharedBatchPacket(payload));
         }
+    }
 
-        // Encoded packets by encoding protocol
-        Int2ObjectMap<ObjectList<DataPacket>> encodedPackets = new Int2ObjectOpenHashMap<>();
-
-        for (DataPacket packet : packets) {
-            Int2IntMap encodingProtocols = new Int2IntOpenHashMap();
-            for (int protocolId : targets.keySet()) {
-                // TODO: encode only by encoding protocols
-                // No need to have all versions here
-                encodingProtocols.put(protocolId, protocolId);
+    /**
+     * Encode and send the packets queued for a player during a tick.
+     * Consecutive packets are encoded into one batch which is compressed only once, the encoded payloads of
+     * broadcasts are appended to the same batch.
+     *
+     * @param player player
+     * @param packets queued packets in the order they were sent
+     */
+    public void sendQueuedPackets(Player player, List<DataPacket> packets) {
+        this.execute(player, () -> {
+            for (DataPacket packet : packets) {
+                if (!(packet instanceof BatchPacket)) {
+                    packet.protocol = player.protocol;
+                }
             }
+            player.getNetworkSession().sendPackets(packets);
+        });
+    }
 
-            Int2ObjectMap<DataPacket> encodedPacket = new Int2ObjectOpenHashMap<>();
-            for (int encodingProtocol : encodingProtocols.values()) {
-                if (!encodedPacket.containsKey(encodingProtocol)) {
-                    DataPacket pk = packet.clone();
-                    pk.protocol = encodingProtocol;
-                    pk.tryEncode();
-                    encodedPacket.put(encodingProtocol, pk);
+    /**
+     * Send a packet right away, after the packets queued for the player before it.
+     * The packet is handed to the session on the shard of the player, behind the batches already waiting there, and the
+     * calling thread waits until that happened so the packet is not overtaken by packets queued before it.
+     *
+     * @param player player
+     * @param packets packets queued for the player before the packet, in the order they were sent
+     * @param packet packet to send immediately
+     * @param callback called once the packet was sent
+     */
+    public void sendImmediatePacket(Player player, List<DataPacket> packets, DataPacket packet, Runnable callback) {
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            NetworkPlayerSession session = player.getNetworkSession();
+            if (!packets.isEmpty()) {
+                for (DataPacket queued : packets) {
+                    if (!(queued instanceof BatchPacket)) {
+                        queued.protocol = player.protocol;
+                    }
                 }
+                session.sendPackets(packets);
             }
+            session.sendImmediatePacket(packet, callback);
+        }, null);
+        this.execute(player, task);
 
-            for (int protocolId : encodingProtocols.values()) {
-                int encodingProtocol = encodingProtocols.get(protocolId);
-                encodedPackets.computeIfAbsent(protocolId, i -> new ObjectArrayList<>()).add(encodedPacket.get(encodingProtocol));
-            }
+        try {
+            task.get(IMMEDIATE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Unable to send {} to {}", packet.getClass().getSimpleName(), player.getName(), e.getCause());
+        } catch (TimeoutException e) {
+            // The packet is still sent by the shard, only the caller stops waiting for it
+            log.warn("Sending {} to {} took more than {}ms", packet.getClass().getSimpleName(), player.getName(), IMMEDIATE_TIMEOUT);
+        }
+    }
+
+    /**
+     * Send the same packet to multiple players.
+     * The packet is encoded and compressed only once per protocol version and all recipients
+     * using the same protocol share the same compressed payload. If {@link DataPacketSendEvent} has listeners, every
+     * player gets its own copy of the packet instead, so a listener can change or cancel it for one player only.
+     *
+     * @param players recipients
+     * @param packet packet
+     */
+    public void broadcastPacket(Player[] players, DataPacket packet) {
+        if (players == null || packet == null || players.length == 0) {
+            return;
         }
 
-        for (int protocolId : targets.keySet()) {
-            ObjectList<DataPacket> packetList = encodedPackets.get(protocolId);
-            ObjectList<Player> finalTargets = targets.get(protocolId);
+        Server server = Server.getInstance();
+        boolean listened = server.callDataPkSendEv && DataPacketSendEvent.getHandlers().getRegisteredListeners().length > 0;
+        if (players.length == 1 || packet instanceof BatchPacket || listened) {
+            for (Player player : players) {
+                player.dataPacket(packet);
+            }
+            return;
+        }
 
-            BinaryStream batched = new BinaryStream();
-            for (DataPacket packet : packetList) {
-                if (packet instanceof BatchPacket) {
-                    throw new RuntimeException("Cannot batch BatchPacket");
-                }
-                packet.tryEncode();
-                byte[] buf = packet.getBuffer();
-                batched.putUnsignedVarInt(buf.length);
-                batched.put(buf);
+        List<Player> targets = new ObjectArrayList<>(players.length);
+        for (Player player : players) {
+            if (!player.isOnline()) {
+                // Compression may not be initialized yet
+                player.dataPacket(packet);
+                continue;
             }
 
+            targets.add(player);
+        }
+
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        // The caller may reuse the packet instance after this method returns
+        SharedPayload payload = new SharedPayload(new DataPacket[]{packet.clone()});
+        for (Player player : targets) {
+            player.queuePacket(new SharedBatchPacket(payload));
+        }
+    }
+
+    private static byte[] compress(int protocolId, byte[] bytes) throws Exception {
+        if (Server.getInstance().useSnappy && protocolId >= ProtocolInfo.v1_19_30_23) {
+            return SnappyCompression.compress(bytes);
+        } else if (protocolId >= ProtocolInfo.v1_16_0) {
+            return Zlib.deflateRaw(bytes, Server.getInstance().networkCompressionLevel);
+        } else {
+            return Zlib.deflatePre16Packet(bytes, Server.getInstance().networkCompressionLevel);
+        }
+    }
+
+    private void execute(Player player, Runnable task) {
+        int shard = Math.floorMod(player.getLoaderId(), this.shards.length);
+        long queued = System.nanoTime();
+        this.shards[shard].execute(() -> {
             try {
-                byte[] bytes = Binary.appendBytes(batched.getBuffer());
-                BatchPacket pk = new BatchPacket();
-                if (Server.getInstance().useSnappy && protocolId >= ProtocolInfo.v1_19_30_23) {
-                    pk.payload = SnappyCompression.compress(bytes);
-                } else if (protocolId >= ProtocolInfo.v1_16_0) {
-                    pk.payload = Zlib.deflateRaw(bytes, Server.getInstance().networkCompressionLevel);
-                } else {
-                    pk.payload = Zlib.deflatePre16Packet(bytes, Server.getInstance().networkCompressionLevel);
-                }
-                for (Player player : finalTargets) {
-                    CompressionProvider compressionProvider = player.getNetworkSession().getCompression();
-                    if (compressionProvider == CompressionProvider.NONE) {
-                        BatchPacket batchPacket = new BatchPacket();
-                        batchPacket.payload = bytes;
-                        player.dataPacket(batchPacket);
-                    }else {
-                        player.dataPacket(pk);
-                    }
-                }
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+                task.run();
+            } finally {
+                long elapsed = System.nanoTime() - queued;
+                long previous = this.shardLatency.get(shard);
+                this.shardLatency.set(shard, previous == 0 ? elapsed : (previous * 7 + elapsed) >> 3);
             }
+        });
+    }
+
+    /**
+     * Get the number of shards (threads) used for batching
+     *
+     * @return shard count
+     */
+    public int getShardCount() {
+        return this.shards.length;
+    }
+
+    /**
+     * Get the number of tasks waiting in all shards
+     *
+     * @return queue depth
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor shard : this.shards) {
+            depth += shard.getQueue().size();
         }
+        return depth;
+    }
+
+    /**
+     * Get the number of tasks waiting in a shard
+     *
+     * @param shard shard index
+     * @return queue depth
+     */
+    public int getQueueDepth(int shard) {
+        return this.shards[shard].getQueue().size();
+    }
+
+    /**
+     * Get the smoothed time between a task being queued to a shard and the task being finished
+     *
+     * @param shard shard index
+     * @return latency in milliseconds
+     */
+    public double getShardLatency(int shard) {
+        return this.shardLatency.get(shard) / 1_000_000d;
     }
 
     public void shutdown() {
-        this.threadedExecutor.shutdownNow();
+        for (ThreadPoolExecutor shard : this.shards) {
+            shard.shutdownNow();
+        }
+    }
+
+    /**
+     * Placeholder queued for every recipient of a broadcast, replaced by the shared payload when the queue is sent
+     */
+    public static class SharedBatchPacket extends BatchPacket {
+
+        private final SharedPayload shared;
+
+        private SharedBatchPacket(SharedPayload shared) {
+            this.shared = shared;
+        }
+
+        /**
+         * Get the shared packets encoded as uncompressed batch content, to be appended to a batch of the recipient
+         *
+         * @param protocolId protocol of the recipient
+         * @return length prefixed packets
+         */
+        public byte[] getEncoded(int protocolId) {
+            return this.shared.get(protocolId, false);
+        }
+
+        /**
+         * Get the shared packets as a batch of their own
+         *
+         * @param protocolId protocol of the recipient
+         * @param compress whether the recipient uses compression
+         * @return batch packet
+         */
+        public BatchPacket toBatchPacket(int protocolId, boolean compress) {
+            BatchPacket batchPacket = new BatchPacket();
+            batchPacket.protocol = protocolId;
+            batchPacket.payload = this.shared.get(protocolId, compress);
+            return batchPacket;
+        }
+    }
+
+    /**
+     * Packets shared by all recipients of a broadcast.
+     * The batch is encoded and compressed lazily by the first shard that needs it for a protocol version.
+     */
+    private static class SharedPayload {
+
+        private final DataPacket[] packets;
+        private final Int2ObjectMap<byte[]> uncompressed = new Int2ObjectOpenHashMap<>();
+        private final Int2ObjectMap<byte[]> compressed = new Int2ObjectOpenHashMap<>();
+
+        private SharedPayload(DataPacket[] packets) {
+            this.packets = packets;
+        }
+
+        private synchronized byte[] get(int protocolId, boolean compress) {
+            byte[] bytes = this.uncompressed.get(protocolId);
+            if (bytes == null) {
+                BinaryStream batched = new BinaryStream();
+                for (DataPacket packet : this.packets) {
+                    if (packet instanceof BatchPacket) {
+                        throw new RuntimeException("Cannot batch BatchPacket");
+                    }
+                    DataPacket pk = packet.clone();
+                    pk.protocol = protocolId;
+                    pk.tryEncode();
+                    byte[] buf = pk.getBuffer();
+                    batched.putUnsignedVarInt(buf.length);
+                    batched.put(buf);
+                }
+                bytes = batched.getBuffer();
+                this.uncompressed.put(protocolId, bytes);
+            }
+
+            if (!compress) {
+                return bytes;
+            }
+
+            byte[] payload = this.compressed.get(protocolId);
+            if (payload == null) {
+                try {
+                    payload = compress(protocolId, bytes);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                this.compressed.put(protocolId, payload);
+            }
+            return payload;
+        }
     }
 }
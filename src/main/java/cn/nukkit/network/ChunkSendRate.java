@@ -0,0 +1,160 @@
+package cn.nukkit.network;
+
+import cn.nukkit.network.protocol.NetworkStackLatencyPacket;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Number of chunks sent to a player per tick, adapted to how fast the client receives them.
+ * <p>
+ * After chunks were sent a {@link NetworkStackLatencyPacket} is sent as a probe, which the client answers once it
+ * received everything sent before it. The number of chunks sent but not acknowledged is limited by a window, which
+ * grows while the round trip time stays close to the lowest one measured and shrinks when it rises.
+ * Clients which do not answer the probes get the fixed rate.
+ */
+public class ChunkSendRate {
+
+    private static final int MAX_PROBES = 32;
+    private static final long PROBE_TIMEOUT = TimeUnit.SECONDS.toNanos(3);
+    /**
+     * Round trip time above the lowest one which is still not seen as congestion
+     */
+    private static final long RTT_SLACK = TimeUnit.MILLISECONDS.toNanos(25);
+    /**
+     * Number of unanswered probes in a row after which the fixed rate is used
+     */
+    private static final int MAX_TIMEOUTS = 2;
+
+    private final int minPerTick;
+    private final int maxPerTick;
+    private final int minWindow;
+    private final int maxWindow;
+
+    private boolean adaptive;
+    private int window;
+    private int inFlight;
+    private int unprobed;
+    private int timeouts;
+    private long minRtt = Long.MAX_VALUE;
+
+    private long nextProbeId = 1;
+    private final long[] probeIds = new long[MAX_PROBES];
+    private final long[] probeTimes = new long[MAX_PROBES];
+    private final int[] probeChunks = new int[MAX_PROBES];
+    private int probeHead;
+    private int probeCount;
+
+    /**
+     * @param chunksPerTick fixed rate, also the lowest adaptive rate
+     * @param adaptive whether the client can answer probes
+     */
+    public ChunkSendRate(int chunksPerTick, boolean adaptive) {
+        this.minPerTick = Math.max(1, chunksPerTick);
+        this.maxPerTick = this.minPerTick * 4;
+        this.minWindow = this.minPerTick * 2;
+        this.maxWindow = this.minPerTick * 64;
+        this.window = this.minPerTick * 8;
+        this.adaptive = adaptive;
+    }
+
+    public boolean isAdaptive() {
+        return this.adaptive;
+    }
+
+    /**
+     * Get the number of chunks which may be requested this tick
+     *
+     * @param now {@link System#nanoTime()}
+     */
+    public int getBudget(long now) {
+        if (!this.adaptive) {
+            return this.minPerTick;
+        }
+
+        if (this.probeCount > 0 && now - this.probeTimes[this.probeHead] > PROBE_TIMEOUT) {
+            // Treat the chunks as received and send slower
+            this.probeCount = 0;
+            this.inFlight = 0;
+            this.window = this.minWindow;
+            if (++this.timeouts >= MAX_TIMEOUTS) {
+                this.adaptive = false;
+                return this.minPerTick;
+            }
+        }
+        return Math.max(0, Math.min(this.maxPerTick, this.window - this.inFlight));
+    }
+
+    /**
+     * Count a chunk which was sent to the client
+     */
+    public void onChunkSent() {
+        if (this.adaptive) {
+            this.unprobed++;
+            this.inFlight++;
+        }
+    }
+
+    /**
+     * Create a probe for the chunks sent since the last one
+     *
+     * @param now {@link System#nanoTime()}
+     * @return timestamp for the probe, or -1 if no probe has to be sent
+     */
+    public long createProbe(long now) {
+        if (!this.adaptive || this.unprobed == 0 || this.probeCount == MAX_PROBES) {
+            return -1;
+        }
+
+        int slot = (this.probeHead + this.probeCount++) % MAX_PROBES;
+        long id = this.nextProbeId++;
+        this.probeIds[slot] = id;
+        this.probeTimes[slot] = now;
+        this.probeChunks[slot] = this.unprobed;
+        this.unprobed = 0;
+        return id;
+    }
+
+    /**
+     * Handle the answer of a probe
+     *
+     * @param timestamp timestamp sent back by the client
+     * @param now {@link System#nanoTime()}
+     * @return whether the timestamp belonged to a probe
+     */
+    public boolean onProbeAnswered(long timestamp, long now) {
+        int found = -1;
+        for (int i = 0; i < this.probeCount; i++) {
+            long id = this.probeIds[(this.probeHead + i) % MAX_PROBES];
+            // Most clients send the timestamp back multiplied by 1000
+            if (id == timestamp || id * 1000 == timestamp) {
+                found = i;
+                break;
+            }
+        }
+        if (found == -1) {
+            return false;
+        }
+
+        // Packets arrive in order, earlier probes were received as well
+        int acked = 0;
+        long sentTime = 0;
+        for (int i = 0; i <= found; i++) {
+            acked += this.probeChunks[this.probeHead];
+            sentTime = this.probeTimes[this.probeHead];
+            this.probeHead = (this.probeHead + 1) % MAX_PROBES;
+        }
+        this.probeCount -= found + 1;
+        this.inFlight = Math.max(0, this.inFlight - acked);
+        this.timeouts = 0;
+
+        long rtt = now - sentTime;
+        // Let the lowest round trip time rise slowly so it follows changes of the route
+        this.minRtt = Math.min(rtt, this.minRtt == Long.MAX_VALUE ? rtt : this.minRtt + (this.minRtt >> 6));
+        if (rtt <= this.minRtt * 2 + RTT_SLACK) {
+            this.window = Math.min(this.maxWindow, this.window + acked);
+        } else {
+            this.window = Math.max(this.minWindow, this.window * 3 / 4);
+        }
+        return true;
+    }
+}
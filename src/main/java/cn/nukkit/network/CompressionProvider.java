@@ -4,6 +4,8 @@ import cn.nukkit.network.protocol.types.PacketCompressionAlgorithm;
 import cn.nukkit.utils.BinaryStream;
 import cn.nukkit.utils.SnappyCompression;
 import cn.nukkit.utils.Zlib;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 
 public interface CompressionProvider {
 
@@ -39,6 +41,11 @@ public interface CompressionProvider {
         public byte[] decompress(byte[] compressed, int maxSize) throws Exception {
             return Zlib.inflate(compressed, maxSize);
         }
+
+        @Override
+        public byte[] decompress(ByteBuf compressed, int maxSize) throws Exception {
+            return Zlib.inflate(compressed.nioBuffer(), maxSize);
+        }
     };
 
     CompressionProvider ZLIB_RAW = new CompressionProvider() {
@@ -57,6 +64,11 @@ public interface CompressionProvider {
             return Zlib.inflateRaw(compressed, maxSize);
         }
 
+        @Override
+        public byte[] decompress(ByteBuf compressed, int maxSize) throws Exception {
+            return Zlib.inflateRaw(compressed.nioBuffer(), maxSize);
+        }
+
         @Override
         public byte getPrefix() {
             return (byte) 0x00;
@@ -93,6 +105,13 @@ public interface CompressionProvider {
         return this.decompress(compressed);
     }
 
+    /**
+     * Decompress the readable bytes of a buffer. The reader index of the buffer is not changed.
+     */
+    default byte[] decompress(ByteBuf compressed, int maxSize) throws Exception {
+        return this.decompress(ByteBufUtil.getBytes(compressed), maxSize);
+    }
+
     static CompressionProvider from(PacketCompressionAlgorithm algorithm, int raknetProtocol) {
         if (algorithm == null) {
             return NONE;
@@ -0,0 +1,42 @@
+package cn.nukkit.network;
+
+import cn.nukkit.network.protocol.LoginPacket;
+import cn.nukkit.scheduler.AsyncTask;
+import cn.nukkit.utils.ClientChainData;
+import lombok.Getter;
+
+/**
+ * Decodes the chain data of a login packet and verifies its signatures.
+ * Subclasses continue the login in {@link #onCompletion(cn.nukkit.Server)}.
+ */
+public class LoginVerificationTask extends AsyncTask {
+
+    private final LoginPacket packet;
+    /**
+     * Decoded chain data, null if the login packet was invalid
+     */
+    @Getter
+    private ClientChainData chainData;
+    /**
+     * Whether the skin data was too big
+     */
+    @Getter
+    private boolean skinTooBig;
+    @Getter
+    private Exception error;
+
+    public LoginVerificationTask(LoginPacket packet) {
+        this.packet = packet;
+    }
+
+    @Override
+    public void onRun() {
+        try {
+            this.chainData = ClientChainData.read(this.packet);
+        } catch (ClientChainData.TooBigSkinException e) {
+            this.skinTooBig = true;
+        } catch (Exception e) {
+            this.error = e;
+        }
+    }
+}
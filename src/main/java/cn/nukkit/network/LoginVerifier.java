@@ -0,0 +1,58 @@
+package cn.nukkit.network;
+
+import cn.nukkit.scheduler.AsyncTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the decoding and verification of login packets on its own threads, so many players logging in at once
+ * do not stall the main thread.
+ * <p>
+ * The number of waiting logins is limited, logins above the limit are rejected instead of queued.
+ * Tasks are completed on the main thread like other {@link AsyncTask}s.
+ */
+public class LoginVerifier {
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param threads number of worker threads
+     * @param queueSize number of logins which may wait for a free worker
+     */
+    public LoginVerifier(int threads, int queueSize) {
+        int count = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(count, count, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                new ThreadFactoryBuilder().setNameFormat("Login Verifier #%d").setDaemon(true).build());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queue a login task
+     *
+     * @param task task decoding the login
+     * @return false if too many logins are waiting already
+     */
+    public boolean submit(AsyncTask task) {
+        try {
+            this.executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the number of logins waiting for a worker
+     */
+    public int getQueueSize() {
+        return this.executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+}
@@ -8,7 +8,6 @@ import cn.nukkit.network.protocol.*;
 import cn.nukkit.network.protocol.v113.*;
 import cn.nukkit.utils.BinaryStream;
 import cn.nukkit.utils.Utils;
-import cn.nukkit.utils.VarInt;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
@@ -20,7 +19,6 @@ import oshi.SystemInfo;
 import oshi.hardware.NetworkIF;
 
 import javax.annotation.Nonnegative;
-import java.io.ByteArrayInputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ProtocolException;
@@ -43,6 +41,8 @@ public class Network {
     public static final byte CHANNEL_TEXT = 7; //Chat and other text stuff
     public static final byte CHANNEL_END = 31;
 
+    private static final byte[] EMPTY_BUFFER = new byte[0];
+
     private PacketPool packetPool113;
     private PacketPool packetPoolCurrent;
 
@@ -213,18 +213,46 @@ public class Network {
     }
 
     public void processBatch(byte[] payload, Collection<DataPacket> packets, CompressionProvider compression, int raknetProtocol, Player player) {
-        int maxSize = 3145728; // 3 * 1024 * 1024
-        if (player != null && player.getSkin() == null) {
-            maxSize = 6291456; // 6 * 1024 * 1024
+        byte[] data;
+        try {
+            data = compression.decompress(payload, getMaxBatchSize(player));
+        } catch (Exception e) {
+            log.debug("Exception while inflating batch packet", e);
+            return;
         }
+
+        this.decodeBatch(data, packets, raknetProtocol, player);
+    }
+
+    /**
+     * Process a batch straight from the network buffer without copying the compressed payload.
+     * The reader index of the buffer is not changed.
+     */
+    public void processBatch(ByteBuf payload, Collection<DataPacket> packets, CompressionProvider compression, int raknetProtocol, Player player) {
         byte[] data;
         try {
-            data = compression.decompress(payload, maxSize);
+            data = compression.decompress(payload, getMaxBatchSize(player));
         } catch (Exception e) {
             log.debug("Exception while inflating batch packet", e);
             return;
         }
 
+        this.decodeBatch(data, packets, raknetProtocol, player);
+    }
+
+    private static int getMaxBatchSize(Player player) {
+        if (player != null && player.getSkin() == null) {
+            return 6291456; // 6 * 1024 * 1024
+        }
+        return 3145728; // 3 * 1024 * 1024
+    }
+
+    /**
+     * Decode all packets of an inflated batch.
+     * Packets are decoded from their range of the inflated array without copying it. The array is released once a
+     * packet is decoded, packets which need their data afterwards copy it while decoding.
+     */
+    private void decodeBatch(byte[] data, Collection<DataPacket> packets, int raknetProtocol, Player player) {
         BinaryStream stream = new BinaryStream(data);
         try {
             int count = 0;
@@ -233,45 +261,51 @@ public class Network {
                 if (count >= 1000) {
                     throw new ProtocolException("Illegal batch with " + count + " packets");
                 }
-                byte[] buf = stream.getByteArray();
-
-                ByteArrayInputStream bais = new ByteArrayInputStream(buf);
+                int length = (int) stream.getUnsignedVarInt();
+                int start = stream.getOffset();
+                int end = start + length;
+                if (length < 0 || end > data.length) {
+                    throw new ProtocolException("Invalid packet length " + length);
+                }
 
                 int packetId;
                 switch (raknetProtocol) {
                     case 7:
-                        packetId = bais.read();
+                        packetId = stream.getByte();
                         break;
                     case 8:
-                        packetId = bais.read();
-                        bais.skip(2L);
+                        packetId = stream.getByte();
+                        stream.skip(2);
                         break;
                     default:
-                        int header = (int) VarInt.readUnsignedVarInt(bais);
+                        int header = (int) stream.getUnsignedVarInt();
                         // | Client ID | Sender ID | Packet ID |
                         // |   2 bits  |   2 bits  |  10 bits  |
                         packetId = header & 0x3FF;
                         break;
                 }
+                int headerEnd = stream.getOffset();
+                stream.setOffset(end);
 
                 DataPacket pk = this.getPacket(packetId, player == null ? ProtocolInfo.CURRENT_PROTOCOL : player.protocol);
 
                 if (pk != null) {
                     pk.protocol = player == null ? Integer.MAX_VALUE : player.protocol;
-                    pk.setBuffer(buf, buf.length - bais.available());
+                    int offset = raknetProtocol > 8 ? headerEnd : start + (pk.protocol < ProtocolInfo.v1_2_0 ? 1 : 3); // version < 1.6
+                    pk.setBuffer(data, offset, end);
                     try {
-                        if (raknetProtocol > 8) {
-                            pk.decode();
-                        } else { // version < 1.6
-                            pk.setBuffer(buf, pk.protocol < ProtocolInfo.v1_2_0 ? 1 : 3);
-                            pk.decode();
-                        }
+                        pk.decode();
                     } catch (Exception e) {
                         if (log.isTraceEnabled()) {
-                            log.trace("Dumping Packet\n{}", ByteBufUtil.prettyHexDump(Unpooled.wrappedBuffer(buf)));
+                            log.trace("Dumping Packet\n{}", ByteBufUtil.prettyHexDump(Unpooled.wrappedBuffer(data, start, length)));
                         }
                         log.error("Unable to decode packet", e);
                         throw new IllegalStateException("Unable to decode " + pk.getClass().getSimpleName());
+                    } finally {
+                        // The packet must not keep the batch alive or expose the other packets of it
+                        if (pk.getBufferUnsafe() == data) {
+                            pk.setBuffer(EMPTY_BUFFER, 0);
+                        }
                     }
 
                     packets.add(pk);
@@ -546,6 +580,7 @@ public class Network {
                 .registerPacket(ProtocolInfo.LECTERN_UPDATE_PACKET, LecternUpdatePacket.class)
                 .registerPacket(ProtocolInfo.VIDEO_STREAM_CONNECT_PACKET, VideoStreamConnectPacket.class)
                 .registerPacket(ProtocolInfo.CLIENT_CACHE_STATUS_PACKET, ClientCacheStatusPacket.class)
+                .registerPacket(ProtocolInfo.CLIENT_CACHE_BLOB_STATUS_PACKET, ClientCacheBlobStatusPacket.class)
                 .registerPacket(ProtocolInfo.MAP_CREATE_LOCKED_COPY_PACKET, MapCreateLockedCopyPacket.class)
                 .registerPacket(ProtocolInfo.ON_SCREEN_TEXTURE_ANIMATION_PACKET, OnScreenTextureAnimationPacket.class)
                 .registerPacket(ProtocolInfo.COMPLETED_USING_ITEM_PACKET, CompletedUsingItemPacket.class)
@@ -568,6 +603,7 @@ public class Network {
                 .registerPacket(ProtocolInfo.PLAYER_FOG_PACKET, PlayerFogPacket.class)
                 .registerPacket(ProtocolInfo.ITEM_COMPONENT_PACKET, ItemComponentPacket.class)
                 .registerPacket(ProtocolInfo.FILTER_TEXT_PACKET, FilterTextPacket.class)
+                .registerPacket(ProtocolInfo.SUB_CHUNK_REQUEST_PACKET, SubChunkRequestPacket.class)
                 .registerPacket(ProtocolInfo.SYNC_ENTITY_PROPERTY_PACKET, SyncEntityPropertyPacket.class)
                 .registerPacket(ProtocolInfo.NPC_DIALOGUE_PACKET, NPCDialoguePacket.class)
                 .registerPacket(ProtocolInfo.TOAST_REQUEST_PACKET, ToastRequestPacket.class)
@@ -5,8 +5,12 @@ import cn.nukkit.network.process.processor.common.*;
 import cn.nukkit.network.process.processor.v113.*;
 import cn.nukkit.network.process.processor.v137.CommandRequestProcessor_v137;
 import cn.nukkit.network.process.processor.v282.SetLocalPlayerAsInitializedProcessor_v282;
+import cn.nukkit.network.process.processor.v332.NetworkStackLatencyProcessor_v332;
 import cn.nukkit.network.process.processor.v340.LecternUpdateProcessor_v340;
+import cn.nukkit.network.process.processor.v361.ClientCacheBlobStatusProcessor_v361;
+import cn.nukkit.network.process.processor.v361.ClientCacheStatusProcessor_v361;
 import cn.nukkit.network.process.processor.v422.FilterTextProcessor_v422;
+import cn.nukkit.network.process.processor.v486.SubChunkRequestProcessor_v486;
 import cn.nukkit.network.process.processor.v527.RequestAbilityProcessor_v527;
 import cn.nukkit.network.process.processor.v554.RequestNetworkSettingsProcessor_v554;
 import cn.nukkit.network.protocol.DataPacket;
@@ -208,16 +212,32 @@ public final class DataPacketManager {
                 SetLocalPlayerAsInitializedProcessor_v282.INSTANCE
         );
 
+        registerProcessor(
+                ProtocolInfo.v1_9_0,
+                NetworkStackLatencyProcessor_v332.INSTANCE
+        );
+
         registerProcessor(
                 ProtocolInfo.v1_10_0,
                 LecternUpdateProcessor_v340.INSTANCE
         );
 
+        registerProcessor(
+                ProtocolInfo.v1_12_0,
+                ClientCacheStatusProcessor_v361.INSTANCE,
+                ClientCacheBlobStatusProcessor_v361.INSTANCE
+        );
+
         registerProcessor(
                 ProtocolInfo.v1_16_200,
                 FilterTextProcessor_v422.INSTANCE
         );
 
+        registerProcessor(
+                ProtocolInfo.v1_18_10,
+                SubChunkRequestProcessor_v486.INSTANCE
+        );
+
         registerProcessor(
                 ProtocolInfo.v1_19_0,
                 RequestAbilityProcessor_v527.INSTANCE
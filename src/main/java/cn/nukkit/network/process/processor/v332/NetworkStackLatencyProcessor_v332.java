@@ -0,0 +1,36 @@
+package cn.nukkit.network.process.processor.v332;
+
+import cn.nukkit.PlayerHandle;
+import cn.nukkit.network.process.DataPacketProcessor;
+import cn.nukkit.network.protocol.DataPacket;
+import cn.nukkit.network.protocol.NetworkStackLatencyPacket;
+import cn.nukkit.network.protocol.ProtocolInfo;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class NetworkStackLatencyProcessor_v332 extends DataPacketProcessor<NetworkStackLatencyPacket> {
+
+    public static final NetworkStackLatencyProcessor_v332 INSTANCE = new NetworkStackLatencyProcessor_v332();
+
+    @Override
+    public void handle(@NotNull PlayerHandle playerHandle, @NotNull NetworkStackLatencyPacket pk) {
+        playerHandle.player.handleNetworkStackLatency(pk.timestamp);
+    }
+
+    @Override
+    public int getPacketId() {
+        return ProtocolInfo.toNewProtocolID(ProtocolInfo.NETWORK_STACK_LATENCY_PACKET);
+    }
+
+    @Override
+    public Class<? extends DataPacket> getPacketClass() {
+        return NetworkStackLatencyPacket.class;
+    }
+
+    @Override
+    public boolean isSupported(int protocol) {
+        return protocol >= ProtocolInfo.v1_9_0;
+    }
+}
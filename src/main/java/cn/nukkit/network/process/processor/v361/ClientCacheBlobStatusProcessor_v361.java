@@ -0,0 +1,39 @@
+package cn.nukkit.network.process.processor.v361;
+
+import cn.nukkit.PlayerHandle;
+import cn.nukkit.network.process.DataPacketProcessor;
+import cn.nukkit.network.protocol.ClientCacheBlobStatusPacket;
+import cn.nukkit.network.protocol.DataPacket;
+import cn.nukkit.network.protocol.ProtocolInfo;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ClientCacheBlobStatusProcessor_v361 extends DataPacketProcessor<ClientCacheBlobStatusPacket> {
+
+    public static final ClientCacheBlobStatusProcessor_v361 INSTANCE = new ClientCacheBlobStatusProcessor_v361();
+
+    @Override
+    public void handle(@NotNull PlayerHandle playerHandle, @NotNull ClientCacheBlobStatusPacket pk) {
+        if (!playerHandle.player.isClientCacheEnabled()) {
+            return;
+        }
+        playerHandle.player.handleClientCacheBlobStatus(pk.missHashes, pk.hitHashes);
+    }
+
+    @Override
+    public int getPacketId() {
+        return ProtocolInfo.toNewProtocolID(ProtocolInfo.CLIENT_CACHE_BLOB_STATUS_PACKET);
+    }
+
+    @Override
+    public Class<? extends DataPacket> getPacketClass() {
+        return ClientCacheBlobStatusPacket.class;
+    }
+
+    @Override
+    public boolean isSupported(int protocol) {
+        return protocol >= ProtocolInfo.v1_12_0;
+    }
+}
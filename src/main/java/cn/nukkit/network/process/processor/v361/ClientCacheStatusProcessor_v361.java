@@ -0,0 +1,36 @@
+package cn.nukkit.network.process.processor.v361;
+
+import cn.nukkit.PlayerHandle;
+import cn.nukkit.network.process.DataPacketProcessor;
+import cn.nukkit.network.protocol.ClientCacheStatusPacket;
+import cn.nukkit.network.protocol.DataPacket;
+import cn.nukkit.network.protocol.ProtocolInfo;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ClientCacheStatusProcessor_v361 extends DataPacketProcessor<ClientCacheStatusPacket> {
+
+    public static final ClientCacheStatusProcessor_v361 INSTANCE = new ClientCacheStatusProcessor_v361();
+
+    @Override
+    public void handle(@NotNull PlayerHandle playerHandle, @NotNull ClientCacheStatusPacket pk) {
+        playerHandle.player.setClientCacheEnabled(pk.supported && playerHandle.player.getServer().clientChunkCache);
+    }
+
+    @Override
+    public int getPacketId() {
+        return ProtocolInfo.toNewProtocolID(ProtocolInfo.CLIENT_CACHE_STATUS_PACKET);
+    }
+
+    @Override
+    public Class<? extends DataPacket> getPacketClass() {
+        return ClientCacheStatusPacket.class;
+    }
+
+    @Override
+    public boolean isSupported(int protocol) {
+        return protocol >= ProtocolInfo.v1_12_0;
+    }
+}
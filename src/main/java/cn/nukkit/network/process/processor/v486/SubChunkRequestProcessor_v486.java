@@ -0,0 +1,41 @@
+package cn.nukkit.network.process.processor.v486;
+
+import cn.nukkit.Player;
+import cn.nukkit.PlayerHandle;
+import cn.nukkit.network.process.DataPacketProcessor;
+import cn.nukkit.network.protocol.DataPacket;
+import cn.nukkit.network.protocol.ProtocolInfo;
+import cn.nukkit.network.protocol.SubChunkRequestPacket;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class SubChunkRequestProcessor_v486 extends DataPacketProcessor<SubChunkRequestPacket> {
+
+    public static final SubChunkRequestProcessor_v486 INSTANCE = new SubChunkRequestProcessor_v486();
+
+    @Override
+    public void handle(@NotNull PlayerHandle playerHandle, @NotNull SubChunkRequestPacket pk) {
+        Player player = playerHandle.player;
+        if (!player.isSubChunkRequestMode() || !player.isConnected()) {
+            return;
+        }
+        player.getLevel().requestSubChunks(player, pk);
+    }
+
+    @Override
+    public int getPacketId() {
+        return ProtocolInfo.toNewProtocolID(ProtocolInfo.SUB_CHUNK_REQUEST_PACKET);
+    }
+
+    @Override
+    public Class<? extends DataPacket> getPacketClass() {
+        return SubChunkRequestPacket.class;
+    }
+
+    @Override
+    public boolean isSupported(int protocol) {
+        return protocol >= ProtocolInfo.v1_18_10;
+    }
+}
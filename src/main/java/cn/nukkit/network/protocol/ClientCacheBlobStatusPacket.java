@@ -0,0 +1,56 @@
+package cn.nukkit.network.protocol;
+
+import lombok.ToString;
+
+/**
+ * Sent by clients using the blob cache after receiving a chunk, tells which blobs of the chunk were cached
+ */
+@ToString
+public class ClientCacheBlobStatusPacket extends DataPacket {
+
+    public static final byte NETWORK_ID = ProtocolInfo.CLIENT_CACHE_BLOB_STATUS_PACKET;
+
+    /**
+     * Upper limit of hashes in one packet, a chunk has less than 30 blobs
+     */
+    private static final int MAX_HASHES = 4096;
+
+    public long[] missHashes;
+    public long[] hitHashes;
+
+    @Override
+    public byte pid() {
+        return NETWORK_ID;
+    }
+
+    @Override
+    public void decode() {
+        int missCount = (int) this.getUnsignedVarInt();
+        int hitCount = (int) this.getUnsignedVarInt();
+        if (missCount < 0 || hitCount < 0 || missCount + hitCount > MAX_HASHES) {
+            throw new IllegalStateException("Too many blob hashes: " + missCount + " misses, " + hitCount + " hits");
+        }
+
+        this.missHashes = new long[missCount];
+        for (int i = 0; i < missCount; i++) {
+            this.missHashes[i] = this.getLLong();
+        }
+        this.hitHashes = new long[hitCount];
+        for (int i = 0; i < hitCount; i++) {
+            this.hitHashes[i] = this.getLLong();
+        }
+    }
+
+    @Override
+    public void encode() {
+        this.reset();
+        this.putUnsignedVarInt(this.missHashes.length);
+        this.putUnsignedVarInt(this.hitHashes.length);
+        for (long hash : this.missHashes) {
+            this.putLLong(hash);
+        }
+        for (long hash : this.hitHashes) {
+            this.putLLong(hash);
+        }
+    }
+}
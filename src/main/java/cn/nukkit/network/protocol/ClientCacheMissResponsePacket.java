@@ -0,0 +1,35 @@
+package cn.nukkit.network.protocol;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import lombok.ToString;
+
+/**
+ * Blobs requested by a client using the blob cache
+ */
+@ToString(exclude = "blobs")
+public class ClientCacheMissResponsePacket extends DataPacket {
+
+    public static final byte NETWORK_ID = ProtocolInfo.CLIENT_CACHE_MISS_RESPONSE_PACKET;
+
+    public final Long2ObjectMap<byte[]> blobs = new Long2ObjectOpenHashMap<>();
+
+    @Override
+    public byte pid() {
+        return NETWORK_ID;
+    }
+
+    @Override
+    public void decode() {
+    }
+
+    @Override
+    public void encode() {
+        this.reset();
+        this.putUnsignedVarInt(this.blobs.size());
+        for (Long2ObjectMap.Entry<byte[]> entry : this.blobs.long2ObjectEntrySet()) {
+            this.putLLong(entry.getLongKey());
+            this.putByteArray(entry.getValue());
+        }
+    }
+}
@@ -52,10 +52,10 @@ public class LevelChunkPacket extends DataPacket {
                 if (!this.requestSubChunks) {
                     this.putUnsignedVarInt(this.subChunkCount);
                 } else if (this.subChunkLimit < 0) {
-                    this.putUnsignedVarInt(-1);
+                    this.putUnsignedVarInt(0xffffffffL);
                 } else {
-                    this.putUnsignedVarInt(-2);
-                    this.putUnsignedVarInt(this.subChunkLimit);
+                    this.putUnsignedVarInt(0xfffffffeL);
+                    this.putLShort(this.subChunkLimit);
                 }
             }else {
                 this.putUnsignedVarInt(this.subChunkCount);
@@ -0,0 +1,56 @@
+package cn.nukkit.network.protocol;
+
+import cn.nukkit.network.protocol.types.SubChunkEntry;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Sub chunks requested by a {@link SubChunkRequestPacket}, in the batched format of v1.18.10 and above
+ */
+@ToString(exclude = "entries")
+public class SubChunkPacket extends DataPacket {
+
+    public static final byte NETWORK_ID = ProtocolInfo.SUB_CHUNK_PACKET;
+
+    private static final byte[] EMPTY_DATA = new byte[0];
+
+    public int dimension;
+    public int subChunkX;
+    public int subChunkY;
+    public int subChunkZ;
+    public final List<SubChunkEntry> entries = new ObjectArrayList<>();
+
+    @Override
+    public byte pid() {
+        return NETWORK_ID;
+    }
+
+    @Override
+    public void decode() {
+    }
+
+    @Override
+    public void encode() {
+        this.reset();
+        // The blob cache is not used for sub chunks
+        this.putBoolean(false);
+        this.putVarInt(this.dimension);
+        this.putVarInt(this.subChunkX);
+        this.putVarInt(this.subChunkY);
+        this.putVarInt(this.subChunkZ);
+        this.putLInt(this.entries.size());
+        for (SubChunkEntry entry : this.entries) {
+            this.putByte((byte) entry.offsetX());
+            this.putByte((byte) entry.offsetY());
+            this.putByte((byte) entry.offsetZ());
+            this.putByte((byte) entry.result().ordinal());
+            this.putByteArray(entry.data() == null ? EMPTY_DATA : entry.data());
+            this.putByte((byte) entry.heightMapType().ordinal());
+            if (entry.heightMapType() == SubChunkEntry.HeightMapType.HAS_DATA) {
+                this.put(entry.heightMap());
+            }
+        }
+    }
+}
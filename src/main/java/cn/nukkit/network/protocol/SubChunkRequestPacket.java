@@ -0,0 +1,66 @@
+package cn.nukkit.network.protocol;
+
+import lombok.ToString;
+
+/**
+ * Sent by clients in sub chunk request mode to ask for the sub chunks of the chunks they received
+ */
+@ToString
+public class SubChunkRequestPacket extends DataPacket {
+
+    public static final byte NETWORK_ID = ProtocolInfo.SUB_CHUNK_REQUEST_PACKET;
+
+    /**
+     * Upper limit of requested sub chunks in one packet
+     */
+    private static final int MAX_OFFSETS = 4096;
+
+    public int dimension;
+    public int subChunkX;
+    public int subChunkY;
+    public int subChunkZ;
+    /**
+     * Offsets of the requested sub chunks from the center position, three bytes per sub chunk
+     */
+    public byte[] offsets;
+
+    @Override
+    public byte pid() {
+        return NETWORK_ID;
+    }
+
+    @Override
+    public void decode() {
+        this.dimension = this.getVarInt();
+        this.subChunkX = this.getVarInt();
+        this.subChunkY = this.getVarInt();
+        this.subChunkZ = this.getVarInt();
+        if (protocol < ProtocolInfo.v1_18_10) {
+            this.offsets = new byte[3];
+            return;
+        }
+
+        int count = this.getLInt();
+        if (count < 0 || count > MAX_OFFSETS) {
+            throw new IllegalStateException("Too many requested sub chunks: " + count);
+        }
+        this.offsets = this.get(count * 3);
+    }
+
+    @Override
+    public void encode() {
+        this.reset();
+        this.putVarInt(this.dimension);
+        this.putVarInt(this.subChunkX);
+        this.putVarInt(this.subChunkY);
+        this.putVarInt(this.subChunkZ);
+        if (protocol >= ProtocolInfo.v1_18_10) {
+            this.putLInt(this.offsets.length / 3);
+            this.put(this.offsets);
+        }
+    }
+
+    public int getOffsetCount() {
+        return this.offsets.length / 3;
+    }
+}
@@ -0,0 +1,32 @@
+package cn.nukkit.network.protocol.types;
+
+/**
+ * One sub chunk of a {@link cn.nukkit.network.protocol.SubChunkPacket}
+ *
+ * @param offsetX offset of the sub chunk from the requested center position
+ * @param data serialized sub chunk followed by its block entities, null if there is none
+ * @param heightMap highest block of each column relative to the sub chunk, only used with {@link HeightMapType#HAS_DATA}
+ */
+public record SubChunkEntry(int offsetX, int offsetY, int offsetZ, Result result, byte[] data, HeightMapType heightMapType, byte[] heightMap) {
+
+    public static SubChunkEntry of(int offsetX, int offsetY, int offsetZ, Result result) {
+        return new SubChunkEntry(offsetX, offsetY, offsetZ, result, null, HeightMapType.NO_DATA, null);
+    }
+
+    public enum Result {
+        UNDEFINED,
+        SUCCESS,
+        CHUNK_NOT_FOUND,
+        INVALID_DIMENSION,
+        PLAYER_NOT_FOUND,
+        INDEX_OUT_OF_BOUNDS,
+        SUCCESS_ALL_AIR
+    }
+
+    public enum HeightMapType {
+        NO_DATA,
+        HAS_DATA,
+        TOO_HIGH,
+        TOO_LOW
+    }
+}
@@ -1,15 +1,33 @@
 package cn.nukkit.network.session;
 
 import cn.nukkit.Player;
+import cn.nukkit.network.BatchingHelper;
 import cn.nukkit.network.CompressionProvider;
 import cn.nukkit.network.protocol.DataPacket;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
+import java.util.Collection;
 
 public interface NetworkPlayerSession {
 
     void sendPacket(DataPacket packet);
+
+    /**
+     * Send multiple packets, allowing the session to encode and compress them together
+     *
+     * @param packets packets in the order they should be sent
+     */
+    default void sendPackets(Collection<DataPacket> packets) {
+        for (DataPacket packet : packets) {
+            if (packet instanceof BatchingHelper.SharedBatchPacket shared) {
+                this.sendPacket(shared.toBatchPacket(this.getPlayer().protocol, this.getCompression() != CompressionProvider.NONE));
+            } else {
+                this.sendPacket(packet);
+            }
+        }
+    }
+
     void sendImmediatePacket(DataPacket packet, Runnable callback);
 
     @Deprecated
@@ -3,6 +3,7 @@ package cn.nukkit.network.session;
 import cn.nukkit.Nukkit;
 import cn.nukkit.Player;
 import cn.nukkit.Server;
+import cn.nukkit.network.BatchingHelper;
 import cn.nukkit.network.CompressionProvider;
 import cn.nukkit.network.RakNetInterface;
 import cn.nukkit.network.protocol.BatchPacket;
@@ -17,7 +18,6 @@ import com.nukkitx.natives.sha256.Sha256;
 import com.nukkitx.natives.util.Natives;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.util.internal.PlatformDependent;
@@ -32,6 +32,7 @@ import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import java.net.InetAddress;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -45,6 +46,7 @@ public class RakNetPlayerSession extends SimpleChannelInboundHandler<RakMessage>
 
     private static final ThreadLocal<Sha256> HASH_LOCAL = ThreadLocal.withInitial(Natives.SHA_256);
     private static final ThreadLocal<byte[]> CHECKSUM_LOCAL = ThreadLocal.withInitial(() -> new byte[8]);
+    private static final ThreadLocal<ByteBuffer> COUNTER_LOCAL = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(8).order(ByteOrder.LITTLE_ENDIAN));
 
     private final RakNetInterface server;
     private final RakChildChannel channel;
@@ -61,6 +63,10 @@ public class RakNetPlayerSession extends SimpleChannelInboundHandler<RakMessage>
     private boolean compressionInitialized;
 
     private SecretKey encryptionKey;
+    /**
+     * Direct copy of the encoded encryption key, used for checksums
+     */
+    private ByteBuffer checksumKey;
     private Cipher encryptionCipher;
     private Cipher decryptionCipher;
     private final AtomicLong encryptCounter = new AtomicLong();
@@ -91,7 +97,7 @@ public class RakNetPlayerSession extends SimpleChannelInboundHandler<RakMessage>
                 return;
             }
 
-            byte[] packetBuffer;
+            ByteBuf packetBuffer;
 
             boolean ci = false;
             if (this.compressionInitialized && this.player.protocol >= ProtocolInfo.v1_20_60) {
@@ -136,17 +142,15 @@ public class RakNetPlayerSession extends SimpleChannelInboundHandler<RakMessage>
                 }
                 buffer.resetReaderIndex();
 
-                packetBuffer = new byte[buffer.readableBytes() - 8];
+                packetBuffer = buffer.slice(buffer.readerIndex(), buffer.readableBytes() - 8);
             } else {
                 if (ci) {
                     this.compressionIn = CompressionProvider.byPrefix(buffer.readByte(), this.channel.config().getProtocolVersion());
                 }
 
-                packetBuffer = new byte[buffer.readableBytes()];
+                packetBuffer = buffer.slice();
             }
 
-            buffer.readBytes(packetBuffer);
-
             try {
                 this.server.getNetwork().processBatch(packetBuffer, this.inbound, compressionIn, this.channel.config().getProtocolVersion(), this.player);
             } catch (Exception e) {
@@ -207,6 +211,64 @@ public class RakNetPlayerSession extends SimpleChannelInboundHandler<RakMessage>
         this.outbound.offer(packet);
     }
 
+    @Override
+    public void sendPackets(Collection<DataPacket> packets) {
+        if (!this.channel.isActive()) {
+            return;
+        }
+
+        BinaryStream batched = new BinaryStream();
+        for (DataPacket packet : packets) {
+            if (packet instanceof BatchingHelper.SharedBatchPacket shared) {
+                // Already encoded for this protocol, join the batch instead of sending it on its own
+                byte[] encoded = shared.getEncoded(this.player.protocol);
+                if (batched.getCount() > 0 && batched.getCount() + encoded.length > 3145728) { // 3 * 1024 * 1024
+                    this.queueBatch(batched);
+                    batched = new BinaryStream();
+                }
+                batched.put(encoded);
+                continue;
+            }
+
+            if (packet instanceof BatchPacket || packet instanceof DisconnectPacket) {
+                // Handled by the network tick, keep the order
+                this.queueBatch(batched);
+                batched = new BinaryStream();
+                this.sendPacket(packet);
+                continue;
+            }
+
+            packet.tryEncode();
+            byte[] buf = packet.getBuffer();
+            if (batched.getCount() + buf.length > 3145728) { // 3 * 1024 * 1024
+                this.queueBatch(batched);
+                batched = new BinaryStream();
+            }
+            batched.putUnsignedVarInt(buf.length);
+            batched.put(buf);
+        }
+
+        this.queueBatch(batched);
+    }
+
+    /**
+     * Compress the batch on the calling thread and queue it for the network tick
+     */
+    private void queueBatch(BinaryStream batched) {
+        if (batched.getCount() == 0) {
+            return;
+        }
+
+        try {
+            BatchPacket batchPacket = new BatchPacket();
+            batchPacket.protocol = this.player.protocol;
+            batchPacket.payload = this.compressionOut.compress(batched, Server.getInstance().networkCompressionLevel);
+            this.outbound.offer(batchPacket);
+        } catch (Exception e) {
+            log.error("Unable to compress batched packets", e);
+        }
+    }
+
     @Override
     public void sendImmediatePacket(DataPacket packet, Runnable callback) {
         if (!this.channel.isActive()) {
@@ -230,6 +292,12 @@ public class RakNetPlayerSession extends SimpleChannelInboundHandler<RakMessage>
             DataPacket packet;
             while ((packet = this.outbound.poll()) != null) {
                 if (packet instanceof DisconnectPacket) {
+                    // Packets sent before the disconnect still have to arrive
+                    if (!toBatch.isEmpty()) {
+                        this.batchAndSend(toBatch);
+                        toBatch.clear();
+                    }
+
                     BinaryStream batched = new BinaryStream();
                     byte[] buf = packet.getBuffer();
                     batched.putUnsignedVarInt(buf.length);
@@ -243,7 +311,7 @@ public class RakNetPlayerSession extends SimpleChannelInboundHandler<RakMessage>
                     return; // Disconnected
                 } else if (packet instanceof BatchPacket) {
                     if (!toBatch.isEmpty()) {
-                        this.sendPackets(toBatch);
+                        this.batchAndSend(toBatch);
                         toBatch.clear();
                     }
 
@@ -254,7 +322,7 @@ public class RakNetPlayerSession extends SimpleChannelInboundHandler<RakMessage>
             }
 
             if (!toBatch.isEmpty()) {
-                this.sendPackets(toBatch);
+                this.batchAndSend(toBatch);
             }
         } catch (Throwable e) {
             log.error("[{}] Failed to tick RakNetPlayerSession", this.channel.remoteAddress(), e);
@@ -273,7 +341,7 @@ public class RakNetPlayerSession extends SimpleChannelInboundHandler<RakMessage>
         }
     }
 
-    private void sendPackets(Collection<DataPacket> packets) {
+    private void batchAndSend(Collection<DataPacket> packets) {
         BinaryStream batched = new BinaryStream();
         for (DataPacket packet : packets) {
             if (packet instanceof BatchPacket) {
@@ -309,32 +377,26 @@ public class RakNetPlayerSession extends SimpleChannelInboundHandler<RakMessage>
             ci = true;
         }
 
-        ByteBuf finalPayload = ByteBufAllocator.DEFAULT.directBuffer((ci ? 10 : 9) + compressedPayload.length); // prefix(1)+id(1)+encryption(8)+data
+        boolean encrypt = this.encryptionCipher != null;
+        // id(1)+prefix(1)+data+checksum(8), the payload is encrypted in place
+        ByteBuf finalPayload = ByteBufAllocator.DEFAULT.directBuffer((ci ? 2 : 1) + compressedPayload.length + (encrypt ? 8 : 0));
         finalPayload.writeByte(0xfe);
+        if (ci) {
+            finalPayload.writeByte(this.compressionOut.getPrefix());
+        }
+        finalPayload.writeBytes(compressedPayload);
 
-        if (this.encryptionCipher != null) {
+        if (encrypt) {
             try {
-                byte[] fullPayload = ci ? new byte[compressedPayload.length + 1] : compressedPayload;
-                if (ci) {
-                    fullPayload[0] = this.compressionOut.getPrefix();
-                    System.arraycopy(compressedPayload, 0, fullPayload, 1, compressedPayload.length);
-                }
-                ByteBuf compressed = Unpooled.wrappedBuffer(fullPayload);
-                ByteBuffer trailer = ByteBuffer.wrap(this.calculateChecksum(this.encryptCounter.getAndIncrement(), compressed));
-                ByteBuffer outBuffer = finalPayload.internalNioBuffer(1, compressed.readableBytes() + 8);
-                ByteBuffer inBuffer = compressed.internalNioBuffer(compressed.readerIndex(), compressed.readableBytes());
-                this.encryptionCipher.update(inBuffer, outBuffer);
-                this.encryptionCipher.update(trailer, outBuffer);
-                finalPayload.writerIndex(finalPayload.writerIndex() + compressed.readableBytes() + 8);
+                byte[] trailer = this.calculateChecksum(this.encryptCounter.getAndIncrement(), finalPayload.slice(1, finalPayload.writerIndex() - 1));
+                finalPayload.writeBytes(trailer);
+                ByteBuffer buffer = finalPayload.internalNioBuffer(1, finalPayload.writerIndex() - 1);
+                this.encryptionCipher.update(buffer, buffer.duplicate());
             } catch (Exception e) {
+                finalPayload.release();
                 log.error("Packet encryption failed for {}", player.getName(), e);
+                return;
             }
-        }else {
-            if (ci) {
-                finalPayload.writeByte(this.compressionOut.getPrefix());
-            }
-
-            finalPayload.writeBytes(compressedPayload);
         }
 
         this.channel.writeAndFlush(finalPayload);
@@ -374,6 +436,9 @@ public class RakNetPlayerSession extends SimpleChannelInboundHandler<RakMessage>
     @Override
     public void setEncryption(SecretKey encryptionKey, Cipher encryptionCipher, Cipher decryptionCipher) {
         this.encryptionKey = encryptionKey;
+        byte[] key = encryptionKey.getEncoded();
+        this.checksumKey = ByteBuffer.allocateDirect(key.length);
+        this.checksumKey.put(key).flip();
         this.encryptionCipher = encryptionCipher;
         this.decryptionCipher = decryptionCipher;
     }
@@ -389,18 +454,19 @@ public class RakNetPlayerSession extends SimpleChannelInboundHandler<RakMessage>
 
     private byte[] calculateChecksum(long count, ByteBuf payload) {
         Sha256 hash = HASH_LOCAL.get();
-        ByteBuf counterBuf = ByteBufAllocator.DEFAULT.directBuffer(8);
+        ByteBuffer counter = COUNTER_LOCAL.get();
+        ByteBuffer key = this.checksumKey;
         try {
-            counterBuf.writeLongLE(count);
-            ByteBuffer keyBuffer = ByteBuffer.wrap(this.encryptionKey.getEncoded());
-            hash.update(counterBuf.internalNioBuffer(0, 8));
+            counter.clear();
+            counter.putLong(count).flip();
+            key.rewind();
+            hash.update(counter);
             hash.update(payload.internalNioBuffer(payload.readerIndex(), payload.readableBytes()));
-            hash.update(keyBuffer);
+            hash.update(key);
             byte[] digested = hash.digest();
             return Arrays.copyOf(digested, 8);
         } finally {
-            counterBuf.release();
             hash.reset();
         }
     }
-}
\ No newline at end of file
+}
@@ -3,7 +3,7 @@ package cn.nukkit.scheduler;
 import cn.nukkit.block.Block;
 import cn.nukkit.level.Level;
 import cn.nukkit.math.AxisAlignedBB;
-import cn.nukkit.math.SimpleAxisAlignedBB;
+import cn.nukkit.math.NukkitMath;
 import cn.nukkit.math.Vector3;
 import cn.nukkit.utils.BlockUpdateEntry;
 import cn.nukkit.utils.collection.nb.Long2ObjectNonBlockingMap;
@@ -11,16 +11,31 @@ import cn.nukkit.utils.collection.nb.Long2ObjectNonBlockingMap;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Scheduled block updates of a level.
+ * <p>
+ * Entries are grouped by the tick they are run in. They are also indexed by themselves and by the chunk they are in,
+ * so lookups and removals of single entries and the collection of the entries of a chunk do not have to go through
+ * every scheduled update of the level. Updates are only added and run by the thread ticking the level, reading the
+ * pending updates of a chunk is safe from other threads.
+ */
 public class BlockUpdateScheduler {
 
     private final Level level;
     private long lastTick;
     private final Long2ObjectNonBlockingMap<Set<BlockUpdateEntry>> queuedUpdates;
+    /**
+     * Scheduled entries, the key matches equal entries built from a position and a block
+     */
+    private final Map<BlockUpdateEntry, BlockUpdateEntry> scheduledEntries;
+    private final Long2ObjectNonBlockingMap<Set<BlockUpdateEntry>> chunkUpdates;
 
     private Set<BlockUpdateEntry> pendingUpdates;
 
     public BlockUpdateScheduler(Level level, long currentTick) {
         queuedUpdates = new Long2ObjectNonBlockingMap<>();
+        scheduledEntries = new ConcurrentHashMap<>();
+        chunkUpdates = new Long2ObjectNonBlockingMap<>();
         lastTick = currentTick;
         this.level = level;
     }
@@ -50,8 +65,19 @@ public class BlockUpdateScheduler {
             lastTick = tick;
             Set<BlockUpdateEntry> updates = pendingUpdates = queuedUpdates.remove(tick);
             if (updates != null) {
+                // The whole tick is taken out first so the updates can be scheduled again while running
                 for (BlockUpdateEntry entry : updates) {
-                    if (level.isAreaLoaded(new SimpleAxisAlignedBB(entry.pos, entry.pos))) {
+                    scheduledEntries.remove(entry, entry);
+                    removeFromChunk(entry);
+                }
+
+                for (BlockUpdateEntry entry : updates) {
+                    if (entry.pos.y >= level.getMinBlockY() && entry.pos.y <= level.getMaxBlockY()
+                            && level.isChunkLoaded(entry.pos.getFloorX() >> 4, entry.pos.getFloorZ() >> 4)) {
+                        // Compare the id first so no block is created for updates of blocks which were replaced
+                        if (level.getBlockIdAt(entry.pos.getFloorX(), entry.pos.getFloorY(), entry.pos.getFloorZ(), entry.block.layer) != entry.block.getId()) {
+                            continue;
+                        }
                         Block block = level.getBlock(entry.pos, entry.block.layer);
 
                         if (Block.equals(block, entry.block, false)) {
@@ -70,13 +96,23 @@ public class BlockUpdateScheduler {
     public Set<BlockUpdateEntry> getPendingBlockUpdates(AxisAlignedBB boundingBox) {
         Set<BlockUpdateEntry> set = new HashSet<>();
 
-        for (Set<BlockUpdateEntry> tickSet : this.queuedUpdates.values()) {
-            for (BlockUpdateEntry update : tickSet) {
-                Vector3 pos = update.pos;
+        int minChunkX = NukkitMath.floorDouble(boundingBox.getMinX()) >> 4;
+        int minChunkZ = NukkitMath.floorDouble(boundingBox.getMinZ()) >> 4;
+        int maxChunkX = NukkitMath.floorDouble(boundingBox.getMaxX()) >> 4;
+        int maxChunkZ = NukkitMath.floorDouble(boundingBox.getMaxZ()) >> 4;
 
-                if (pos.getX() >= boundingBox.getMinX() && pos.getX() < boundingBox.getMaxX() &&
-                        pos.getZ() >= boundingBox.getMinZ() && pos.getZ() < boundingBox.getMaxZ()) {
-                    set.add(update);
+        if ((long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1) > chunkUpdates.size()) {
+            // Fewer chunks with updates than chunks in the box
+            for (Set<BlockUpdateEntry> chunkSet : chunkUpdates.values()) {
+                addInside(chunkSet, boundingBox, set);
+            }
+        } else {
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                    Set<BlockUpdateEntry> chunkSet = chunkUpdates.get(Level.chunkHash(chunkX, chunkZ));
+                    if (chunkSet != null) {
+                        addInside(chunkSet, boundingBox, set);
+                    }
                 }
             }
         }
@@ -84,6 +120,17 @@ public class BlockUpdateScheduler {
         return set;
     }
 
+    private static void addInside(Set<BlockUpdateEntry> updates, AxisAlignedBB boundingBox, Set<BlockUpdateEntry> result) {
+        for (BlockUpdateEntry update : updates) {
+            Vector3 pos = update.pos;
+
+            if (pos.getX() >= boundingBox.getMinX() && pos.getX() < boundingBox.getMaxX() &&
+                    pos.getZ() >= boundingBox.getMinZ() && pos.getZ() < boundingBox.getMaxZ()) {
+                result.add(update);
+            }
+        }
+    }
+
     public boolean isBlockTickPending(Vector3 pos, Block block) {
         Set<BlockUpdateEntry> tmpUpdates = pendingUpdates;
         if (tmpUpdates == null || tmpUpdates.isEmpty()) return false;
@@ -94,42 +141,79 @@ public class BlockUpdateScheduler {
         return Math.max(entry.delay, lastTick + 1);
     }
 
+    /**
+     * Schedule an update. Nothing is done if an equal update is scheduled already.
+     * The delay of an entry scheduled for a past tick is moved to the tick it will run in.
+     */
     public void add(BlockUpdateEntry entry) {
+        if (scheduledEntries.putIfAbsent(entry, entry) != null) {
+            return;
+        }
+
         long time = getMinTime(entry);
+        entry.delay = time;
         Set<BlockUpdateEntry> updateSet = queuedUpdates.get(time);
         if (updateSet == null) {
             Set<BlockUpdateEntry> tmp = queuedUpdates.putIfAbsent(time, updateSet = ConcurrentHashMap.newKeySet());
             if (tmp != null) updateSet = tmp;
         }
         updateSet.add(entry);
+
+        long chunkHash = chunkHash(entry);
+        Set<BlockUpdateEntry> chunkSet = chunkUpdates.get(chunkHash);
+        if (chunkSet == null) {
+            Set<BlockUpdateEntry> tmp = chunkUpdates.putIfAbsent(chunkHash, chunkSet = ConcurrentHashMap.newKeySet());
+            if (tmp != null) chunkSet = tmp;
+        }
+        chunkSet.add(entry);
     }
 
     public boolean contains(BlockUpdateEntry entry) {
-        for (Map.Entry<Long, Set<BlockUpdateEntry>> tickUpdateSet : queuedUpdates.entrySet()) {
-            if (tickUpdateSet.getValue().contains(entry)) {
-                return true;
-            }
-        }
-        return false;
+        return scheduledEntries.containsKey(entry);
     }
 
     public boolean remove(BlockUpdateEntry entry) {
-        for (Map.Entry<Long, Set<BlockUpdateEntry>> tickUpdateSet : queuedUpdates.entrySet()) {
-            if (tickUpdateSet.getValue().remove(entry)) {
-                return true;
+        BlockUpdateEntry scheduled = scheduledEntries.remove(entry);
+        if (scheduled == null) {
+            return false;
+        }
+
+        Set<BlockUpdateEntry> updateSet = queuedUpdates.get(scheduled.delay);
+        if (updateSet != null) {
+            updateSet.remove(scheduled);
+            if (updateSet.isEmpty()) {
+                queuedUpdates.remove(scheduled.delay, updateSet);
             }
         }
-        return false;
+        removeFromChunk(scheduled);
+        return true;
     }
 
     @Deprecated
     @SuppressWarnings("SuspiciousMethodCalls")
     public boolean remove(Vector3 pos) {
         for (Set<BlockUpdateEntry> tickUpdateSet : queuedUpdates.values()) {
-            if (tickUpdateSet.remove(pos)) {
-                return true;
+            for (BlockUpdateEntry entry : tickUpdateSet) {
+                if (entry.pos.equals(pos)) {
+                    return remove(entry);
+                }
             }
         }
         return false;
     }
+
+    private void removeFromChunk(BlockUpdateEntry entry) {
+        long chunkHash = chunkHash(entry);
+        Set<BlockUpdateEntry> chunkSet = chunkUpdates.get(chunkHash);
+        if (chunkSet != null) {
+            chunkSet.remove(entry);
+            if (chunkSet.isEmpty()) {
+                chunkUpdates.remove(chunkHash, chunkSet);
+            }
+        }
+    }
+
+    private static long chunkHash(BlockUpdateEntry entry) {
+        return Level.chunkHash(entry.pos.getFloorX() >> 4, entry.pos.getFloorZ() >> 4);
+    }
 }
@@ -59,6 +59,10 @@ public class BinaryStream {
     public int offset;
     private byte[] buffer;
     protected int count;
+    /**
+     * End of the range used by a view, see {@link #setBuffer(byte[], int, int)}. -1 if the stream owns its buffer.
+     */
+    private int limit = -1;
 
     private static final int MAX_ARRAY_SIZE = 2147483639;
 
@@ -98,6 +102,7 @@ public class BinaryStream {
     public void setBuffer(byte[] buffer) {
         this.buffer = buffer;
         this.count = buffer == null ? -1 : buffer.length;
+        this.limit = -1;
     }
 
     public void setBuffer(byte[] buffer, int offset) {
@@ -105,6 +110,21 @@ public class BinaryStream {
         this.setOffset(offset);
     }
 
+    /**
+     * Read a range of an array shared with other streams without copying it.
+     * Reading ends at the end of the range, the array is copied before the first write so it is never modified.
+     *
+     * @param buffer shared array
+     * @param offset start of the range
+     * @param end    end of the range, exclusive
+     */
+    public void setBuffer(byte[] buffer, int offset, int end) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.count = end;
+        this.limit = end;
+    }
+
     public int getOffset() {
         return offset;
     }
@@ -1594,7 +1614,7 @@ public class BinaryStream {
     }
 
     public boolean feof() {
-        return this.offset < 0 || this.offset >= this.buffer.length;
+        return this.offset < 0 || this.offset >= (this.limit < 0 ? this.buffer.length : this.limit);
     }
 
     @SneakyThrows(IOException.class)
@@ -1609,6 +1629,11 @@ public class BinaryStream {
     }
 
     private void ensureCapacity(int minCapacity) {
+        if (this.limit >= 0) {
+            // Writing to a view, take a copy of the shared array first
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(minCapacity, this.limit));
+            this.limit = -1;
+        }
         // overflow-conscious code
         if (minCapacity - buffer.length > 0) {
             grow(minCapacity);
@@ -3,6 +3,11 @@ package cn.nukkit.utils;
 import cn.nukkit.Server;
 import cn.nukkit.network.encryption.EncryptionUtils;
 import cn.nukkit.network.protocol.LoginPacket;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
@@ -15,6 +20,7 @@ import java.security.interfaces.ECPublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ClientChainData is a container of chain data sent from clients.
@@ -33,6 +39,18 @@ public final class ClientChainData implements LoginChainData {
 
     private static final Gson GSON = new Gson();
 
+    /**
+     * Hashes of identity chains whose signatures were verified, reconnecting clients send the same chain again
+     */
+    private static final Cache<HashCode, Boolean> VERIFIED_CHAINS = Caffeine.newBuilder()
+            .maximumSize(4096)
+            .expireAfterWrite(30, TimeUnit.MINUTES)
+            .build();
+    /**
+     * Allowed clock difference in seconds when checking the exp and nbf claims of the chain
+     */
+    private static final long CLOCK_SKEW = 60;
+
     public static ClientChainData of(byte[] buffer) {
         return new ClientChainData(buffer);
     }
@@ -285,13 +303,57 @@ public final class ClientChainData implements LoginChainData {
     }
 
     private static boolean verifyChain(List<String> chains) throws Exception {
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (String chain : chains) {
+            hasher.putInt(chain.length());
+            hasher.putString(chain, StandardCharsets.UTF_8);
+        }
+        HashCode hash = hasher.hash();
+        // Checked for cached chains as well, a cached chain may have expired since it was verified
+        if (!isWithinValidity(chains)) {
+            VERIFIED_CHAINS.invalidate(hash);
+            return false;
+        }
+        if (VERIFIED_CHAINS.getIfPresent(hash) != null) {
+            return true;
+        }
+
         try {
-            return EncryptionUtils.validateChain(chains).signed();
+            boolean signed = EncryptionUtils.validateChain(chains).signed();
+            if (signed) {
+                VERIFIED_CHAINS.put(hash, Boolean.TRUE);
+            }
+            return signed;
         } catch (Exception e) {
             return false;
         }
     }
 
+    /**
+     * Check the exp and nbf claims of every token of the chain against the current time
+     */
+    private static boolean isWithinValidity(List<String> chains) {
+        long now = System.currentTimeMillis() / 1000;
+        for (String chain : chains) {
+            JsonObject claims;
+            try {
+                claims = decodeToken(chain);
+            } catch (Exception e) {
+                return false;
+            }
+            if (claims == null) {
+                return false;
+            }
+            if (claims.has("exp") && claims.get("exp").getAsLong() + CLOCK_SKEW < now) {
+                return false;
+            }
+            if (claims.has("nbf") && claims.get("nbf").getAsLong() - CLOCK_SKEW > now) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static class MapTypeToken extends TypeToken<Map<String, List<String>>> {
     }
 
@@ -3,6 +3,7 @@ package cn.nukkit.utils;
 import cn.nukkit.Server;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.zip.Deflater;
 
 public abstract class Zlib {
@@ -78,4 +79,18 @@ public abstract class Zlib {
     public static byte[] inflateRaw(byte[] data, int maxSize) throws IOException {
         return provider.inflateRaw(data, maxSize);
     }
+
+    /**
+     * Inflate data directly from a (possibly direct) buffer without copying it to an array first
+     */
+    public static byte[] inflate(ByteBuffer data, int maxSize) throws IOException {
+        return provider.inflate(data, maxSize);
+    }
+
+    /**
+     * Inflate raw data directly from a (possibly direct) buffer without copying it to an array first
+     */
+    public static byte[] inflateRaw(ByteBuffer data, int maxSize) throws IOException {
+        return provider.inflateRaw(data, maxSize);
+    }
 }
@@ -1,6 +1,7 @@
 package cn.nukkit.utils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * ZlibProvider
@@ -20,4 +21,16 @@ interface ZlibProvider {
     byte[] inflate(byte[] data, int maxSize) throws IOException;
 
     byte[] inflateRaw(byte[] data, int maxSize) throws IOException;
+
+    default byte[] inflate(ByteBuffer data, int maxSize) throws IOException {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return this.inflate(bytes, maxSize);
+    }
+
+    default byte[] inflateRaw(ByteBuffer data, int maxSize) throws IOException {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return this.inflateRaw(bytes, maxSize);
+    }
 }
@@ -4,6 +4,7 @@ import cn.nukkit.Server;
 import cn.nukkit.nbt.stream.FastByteArrayOutputStream;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
@@ -107,25 +108,7 @@ public final class ZlibThreadLocal implements ZlibProvider {
         Inflater inflater = INFLATER.get();
         inflater.reset();
         inflater.setInput(data);
-        inflater.finished();
-        FastByteArrayOutputStream bos = ThreadCache.fbaos.get();
-        bos.reset();
-
-        byte[] buffer = BUFFER.get();
-        try {
-            int length = 0;
-            while (!inflater.finished()) {
-                int i = inflater.inflate(buffer);
-                length += i;
-                if (maxSize > 0 && length >= maxSize) {
-                    throw new IOException("Inflated data exceeds maximum size");
-                }
-                bos.write(buffer, 0, i);
-            }
-            return bos.toByteArray();
-        } catch (DataFormatException e) {
-            throw new IOException("Unable to inflate Zlib stream", e);
-        }
+        return inflate(inflater, maxSize, false);
     }
 
     @Override
@@ -133,7 +116,26 @@ public final class ZlibThreadLocal implements ZlibProvider {
         Inflater inflater = INFLATER_RAW.get();
         inflater.reset();
         inflater.setInput(data);
-        inflater.finished();
+        return inflate(inflater, maxSize, true);
+    }
+
+    @Override
+    public byte[] inflate(ByteBuffer data, int maxSize) throws IOException {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(data);
+        return inflate(inflater, maxSize, false);
+    }
+
+    @Override
+    public byte[] inflateRaw(ByteBuffer data, int maxSize) throws IOException {
+        Inflater inflater = INFLATER_RAW.get();
+        inflater.reset();
+        inflater.setInput(data);
+        return inflate(inflater, maxSize, true);
+    }
+
+    private static byte[] inflate(Inflater inflater, int maxSize, boolean raw) throws IOException {
         FastByteArrayOutputStream bos = ThreadCache.fbaos.get();
         bos.reset();
 
@@ -142,7 +144,7 @@ public final class ZlibThreadLocal implements ZlibProvider {
             int length = 0;
             while (!inflater.finished()) {
                 int i = inflater.inflate(buffer);
-                if (i == 0) {
+                if (raw && i == 0) {
                     throw new IOException("Could not decompress data");
                 }
                 length += i;